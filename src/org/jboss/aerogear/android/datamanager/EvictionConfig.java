@@ -0,0 +1,186 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.datamanager;
+
+/**
+ * Limits how much a memory store may hold.  Once a limit is passed the store
+ * evicts items according to its policy.
+ */
+public class EvictionConfig {
+
+    public static enum Policies {
+
+        /**
+         * Evicts the item which was read or saved least recently
+         */
+        LRU,
+        /**
+         * Evicts the item which was read or saved the fewest times, the least
+         * recent of those first
+         */
+        LFU
+    }
+
+    private int maxEntries = Integer.MAX_VALUE;
+    private long maxBytes = Long.MAX_VALUE;
+    private Policies policy = Policies.LRU;
+    private long timeToLive = 0;
+    private ItemTimeToLive itemTimeToLive;
+    private EvictionListener evictionListener;
+    private ItemSizer itemSizer;
+
+    /**
+     * MaxEntries is the number of items the store may hold (default: no limit)
+     *
+     * @return the current limit
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * MaxEntries is the number of items the store may hold (default: no limit)
+     *
+     * @param maxEntries a new limit
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * MaxBytes is the total size, as measured by the ItemSizer, the items in
+     * the store may have (default: no limit)
+     *
+     * @return the current limit
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * MaxBytes is the total size, as measured by the ItemSizer, the items in
+     * the store may have (default: no limit)
+     *
+     * @param maxBytes a new limit
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Policy chooses which item is evicted when a limit is passed (default:
+     * LRU)
+     *
+     * @return the current policy
+     */
+    public Policies getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Policy chooses which item is evicted when a limit is passed (default:
+     * LRU)
+     *
+     * @param policy a new policy
+     */
+    public void setPolicy(Policies policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * TimeToLive is the number of milliseconds an item stays in the store
+     * after it was last saved, 0 keeps items until they are evicted by a 
+     * limit.  It is ignored once an ItemTimeToLive is set (default: 0)
+     *
+     * @return the current time to live
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * TimeToLive is the number of milliseconds an item stays in the store
+     * after it was last saved, 0 keeps items until they are evicted by a 
+     * limit.  It is ignored once an ItemTimeToLive is set (default: 0)
+     *
+     * @param timeToLive a new time to live
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * ItemTimeToLive chooses the time to live of each item as it is saved, 
+     * in place of timeToLive (default: none)
+     *
+     * @return the current time to live of items
+     */
+    public ItemTimeToLive getItemTimeToLive() {
+        return itemTimeToLive;
+    }
+
+    /**
+     * ItemTimeToLive chooses the time to live of each item as it is saved, 
+     * in place of timeToLive (default: none)
+     *
+     * @param itemTimeToLive a new time to live of items
+     */
+    public void setItemTimeToLive(ItemTimeToLive itemTimeToLive) {
+        this.itemTimeToLive = itemTimeToLive;
+    }
+
+    /**
+     * EvictionListener is told about every evicted item (default: none)
+     *
+     * @return the current listener
+     */
+    public EvictionListener getEvictionListener() {
+        return evictionListener;
+    }
+
+    /**
+     * EvictionListener is told about every evicted item (default: none)
+     *
+     * @param evictionListener a new listener
+     */
+    public void setEvictionListener(EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * ItemSizer measures items for maxBytes.  Without one a store sizes an 
+     * item as two bytes per character of its JSON form, and an encrypted 
+     * store sizes it as the length of its ciphertext (default: none)
+     *
+     * @return the current sizer
+     */
+    public ItemSizer getItemSizer() {
+        return itemSizer;
+    }
+
+    /**
+     * ItemSizer measures items for maxBytes.  Without one a store sizes an 
+     * item as two bytes per character of its JSON form, and an encrypted 
+     * store sizes it as the length of its ciphertext (default: none)
+     *
+     * @param itemSizer a new sizer
+     */
+    public void setItemSizer(ItemSizer itemSizer) {
+        this.itemSizer = itemSizer;
+    }
+
+}
@@ -0,0 +1,35 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.datamanager;
+
+import java.io.Serializable;
+
+/**
+ * Notified when a bounded store drops an item to stay within its limits or
+ * because the item outlived its time to live.
+ */
+public interface EvictionListener<T> {
+
+    /**
+     * Called after the item has been removed from the store.
+     *
+     * @param id the id of the evicted item
+     * @param item the evicted item
+     */
+    void onEvicted(Serializable id, T item);
+
+}
@@ -0,0 +1,31 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.datamanager;
+
+/**
+ * Chooses how long each item stays in a bounded store.
+ */
+public interface ItemTimeToLive<T> {
+
+    /**
+     * @param item an item being saved
+     * @return the number of milliseconds the item stays in the store after 
+     * it was saved, 0 to keep it until it is evicted by a limit
+     */
+    long timeToLiveOf(T item);
+
+}
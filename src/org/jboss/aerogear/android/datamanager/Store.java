@@ -64,6 +64,13 @@ public interface Store<T> {
      */
     public void save(T item);
 
+    /**
+     * Saves the given objects in the underlying storage system.
+     *
+     * @param items Objects to save
+     */
+    public void saveAll(Collection<T> items);
+
     /**
      * Resets the entire storage system.
      */
@@ -76,6 +83,13 @@ public interface Store<T> {
      */
     public void remove(Serializable id);
 
+    /**
+     * Removes the objects/records with the given ids from the underlying storage system.
+     *
+     * @param ids Ids of items to remove
+     */
+    public void removeAll(Collection<? extends Serializable> ids);
+
     /**
      * Checks if the storage system contains no stored elements.
      *
@@ -0,0 +1,120 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.http;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.aerogear.android.RecordId;
+
+import android.util.Base64;
+
+/**
+ * A response kept by a {@link ResponseCache}.  It is keyed by a hash of the
+ * URL and headers of its request, so it can be saved in a 
+ * {@link org.jboss.aerogear.android.datamanager.Store} without keeping any 
+ * credentials they carry.
+ */
+public class CachedResponse {
+
+    @RecordId
+    private String key;
+    private String eTag;
+    private String lastModified;
+    private Map<String, String> headers = new HashMap<String, String>();
+    /**
+     * The body as Base64, so a Store keeps it as one value instead of an 
+     * array, which the PROPERTY layout of an SQLStore stores a row per byte.
+     */
+    private String body = "";
+    private transient byte[] decodedBody;
+
+    public CachedResponse() {
+    }
+
+    public CachedResponse(String key, String eTag, String lastModified, Map<String, String> headers, byte[] body) {
+        this.key = key;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.headers = new HashMap<String, String>(headers);
+        setBody(Arrays.copyOf(body, body.length));
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    /**
+     * The value of the ETag header, sent back as If-None-Match.
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    /**
+     * The value of the Last-Modified header, sent back as If-Modified-Since.
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public void setHeaders(Map<String, String> headers) {
+        this.headers = headers;
+    }
+
+    public byte[] getBody() {
+        if (decodedBody == null) {
+            decodedBody = body == null ? new byte[0] : Base64.decode(body, Base64.NO_WRAP);
+        }
+        return decodedBody;
+    }
+
+    public void setBody(byte[] body) {
+        this.body = Base64.encodeToString(body, Base64.NO_WRAP);
+        this.decodedBody = body;
+    }
+
+    /**
+     * @return the response as it was read from the server
+     */
+    public HeaderAndBody toHeaderAndBody() {
+        byte[] body = getBody();
+        HeaderAndBody result = HeaderAndBody.wrap(body, body.length, new HashMap<String, Object>(headers.size()));
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            result.setHeader(header.getKey(), header.getValue());
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.http;
+
+/**
+ * Configures gzip compression of the requests and responses of a Pipe.
+ * 
+ * Responses are always asked for compressed, with an Accept-Encoding header,
+ * and decoded as they are read.  Request bodies are only compressed when 
+ * the server is known to accept them, so it is turned on separately.
+ */
+public class CompressionConfig {
+
+    private boolean compressRequests = false;
+    private int requestThreshold = 1024;
+
+    /**
+     * CompressRequests sends request bodies gzipped, with a Content-Encoding
+     * header, once they reach the request threshold (default: false)
+     *
+     * @return true if request bodies are compressed
+     */
+    public boolean isCompressRequests() {
+        return compressRequests;
+    }
+
+    /**
+     * CompressRequests sends request bodies gzipped, with a Content-Encoding
+     * header, once they reach the request threshold (default: false)
+     *
+     * @param compressRequests true to compress request bodies
+     */
+    public void setCompressRequests(boolean compressRequests) {
+        this.compressRequests = compressRequests;
+    }
+
+    /**
+     * RequestThreshold is the least bytes a request body needs to be 
+     * compressed; smaller bodies are not worth it (default: 1024).  Bodies of 
+     * unknown length are always compressed.
+     *
+     * @return the current request threshold
+     */
+    public int getRequestThreshold() {
+        return requestThreshold;
+    }
+
+    /**
+     * RequestThreshold is the least bytes a request body needs to be 
+     * compressed; smaller bodies are not worth it (default: 1024).  Bodies of 
+     * unknown length are always compressed.
+     *
+     * @param requestThreshold a new request threshold, at least 0
+     */
+    public void setRequestThreshold(int requestThreshold) {
+        if (requestThreshold < 0) {
+            throw new IllegalArgumentException("requestThreshold must not be negative");
+        }
+        this.requestThreshold = requestThreshold;
+    }
+
+    /**
+     * @param contentLength the length of a request body, -1 if unknown
+     * @return true if the body should be sent compressed
+     */
+    public boolean shouldCompress(long contentLength) {
+        return compressRequests && (contentLength < 0 || contentLength >= requestThreshold);
+    }
+}
@@ -16,6 +16,10 @@
  */
 package org.jboss.aerogear.android.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -23,20 +27,81 @@ import java.util.Map;
 /**
  * This is a convenience to wrap up headers from a
  * HTTPResponse with its entity.
+ * 
+ * The body can be read through {@link #openBody()}, {@link #getBodyBuffer()} 
+ * or {@link #getBodyAsString(Charset)} without being copied; 
+ * {@link #getBody()} returns a copy of it.
  */
 public class HeaderAndBody {
 
     private final byte[] body;
 
+    private final int length;
+
     private final Map<String, Object> headers;
 
     public HeaderAndBody(byte[] body, Map<String, Object> headers) {
-        this.body = Arrays.copyOf(body, body.length);
-        this.headers = new HashMap<String, Object>(headers);
+        this(Arrays.copyOf(body, body.length), body.length, new HashMap<String, Object>(headers));
+    }
+
+    private HeaderAndBody(byte[] body, int length, Map<String, Object> headers) {
+        if (length < 0 || length > body.length) {
+            throw new IllegalArgumentException("length must be between 0 and body.length");
+        }
+        this.body = body;
+        this.length = length;
+        this.headers = headers;
     }
 
+    /**
+     * Creates a HeaderAndBody around the first length bytes of body without
+     * copying them.  The caller must not change body afterwards.
+     *
+     * @param body the buffer holding the body
+     * @param length the number of bytes of the body in the buffer
+     * @param headers the headers
+     * @return a new HeaderAndBody sharing body
+     */
+    public static HeaderAndBody wrap(byte[] body, int length, Map<String, Object> headers) {
+        return new HeaderAndBody(body, length, new HashMap<String, Object>(headers));
+    }
+
+    /**
+     * @return a copy of the body
+     */
     public byte[] getBody() {
-        return Arrays.copyOf(body, body.length);
+        return Arrays.copyOf(body, length);
+    }
+
+    /**
+     * @return the length of the body in bytes
+     */
+    public int getBodyLength() {
+        return length;
+    }
+
+    /**
+     * Reads the body without copying it first.
+     * 
+     * @return a new stream over the body
+     */
+    public InputStream openBody() {
+        return new ByteArrayInputStream(body, 0, length);
+    }
+
+    /**
+     * @return a read only view of the body
+     */
+    public ByteBuffer getBodyBuffer() {
+        return ByteBuffer.wrap(body, 0, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @param charset the encoding of the body
+     * @return the body decoded as text
+     */
+    public String getBodyAsString(Charset charset) {
+        return new String(body, 0, length, charset);
     }
 
     public Object getHeader(String headerName) {
@@ -53,6 +53,15 @@ public interface HttpProvider {
      */
     public HeaderAndBody post(byte[] data) throws HttpException;
 
+    /**
+     * Issues a HTTP POST request, streaming the body to the server.
+     * 
+     * @param body the body to post
+     * @return the response
+     * @throws HttpException if the response is not a 200, 201 or 204
+     */
+    public HeaderAndBody post(RequestBody body) throws HttpException;
+
     /**
      * Issues an HTTP request, consumes the content, and cleans up
      * after itself.
@@ -71,6 +80,16 @@ public interface HttpProvider {
      */
     public HeaderAndBody put(String id, byte[] data) throws HttpException;
 
+    /**
+     * Issues a HTTP PUT request, streaming the body to the server.
+     * 
+     * @param id the id of the object to update
+     * @param body the body to put
+     * @return the response
+     * @throws HttpException if the response is not a 200, 201 or 204
+     */
+    public HeaderAndBody put(String id, RequestBody body) throws HttpException;
+
     /**
      * Issues an HTTP request, consumes the content, and cleans up
      * after itself.
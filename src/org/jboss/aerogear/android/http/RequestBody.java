@@ -0,0 +1,48 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A request body written straight to the connection instead of being 
+ * assembled in memory first.
+ */
+public interface RequestBody {
+
+    /**
+     * @return the length of the body in bytes, or -1 if it is not known 
+     * before the body is written
+     */
+    long getContentLength();
+
+    /**
+     * Writes the body.  It is called once per request.
+     *
+     * @param out the stream of the connection
+     * @throws IOException if the body can not be read or sent
+     */
+    void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * @return true if the body can be written again, for another request; 
+     * false if writing it consumes a stream
+     */
+    boolean isReplayable();
+
+}
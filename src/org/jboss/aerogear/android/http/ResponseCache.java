@@ -0,0 +1,46 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.http;
+
+/**
+ * Keeps the last response of a GET along with its validators (ETag and
+ * Last-Modified) so an {@link HttpProvider} can make its next request
+ * conditional and reuse the response when the server answers 304.
+ */
+public interface ResponseCache {
+
+    /**
+     * @param key the key of the request the response answered
+     * @return the cached response or null if there is none
+     */
+    public CachedResponse get(String key);
+
+    /**
+     * Caches a response, replacing any previous response with its key.
+     *
+     * @param response the response to cache
+     */
+    public void put(CachedResponse response);
+
+    /**
+     * Forgets the response of a request.
+     *
+     * @param key the key of the request the response answered
+     */
+    public void remove(String key);
+
+}
@@ -0,0 +1,36 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.http;
+
+import java.io.InputStream;
+
+/**
+ * An {@link HttpProvider} which can hand over the body of a GET as it 
+ * arrives, instead of reading all of it first.
+ */
+public interface StreamingHttpProvider extends HttpProvider {
+
+    /**
+     * Issues an HTTP GET and returns as soon as the headers have arrived.
+     *
+     * @return the body of the response, which must be closed to release the
+     * connection
+     * @throws HttpException if the response is not a 200, 201 or 204
+     */
+    public InputStream getStream() throws HttpException;
+
+}
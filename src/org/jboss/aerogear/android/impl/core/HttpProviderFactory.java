@@ -19,7 +19,9 @@ package org.jboss.aerogear.android.impl.core;
 import java.net.URL;
 
 import org.jboss.aerogear.android.Provider;
+import org.jboss.aerogear.android.http.CompressionConfig;
 import org.jboss.aerogear.android.http.HttpProvider;
+import org.jboss.aerogear.android.http.ResponseCache;
 import org.jboss.aerogear.android.impl.http.HttpRestProvider;
 
 public class HttpProviderFactory implements Provider<HttpProvider> {
@@ -31,8 +33,14 @@ public class HttpProviderFactory implements Provider<HttpProvider> {
             return new HttpRestProvider((URL) in[0]);
         case 2:
             return new HttpRestProvider((URL) in[0], (Integer) in[1]);
+        case 3:
+            return new HttpRestProvider((URL) in[0], (Integer) in[1], (ResponseCache) in[2]);
+        case 4:
+            return new HttpRestProvider((URL) in[0], (Integer) in[1], (ResponseCache) in[2], (Integer) in[3]);
+        case 5:
+            return new HttpRestProvider((URL) in[0], (Integer) in[1], (ResponseCache) in[2], (Integer) in[3], (CompressionConfig) in[4]);
         default:
-            throw new IllegalArgumentException("Wrong number of Arguments.  This method expects a URL or a URL and a Integer");
+            throw new IllegalArgumentException("Wrong number of Arguments.  This method expects a URL, optionally followed by a Integer timeout, a ResponseCache, a Integer connection pool size and a CompressionConfig");
         }
     }
 }
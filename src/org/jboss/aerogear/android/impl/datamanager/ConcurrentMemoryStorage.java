@@ -0,0 +1,204 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.datamanager;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.aerogear.android.ReadFilter;
+import org.jboss.aerogear.android.datamanager.IdGenerator;
+import org.jboss.aerogear.android.datamanager.Store;
+import org.jboss.aerogear.android.datamanager.StoreType;
+import org.jboss.aerogear.android.impl.reflection.Property;
+import org.jboss.aerogear.android.impl.reflection.Scan;
+import org.json.JSONObject;
+
+/**
+ * Memory implementation of Store {@link Store} which may be read and written
+ * from several threads at once without external locking.
+ * 
+ * readAll returns an unmodifiable snapshot of the store.  The snapshot is 
+ * shared by every read until the next write, so reading an unchanged store 
+ * does not copy it.
+ */
+public class ConcurrentMemoryStorage<T> implements Store<T> {
+
+    private final ConcurrentMap<Serializable, T> data = new ConcurrentHashMap<Serializable, T>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReference<Snapshot<T>> snapshot = new AtomicReference<Snapshot<T>>();
+    private final IdGenerator idGenerator;
+
+    public ConcurrentMemoryStorage(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StoreType getType() {
+        return StoreTypes.CONCURRENT_MEMORY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<T> readAll() {
+        return snapshot();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T read(Serializable id) {
+        return data.get(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @throws IllegalArgumentException if filter.query has nested objects
+     */
+    @Override
+    public List<T> readWithFilter(ReadFilter filter) {
+        if (filter == null) {
+            filter = new ReadFilter();
+        }
+        JSONObject where = filter.getWhere();
+        MemoryStorage.scanForNestedObjectsInWhereClause(where);
+
+        List<String> keys = new ArrayList<String>();
+        Iterator iterator = where.keys();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next().toString());
+        }
+
+        List<T> results = MemoryStorage.filterData(new ArrayList<T>(snapshot()), where, keys);
+        return MemoryStorage.pageData(results, filter.getLimit(), filter.getOffset());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(T item) {
+        data.put(getOrGenerateIdValue(item), item);
+        version.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveAll(Collection<T> items) {
+        for (T item : items) {
+            data.put(getOrGenerateIdValue(item), item);
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        data.clear();
+        version.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(Serializable id) {
+        data.remove(id);
+        version.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(Collection<? extends Serializable> ids) {
+        for (Serializable id : ids) {
+            data.remove(id);
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    private Serializable getOrGenerateIdValue(Object item) {
+        Property property = Scan.recordIdPropertyIn(item.getClass());
+
+        Serializable idValue = (Serializable) property.getValue(item);
+
+        if (idValue == null) {
+            idValue = idGenerator.generate();
+            property.setValue(item, idValue);
+        }
+
+        return idValue;
+    }
+
+    /**
+     * Returns the current snapshot, copying the store only if it was written
+     * since the last snapshot was taken.
+     * 
+     * The version is read before copying, so a write which lands during the
+     * copy leaves the new snapshot already out of date and the next read 
+     * copies again.
+     */
+    private Collection<T> snapshot() {
+        Snapshot<T> current = snapshot.get();
+        long currentVersion = version.get();
+        if (current != null && current.version == currentVersion) {
+            return current.items;
+        }
+
+        Snapshot<T> next = new Snapshot<T>(currentVersion, Collections.unmodifiableList(new ArrayList<T>(data.values())));
+        snapshot.compareAndSet(current, next);
+        return next.items;
+    }
+
+    private static class Snapshot<T> {
+
+        private final long version;
+        private final Collection<T> items;
+
+        Snapshot(long version, Collection<T> items) {
+            this.version = version;
+            this.items = items;
+        }
+    }
+}
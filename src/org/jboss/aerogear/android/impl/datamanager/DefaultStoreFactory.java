@@ -22,6 +22,9 @@ import org.jboss.aerogear.android.datamanager.IdGenerator;
 import org.jboss.aerogear.android.datamanager.Store;
 import org.jboss.aerogear.android.datamanager.StoreFactory;
 import org.jboss.aerogear.android.datamanager.StoreType;
+import org.jboss.aerogear.android.impl.serialization.GsonSerializer;
+import org.jboss.aerogear.android.impl.util.GsonRegistry;
+import org.jboss.aerogear.android.serialization.Serializer;
 
 public final class DefaultStoreFactory implements StoreFactory {
 
@@ -34,9 +37,12 @@ public final class DefaultStoreFactory implements StoreFactory {
         GsonBuilder builder = config.getBuilder();
         String passphrase = config.getPassphrase();
         String name = config.getName();
+        SQLStoreLayouts layout = config.getLayout();
+        int batchSize = config.getBatchSize();
+        Serializer serializer = config.getSerializer();
         
         if (type.equals(StoreTypes.MEMORY)) {
-            return new MemoryStorage(idGenerator);
+            return new MemoryStorage(idGenerator, config.getIndexedProperties(), config.getEvictionConfig());
         } else if (StoreTypes.SQL.equals(type)) {
             if (klass == null) {
                 throw new IllegalArgumentException("StoreConfig.klass may not be null");
@@ -54,11 +60,31 @@ public final class DefaultStoreFactory implements StoreFactory {
                 throw new IllegalArgumentException("StoreConfig.name may not be null");
             }
 
-            return new SQLStore(klass, context, builder, idGenerator, name);
+            if (layout == null) {
+                throw new IllegalArgumentException("StoreConfig.layout may not be null");
+            }
+
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("StoreConfig.batchSize must be greater than 0");
+            }
+
+            return new SQLStore(klass, context, builder, idGenerator, name, layout, config.getIndexedProperties(), batchSize);
+        } else if (StoreTypes.CONCURRENT_MEMORY.equals(type)) {
+            return new ConcurrentMemoryStorage(idGenerator);
         } else if (StoreTypes.ENCRYPTED_MEMORY.equals(type)) {
-            return new EncryptedMemoryStore(idGenerator, passphrase, klass);
+            if (serializer == null) {
+                serializer = new GsonSerializer();
+            }
+            return new EncryptedMemoryStore(idGenerator, passphrase, klass, config.getEvictionConfig(), serializer);
         } else if (StoreTypes.ENCRYPTED_SQL.equals(type)) {
-            return new EncryptedSQLStore(klass, context, builder, idGenerator, passphrase, name);
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("StoreConfig.batchSize must be greater than 0");
+            }
+
+            if (serializer == null) {
+                serializer = new GsonSerializer(GsonRegistry.get(builder));
+            }
+            return new EncryptedSQLStore(klass, context, serializer, idGenerator, passphrase, name, batchSize);
         }
         throw new IllegalArgumentException("Type is not supported yet");
     }
@@ -18,17 +18,22 @@ package org.jboss.aerogear.android.impl.datamanager;
 
 import org.jboss.aerogear.AeroGearCrypto;
 import org.jboss.aerogear.android.ReadFilter;
+import org.jboss.aerogear.android.datamanager.EvictionConfig;
+import org.jboss.aerogear.android.datamanager.EvictionListener;
 import org.jboss.aerogear.android.datamanager.IdGenerator;
 import org.jboss.aerogear.android.datamanager.Store;
 import org.jboss.aerogear.android.datamanager.StoreType;
 import org.jboss.aerogear.android.impl.crypto.InvalidKeyException;
+import org.jboss.aerogear.android.impl.serialization.GsonSerializer;
 import org.jboss.aerogear.android.impl.util.CryptoUtils;
+import org.jboss.aerogear.android.serialization.Serializer;
 import org.jboss.aerogear.crypto.Random;
 import org.jboss.aerogear.crypto.keys.PrivateKey;
 import org.jboss.aerogear.crypto.password.Pbkdf2;
 
 import java.io.Serializable;
 import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -38,7 +43,45 @@ public class EncryptedMemoryStore<T> implements Store<T> {
     private final CryptoUtils<T> cryptoUtils;
 
     public EncryptedMemoryStore(IdGenerator idGenerator, String passphrase, Class<T> modelClass) {
-        memoryStorage = new MemoryStorage(idGenerator);
+        this(idGenerator, passphrase, modelClass, null);
+    }
+
+    /**
+     * A bounded store hands decrypted items to the eviction listener.  
+     * Without an ItemSizer it measures items by the size of their 
+     * ciphertext.
+     * 
+     * @param idGenerator the IdGenerator used when an object has no id
+     * @param passphrase the passphrase items are encrypted with
+     * @param modelClass the class of the objects this store holds
+     * @param evictionConfig the limits of the store, null for an unbounded
+     * store
+     */
+    public EncryptedMemoryStore(IdGenerator idGenerator, String passphrase, Class<T> modelClass, EvictionConfig evictionConfig) {
+        this(idGenerator, passphrase, modelClass, evictionConfig, new GsonSerializer());
+    }
+
+    /**
+     * @param idGenerator the IdGenerator used when an object has no id
+     * @param passphrase the passphrase items are encrypted with
+     * @param modelClass the class of the objects this store holds
+     * @param evictionConfig the limits of the store, null for an unbounded
+     * store
+     * @param serializer turns items into the bytes which are encrypted
+     */
+    public EncryptedMemoryStore(IdGenerator idGenerator, String passphrase, Class<T> modelClass, EvictionConfig evictionConfig, Serializer serializer) {
+        EvictionListener<byte[]> decryptingListener = null;
+        if (evictionConfig != null && evictionConfig.getEvictionListener() != null) {
+            final EvictionListener<T> evictionListener = evictionConfig.getEvictionListener();
+            decryptingListener = new EvictionListener<byte[]>() {
+                @Override
+                public void onEvicted(Serializable id, byte[] item) {
+                    evictionListener.onEvicted(id, cryptoUtils.decrypt(item));
+                }
+            };
+        }
+        memoryStorage = new MemoryStorage<byte[]>(idGenerator, new ArrayList<String>(), evictionConfig,
+                                                  new JsonItemSizer(), decryptingListener);
 
         byte[] iv = new Random().randomBytes();
         byte[] salt = new Random().randomBytes();
@@ -51,7 +94,7 @@ public class EncryptedMemoryStore<T> implements Store<T> {
         }
 
         PrivateKey privateKey = new PrivateKey(rawPassword);
-        cryptoUtils = new CryptoUtils<T>(privateKey, iv, modelClass);
+        cryptoUtils = new CryptoUtils<T>(privateKey, iv, modelClass, serializer);
     }
 
     /**
@@ -98,7 +141,17 @@ public class EncryptedMemoryStore<T> implements Store<T> {
     @Override
     public void save(T item) {
         Serializable idValue = memoryStorage.getOrGenerateIdValue(item);
-        memoryStorage.save(idValue, cryptoUtils.encrypt(item));
+        memoryStorage.save(idValue, cryptoUtils.encrypt(item), item);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveAll(Collection<T> items) {
+        for (T item : items) {
+            save(item);
+        }
     }
 
     /**
@@ -117,6 +170,14 @@ public class EncryptedMemoryStore<T> implements Store<T> {
         memoryStorage.remove(id);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(Collection<? extends Serializable> ids) {
+        memoryStorage.removeAll(ids);
+    }
+
     /**
      * {@inheritDoc}
      */
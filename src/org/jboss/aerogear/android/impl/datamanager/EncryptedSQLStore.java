@@ -16,11 +16,11 @@
  */
 package org.jboss.aerogear.android.impl.datamanager;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import com.google.gson.GsonBuilder;
 import org.jboss.aerogear.AeroGearCrypto;
 import org.jboss.aerogear.android.ReadFilter;
@@ -30,7 +30,10 @@ import org.jboss.aerogear.android.datamanager.StoreType;
 import org.jboss.aerogear.android.impl.crypto.InvalidKeyException;
 import org.jboss.aerogear.android.impl.reflection.Property;
 import org.jboss.aerogear.android.impl.reflection.Scan;
+import org.jboss.aerogear.android.impl.serialization.GsonSerializer;
 import org.jboss.aerogear.android.impl.util.CryptoUtils;
+import org.jboss.aerogear.android.impl.util.GsonRegistry;
+import org.jboss.aerogear.android.serialization.Serializer;
 import org.jboss.aerogear.crypto.Random;
 import org.jboss.aerogear.crypto.keys.PrivateKey;
 import org.jboss.aerogear.crypto.password.Pbkdf2;
@@ -39,14 +42,19 @@ import java.io.Serializable;
 import java.security.spec.InvalidKeySpecException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class EncryptedSQLStore<T> extends SQLiteOpenHelper implements Store<T> {
 
     private final Class<T> modelClass;
-    private final GsonBuilder builder;
+    private final Serializer serializer;
     private final IdGenerator idGenerator;
     private final String passphrase;
+    private final int batchSize;
 
     private CryptoUtils<T> cryptoUtils;
 
@@ -59,28 +67,47 @@ public class EncryptedSQLStore<T> extends SQLiteOpenHelper implements Store<T> {
     private final String ID_IV = "IV";
     private final String ID_SALT = "SALT";
 
+    /**
+     * Statements compiled against the writable database, keyed by their SQL.
+     * They are released when the store is closed.
+     */
+    private final Map<String, SQLiteStatement> statements = new HashMap<String, SQLiteStatement>();
+
     public EncryptedSQLStore(Class<T> modelClass, Context context, GsonBuilder builder,
                              IdGenerator idGenerator, String passphrase) {
-
-        super(context, modelClass.getSimpleName(), null, 1);
-
-        this.modelClass = modelClass;
-        this.builder = builder;
-        this.idGenerator = idGenerator;
-        this.passphrase = passphrase;
-
-        this.TABLE_NAME = modelClass.getSimpleName();
+        this(modelClass, context, builder, idGenerator, passphrase, modelClass.getSimpleName());
     }
     
     public EncryptedSQLStore(Class<T> modelClass, Context context, GsonBuilder builder,
                              IdGenerator idGenerator, String passphrase, String tableName) {
+        this(modelClass, context, builder, idGenerator, passphrase, tableName, StoreConfig.DEFAULT_BATCH_SIZE);
+    }
+
+    public EncryptedSQLStore(Class<T> modelClass, Context context, GsonBuilder builder,
+                             IdGenerator idGenerator, String passphrase, String tableName, int batchSize) {
+        this(modelClass, context, new GsonSerializer(GsonRegistry.get(builder)), idGenerator, passphrase, tableName, batchSize);
+    }
+
+    /**
+     * @param modelClass the class of the objects this store holds
+     * @param context an Android context
+     * @param serializer turns objects into the bytes which are encrypted
+     * @param idGenerator the IdGenerator used when an object has no id
+     * @param passphrase the passphrase objects are encrypted with
+     * @param tableName the name of the table
+     * @param batchSize the number of items saveAll and removeAll write in one
+     * transaction
+     */
+    public EncryptedSQLStore(Class<T> modelClass, Context context, Serializer serializer,
+                             IdGenerator idGenerator, String passphrase, String tableName, int batchSize) {
 
         super(context, modelClass.getSimpleName(), null, 1);
 
         this.modelClass = modelClass;
-        this.builder = builder;
+        this.serializer = serializer;
         this.idGenerator = idGenerator;
         this.passphrase = passphrase;
+        this.batchSize = batchSize;
 
         this.TABLE_NAME = tableName;
     }
@@ -155,7 +182,7 @@ public class EncryptedSQLStore<T> extends SQLiteOpenHelper implements Store<T> {
             Pbkdf2 pbkdf2 = AeroGearCrypto.pbkdf2();
             byte[] rawPassword = pbkdf2.encrypt(passphrase, salt);
             PrivateKey privateKey = new PrivateKey(rawPassword);
-            cryptoUtils = new CryptoUtils<T>(privateKey, iv, modelClass, builder);
+            cryptoUtils = new CryptoUtils<T>(privateKey, iv, modelClass, serializer);
         } catch (InvalidKeySpecException e) {
             e.printStackTrace();
         }
@@ -226,20 +253,67 @@ public class EncryptedSQLStore<T> extends SQLiteOpenHelper implements Store<T> {
      */
     @Override
     public void save(T item) {
-        String recordIdFieldName = Scan.recordIdFieldNameIn(item.getClass());
-        Property property = new Property(item.getClass(), recordIdFieldName);
-        Serializable idValue = (Serializable) property.getValue(item);
+        saveAll(Collections.singletonList(item));
+    }
 
-        if (idValue == null) {
-            idValue = idGenerator.generate();
-            property.setValue(item, idValue);
+    /**
+     * Encrypts the items batchSize at a time and writes each batch in its own
+     * transaction, so the database is not locked while encrypting.
+     * 
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveAll(Collection<T> items) {
+        List<T> batch = new ArrayList<T>(Math.min(batchSize, items.size()));
+        for (T item : items) {
+            batch.add(item);
+            if (batch.size() == batchSize) {
+                insert(batch);
+                batch.clear();
+            }
         }
+        if (!batch.isEmpty()) {
+            insert(batch);
+        }
+    }
 
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_ID, idValue.toString());
-        values.put(COLUMN_DATA, cryptoUtils.encrypt(item));
+    private void insert(List<T> batch) {
+        // opening the database creates cryptoUtils
+        SQLiteDatabase database = getWritableDatabase();
 
-        getWritableDatabase().insert(TABLE_NAME, null, values);
+        List<String> ids = new ArrayList<String>(batch.size());
+        List<byte[]> encryptedData = new ArrayList<byte[]>(batch.size());
+        for (T item : batch) {
+            Property property = Scan.recordIdPropertyIn(item.getClass());
+            Serializable idValue = (Serializable) property.getValue(item);
+
+            if (idValue == null) {
+                idValue = idGenerator.generate();
+                property.setValue(item, idValue);
+            }
+            ids.add(idValue.toString());
+            encryptedData.add(cryptoUtils.encrypt(item));
+        }
+
+        SQLiteStatement delete = compiledStatement("DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_ID + " = ?");
+        SQLiteStatement insert = compiledStatement("INSERT INTO " + TABLE_NAME + " ( " + COLUMN_ID + ", " + COLUMN_DATA + " ) VALUES ( ?, ? )");
+        database.beginTransaction();
+        try {
+            synchronized (delete) {
+                synchronized (insert) {
+                    for (int index = 0; index < ids.size(); index++) {
+                        delete.bindString(1, ids.get(index));
+                        delete.execute();
+                        insert.bindString(1, ids.get(index));
+                        insert.bindBlob(2, encryptedData.get(index));
+                        insert.execute();
+                    }
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
     }
 
     /**
@@ -247,8 +321,11 @@ public class EncryptedSQLStore<T> extends SQLiteOpenHelper implements Store<T> {
      */
     @Override
     public void reset() {
-        String sql = String.format("DELETE FROM " + TABLE_NAME);
-        getWritableDatabase().execSQL(sql);
+        String sql = "DELETE FROM " + TABLE_NAME;
+        SQLiteStatement statement = compiledStatement(sql);
+        synchronized (statement) {
+            statement.execute();
+        }
     }
 
     /**
@@ -257,7 +334,38 @@ public class EncryptedSQLStore<T> extends SQLiteOpenHelper implements Store<T> {
     @Override
     public void remove(Serializable id) {
         String sql = "DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_ID + " = ?";
-        getWritableDatabase().execSQL(sql, new Object[] { id });
+        SQLiteStatement statement = compiledStatement(sql);
+        synchronized (statement) {
+            statement.bindString(1, id.toString());
+            statement.execute();
+        }
+    }
+
+    /**
+     * Removes the items batchSize at a time, each batch in its own transaction.
+     * 
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(Collection<? extends Serializable> ids) {
+        String sql = "DELETE FROM " + TABLE_NAME + " WHERE " + COLUMN_ID + " = ?";
+        SQLiteStatement statement = compiledStatement(sql);
+        SQLiteDatabase database = getWritableDatabase();
+        Iterator<? extends Serializable> iterator = ids.iterator();
+        while (iterator.hasNext()) {
+            database.beginTransaction();
+            try {
+                synchronized (statement) {
+                    for (int count = 0; count < batchSize && iterator.hasNext(); count++) {
+                        statement.bindString(1, iterator.next().toString());
+                        statement.execute();
+                    }
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        }
     }
 
     /**
@@ -266,11 +374,39 @@ public class EncryptedSQLStore<T> extends SQLiteOpenHelper implements Store<T> {
     @Override
     public boolean isEmpty() {
         String sql = "SELECT COUNT(" + COLUMN_ID + ") FROM " + TABLE_NAME;
-        Cursor cursor = getReadableDatabase().rawQuery(sql, null);
-        cursor.moveToFirst();
-        boolean result = (cursor.getInt(0) == 0);
-        cursor.close();
-        return result;
+        SQLiteStatement statement = compiledStatement(sql);
+        synchronized (statement) {
+            return statement.simpleQueryForLong() == 0;
+        }
+    }
+
+    /**
+     * Releases the compiled statements of this store and closes the database.
+     */
+    @Override
+    public synchronized void close() {
+        synchronized (statements) {
+            for (SQLiteStatement statement : statements.values()) {
+                statement.close();
+            }
+            statements.clear();
+        }
+        super.close();
+    }
+
+    /**
+     * Returns the statement for sql, compiling it against the writable
+     * database the first time it is asked for.
+     */
+    private SQLiteStatement compiledStatement(String sql) {
+        synchronized (statements) {
+            SQLiteStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = getWritableDatabase().compileStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
     }
 
 }
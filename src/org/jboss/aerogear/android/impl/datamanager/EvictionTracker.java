@@ -0,0 +1,216 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.datamanager;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.jboss.aerogear.android.datamanager.EvictionConfig;
+import org.jboss.aerogear.android.datamanager.ItemSizer;
+import org.jboss.aerogear.android.datamanager.ItemTimeToLive;
+
+/**
+ * Keeps track of the ids in a bounded memory store: how recently or how
+ * often they were used, when they expire and how big their items are.  It
+ * only chooses what to evict, the store does the removing.
+ */
+class EvictionTracker {
+
+    private final EvictionConfig config;
+    private final ItemSizer sizer;
+    private final ItemSizer defaultSizer;
+    private final ItemTimeToLive itemTimeToLive;
+    private final boolean sized;
+
+    /**
+     * Least recently used first, only kept for LRU
+     */
+    private final LinkedHashMap<Serializable, Boolean> recency = new LinkedHashMap<Serializable, Boolean>(16, 0.75f, true);
+    /**
+     * Ids by use count, least recently used first within a count, only kept 
+     * for LFU
+     */
+    private final TreeMap<Integer, LinkedHashSet<Serializable>> byFrequency = new TreeMap<Integer, LinkedHashSet<Serializable>>();
+    private final Map<Serializable, Integer> frequencies = new HashMap<Serializable, Integer>();
+    /**
+     * Ids by expiry time, in the order they were saved within a time
+     */
+    private final TreeMap<Long, LinkedHashSet<Serializable>> byExpiry = new TreeMap<Long, LinkedHashSet<Serializable>>();
+    private final Map<Serializable, Long> expiries = new HashMap<Serializable, Long>();
+    private final Map<Serializable, Long> sizes = new HashMap<Serializable, Long>();
+    private long totalBytes = 0;
+
+    /**
+     * @param config the limits of the store
+     * @param defaultSizer measures the items as the store keeps them when 
+     * the config has no ItemSizer
+     */
+    EvictionTracker(EvictionConfig config, ItemSizer defaultSizer) {
+        this.config = config;
+        this.sizer = config.getItemSizer();
+        this.defaultSizer = defaultSizer;
+        this.itemTimeToLive = config.getItemTimeToLive();
+        this.sized = config.getMaxBytes() != Long.MAX_VALUE;
+    }
+
+    /**
+     * @param id the id of the saved item
+     * @param stored the item as the store keeps it
+     * @param item the item as it was saved, which the ItemSizer and the 
+     * ItemTimeToLive of the config are asked about
+     */
+    void written(Serializable id, Object stored, Object item) {
+        if (sized) {
+            long size = (sizer == null) ? defaultSizer.sizeOf(stored) : sizer.sizeOf(item);
+            Long previous = sizes.put(id, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+        }
+
+        long timeToLive = (itemTimeToLive == null) ? config.getTimeToLive() : itemTimeToLive.timeToLiveOf(item);
+        removeExpiry(id);
+        if (timeToLive > 0) {
+            long expiry = System.currentTimeMillis() + timeToLive;
+            expiries.put(id, expiry);
+            LinkedHashSet<Serializable> bucket = byExpiry.get(expiry);
+            if (bucket == null) {
+                bucket = new LinkedHashSet<Serializable>();
+                byExpiry.put(expiry, bucket);
+            }
+            bucket.add(id);
+        }
+
+        used(id);
+    }
+
+    void used(Serializable id) {
+        if (EvictionConfig.Policies.LFU.equals(config.getPolicy())) {
+            Integer frequency = frequencies.get(id);
+            if (frequency != null) {
+                removeFromBucket(frequency, id);
+            }
+            frequency = (frequency == null) ? 1 : frequency + 1;
+            frequencies.put(id, frequency);
+
+            LinkedHashSet<Serializable> bucket = byFrequency.get(frequency);
+            if (bucket == null) {
+                bucket = new LinkedHashSet<Serializable>();
+                byFrequency.put(frequency, bucket);
+            }
+            bucket.add(id);
+        } else {
+            recency.put(id, Boolean.TRUE);
+        }
+    }
+
+    void removed(Serializable id) {
+        Long size = sizes.remove(id);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        removeExpiry(id);
+        recency.remove(id);
+        Integer frequency = frequencies.remove(id);
+        if (frequency != null) {
+            removeFromBucket(frequency, id);
+        }
+    }
+
+    void clear() {
+        sizes.clear();
+        totalBytes = 0;
+        expiries.clear();
+        byExpiry.clear();
+        recency.clear();
+        frequencies.clear();
+        byFrequency.clear();
+    }
+
+    /**
+     * @return the ids whose time to live has run out, oldest first
+     */
+    List<Serializable> expired() {
+        List<Serializable> expired = new ArrayList<Serializable>();
+        for (LinkedHashSet<Serializable> bucket : byExpiry.headMap(System.currentTimeMillis(), true).values()) {
+            expired.addAll(bucket);
+        }
+        return expired;
+    }
+
+    /**
+     * @param entries the number of items in the store
+     * @param written the id which was just saved, which is only chosen once 
+     * nothing else is left, otherwise a new item would always be the least 
+     * frequently used one
+     * @return the id to evict next, or null if the store is within its limits
+     */
+    Serializable victim(int entries, Serializable written) {
+        if (entries <= config.getMaxEntries() && totalBytes <= config.getMaxBytes()) {
+            return null;
+        }
+
+        Iterator<Serializable> ids;
+        if (EvictionConfig.Policies.LFU.equals(config.getPolicy())) {
+            List<Serializable> byUse = new ArrayList<Serializable>(2);
+            for (LinkedHashSet<Serializable> bucket : byFrequency.values()) {
+                for (Serializable id : bucket) {
+                    byUse.add(id);
+                    if (byUse.size() == 2) {
+                        break;
+                    }
+                }
+                if (byUse.size() == 2) {
+                    break;
+                }
+            }
+            ids = byUse.iterator();
+        } else {
+            ids = recency.keySet().iterator();
+        }
+
+        Serializable victim = ids.hasNext() ? ids.next() : null;
+        if (victim != null && victim.equals(written) && ids.hasNext()) {
+            victim = ids.next();
+        }
+        return victim;
+    }
+
+    private void removeExpiry(Serializable id) {
+        Long expiry = expiries.remove(id);
+        if (expiry != null) {
+            LinkedHashSet<Serializable> bucket = byExpiry.get(expiry);
+            bucket.remove(id);
+            if (bucket.isEmpty()) {
+                byExpiry.remove(expiry);
+            }
+        }
+    }
+
+    private void removeFromBucket(Integer frequency, Serializable id) {
+        LinkedHashSet<Serializable> bucket = byFrequency.get(frequency);
+        bucket.remove(id);
+        if (bucket.isEmpty()) {
+            byFrequency.remove(frequency);
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.datamanager;
+
+import com.google.gson.Gson;
+import org.jboss.aerogear.android.datamanager.ItemSizer;
+import org.jboss.aerogear.android.impl.util.GsonRegistry;
+
+/**
+ * Sizes an item as two bytes per character of its JSON form.  Byte arrays,
+ * such as the ciphertexts of encrypted stores, are sized by their length.
+ */
+class JsonItemSizer implements ItemSizer<Object> {
+
+    private final Gson gson = GsonRegistry.getDefault();
+
+    @Override
+    public long sizeOf(Object item) {
+        if (item instanceof byte[]) {
+            return ((byte[]) item).length;
+        } else if (item instanceof String) {
+            return ((String) item).length() * 2;
+        }
+        return gson.toJson(item).length() * 2;
+    }
+
+}
@@ -19,13 +19,19 @@ package org.jboss.aerogear.android.impl.datamanager;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.jboss.aerogear.android.ReadFilter;
+import org.jboss.aerogear.android.datamanager.EvictionConfig;
+import org.jboss.aerogear.android.datamanager.EvictionListener;
 import org.jboss.aerogear.android.datamanager.IdGenerator;
+import org.jboss.aerogear.android.datamanager.ItemSizer;
 import org.jboss.aerogear.android.datamanager.Store;
 import org.jboss.aerogear.android.datamanager.StoreType;
 import org.jboss.aerogear.android.impl.reflection.Property;
@@ -34,14 +40,55 @@ import org.json.JSONObject;
 
 /**
  * Memory implementation of Store {@link Store}.
+ * 
+ * Properties named as indexed are looked up through an index by
+ * readWithFilter instead of being compared on every item.  An item whose
+ * indexed property changes must be saved again to be found by its new value.
+ * 
+ * Given an {@link EvictionConfig} the store is bounded: items are evicted 
+ * once it holds too many or too big items, and expire after their time to 
+ * live.
  */
 public class MemoryStorage<T> implements Store<T> {
 
     private final Map<Serializable, T> data = new HashMap<Serializable, T>();
+    private final Map<String, Index> indexes = new HashMap<String, Index>();
     private final IdGenerator idGenerator;
+    private final EvictionTracker tracker;
+    private final EvictionListener<T> evictionListener;
 
     public MemoryStorage(IdGenerator idGenerator) {
+        this(idGenerator, new ArrayList<String>());
+    }
+
+    public MemoryStorage(IdGenerator idGenerator, List<String> indexedProperties) {
+        this(idGenerator, indexedProperties, null);
+    }
+
+    /**
+     * @param idGenerator the IdGenerator used when an object has no id
+     * @param indexedProperties the properties readWithFilter should look up
+     * through an index
+     * @param evictionConfig the limits of the store, null for an unbounded
+     * store
+     */
+    public MemoryStorage(IdGenerator idGenerator, List<String> indexedProperties, EvictionConfig evictionConfig) {
+        this(idGenerator, indexedProperties, evictionConfig, new JsonItemSizer(),
+             evictionConfig == null ? null : evictionConfig.getEvictionListener());
+    }
+
+    /**
+     * @param defaultSizer measures the items as this store keeps them when 
+     * the evictionConfig has no ItemSizer
+     */
+    MemoryStorage(IdGenerator idGenerator, List<String> indexedProperties, EvictionConfig evictionConfig,
+                  ItemSizer defaultSizer, EvictionListener<T> evictionListener) {
         this.idGenerator = idGenerator;
+        this.tracker = evictionConfig == null ? null : new EvictionTracker(evictionConfig, defaultSizer);
+        this.evictionListener = evictionListener;
+        for (String propertyName : indexedProperties) {
+            indexes.put(propertyName, new Index(propertyName));
+        }
     }
 
     /**
@@ -57,6 +104,7 @@ public class MemoryStorage<T> implements Store<T> {
      */
     @Override
     public Collection<T> readAll() {
+        evictExpired();
         return data.values();
     }
 
@@ -65,6 +113,10 @@ public class MemoryStorage<T> implements Store<T> {
      */
     @Override
     public T read(Serializable id) {
+        evictExpired();
+        if (tracker != null && data.containsKey(id)) {
+            tracker.used(id);
+        }
         return data.get(id);
     }
 
@@ -77,14 +129,41 @@ public class MemoryStorage<T> implements Store<T> {
         save(idValue, item);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveAll(Collection<T> items) {
+        for (T item : items) {
+            save(item);
+        }
+    }
+
     void save(Serializable id, T item) {
+        save(id, item, item);
+    }
+
+    /**
+     * @param original the item as it was saved, when this store keeps it in
+     * another form such as a ciphertext
+     */
+    void save(Serializable id, T item, Object original) {
         data.put(id, item);
+        for (Index index : indexes.values()) {
+            index.add(id, item);
+        }
+
+        if (tracker != null) {
+            tracker.written(id, item, original);
+            Serializable victim;
+            while ((victim = tracker.victim(data.size(), id)) != null) {
+                evict(victim);
+            }
+        }
     }
 
     Serializable getOrGenerateIdValue(Object data) {
-        String recordIdFieldName = Scan.recordIdFieldNameIn(data.getClass());
-
-        Property property = new Property(data.getClass(), recordIdFieldName);
+        Property property = Scan.recordIdPropertyIn(data.getClass());
 
         Serializable idValue = (Serializable) property.getValue(data);
 
@@ -102,6 +181,12 @@ public class MemoryStorage<T> implements Store<T> {
     @Override
     public void reset() {
         data.clear();
+        for (Index index : indexes.values()) {
+            index.clear();
+        }
+        if (tracker != null) {
+            tracker.clear();
+        }
     }
 
     /**
@@ -110,6 +195,22 @@ public class MemoryStorage<T> implements Store<T> {
     @Override
     public void remove(Serializable id) {
         data.remove(id);
+        for (Index index : indexes.values()) {
+            index.remove(id);
+        }
+        if (tracker != null) {
+            tracker.removed(id);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(Collection<? extends Serializable> ids) {
+        for (Serializable id : ids) {
+            remove(id);
+        }
     }
 
     /**
@@ -117,9 +218,26 @@ public class MemoryStorage<T> implements Store<T> {
      */
     @Override
     public boolean isEmpty() {
+        evictExpired();
         return data.isEmpty();
     }
 
+    private void evictExpired() {
+        if (tracker != null) {
+            for (Serializable id : tracker.expired()) {
+                evict(id);
+            }
+        }
+    }
+
+    private void evict(Serializable id) {
+        T item = data.get(id);
+        remove(id);
+        if (evictionListener != null) {
+            evictionListener.onEvicted(id, item);
+        }
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -132,14 +250,39 @@ public class MemoryStorage<T> implements Store<T> {
         }
         JSONObject where = filter.getWhere();
         scanForNestedObjectsInWhereClause(where);
-        List<T> results = new ArrayList<T>(data.values());
+        evictExpired();
+
+        List<String> unindexed = new ArrayList<String>();
+        Set<Serializable> ids = null;
+        Iterator keys = where.keys();
+        while (keys.hasNext()) {
+            String key = keys.next().toString();
+            Index index = indexes.get(key);
+            if (index == null) {
+                unindexed.add(key);
+            } else if (ids == null) {
+                ids = index.lookup(where.opt(key));
+            } else {
+                ids = intersect(ids, index.lookup(where.opt(key)));
+            }
+        }
 
-        filterData(results, where);
+        List<T> results;
+        if (ids == null) {
+            results = new ArrayList<T>(data.values());
+        } else {
+            results = new ArrayList<T>(ids.size());
+            for (Serializable id : ids) {
+                results.add(data.get(id));
+            }
+        }
+
+        results = filterData(results, where, unindexed);
         results = pageData(results, filter.getLimit(), filter.getOffset());
         return results;
     }
 
-    private void scanForNestedObjectsInWhereClause(JSONObject where) {
+    static void scanForNestedObjectsInWhereClause(JSONObject where) {
         String key;
         Object value;
         Iterator keys = where.keys();
@@ -152,29 +295,114 @@ public class MemoryStorage<T> implements Store<T> {
         }
     }
 
-    private void filterData(Collection<T> data, JSONObject where) {
-        String filterPropertyName;
-        Object filterValue;
-        Iterator keys = where.keys();
-        while (keys.hasNext()) {
-            ArrayList toRemove = new ArrayList(data.size()); // We will not remove more items than are in data
-            filterPropertyName = keys.next().toString();
-            filterValue = where.opt(filterPropertyName);
-
-            for (T objectInStorage : data) {
-                Property objectProperty = new Property(objectInStorage.getClass(), filterPropertyName);
-                Object propertyValue = objectProperty.getValue(objectInStorage);
-                if (propertyValue != null && filterValue != null) {
-                    if (!propertyValue.equals(filterValue)) {
-                        toRemove.add(objectInStorage);
-                    }
+    private static Set<Serializable> intersect(Set<Serializable> first, Set<Serializable> second) {
+        Set<Serializable> smaller = first.size() < second.size() ? first : second;
+        Set<Serializable> larger = (smaller == first) ? second : first;
+        Set<Serializable> intersection = new LinkedHashSet<Serializable>();
+        for (Serializable id : smaller) {
+            if (larger.contains(id)) {
+                intersection.add(id);
+            }
+        }
+        return intersection;
+    }
+
+    /**
+     * Keeps the items which match every one of the given keys in a single
+     * pass.  As before, an item with a null value matches any filter value.
+     */
+    static <T> List<T> filterData(List<T> data, JSONObject where, List<String> filterPropertyNames) {
+        if (filterPropertyNames.isEmpty()) {
+            return data;
+        }
+
+        List<T> results = new ArrayList<T>(data.size());
+
+        for (T objectInStorage : data) {
+            boolean matches = true;
+            for (String filterPropertyName : filterPropertyNames) {
+                Object filterValue = where.opt(filterPropertyName);
+                Property property = Property.of(objectInStorage.getClass(), filterPropertyName);
+                Object propertyValue = property.getValue(objectInStorage);
+                if (propertyValue != null && filterValue != null && !propertyValue.equals(filterValue)) {
+                    matches = false;
+                    break;
                 }
             }
-            data.removeAll(toRemove);
+            if (matches) {
+                results.add(objectInStorage);
+            }
         }
+        return results;
     }
 
-    private List<T> pageData(List<T> results, Integer limit, Integer offset) {
+    static <T> List<T> pageData(List<T> results, Integer limit, Integer offset) {
         return results.subList(offset, Math.min(offset + limit, results.size()));
     }
+
+    /**
+     * Maps the values of one property to the ids of the items holding them.
+     */
+    private static class Index {
+
+        private static final Object NULL = new Object();
+
+        private final String propertyName;
+        private final Map<Object, Set<Serializable>> postings = new HashMap<Object, Set<Serializable>>();
+        private final Map<Serializable, Object> values = new HashMap<Serializable, Object>();
+
+        Index(String propertyName) {
+            this.propertyName = propertyName;
+        }
+
+        void add(Serializable id, Object item) {
+            remove(id);
+            Object value = valueOf(item);
+            values.put(id, value);
+            Set<Serializable> ids = postings.get(value);
+            if (ids == null) {
+                ids = new LinkedHashSet<Serializable>();
+                postings.put(value, ids);
+            }
+            ids.add(id);
+        }
+
+        void remove(Serializable id) {
+            Object value = values.remove(id);
+            Set<Serializable> ids = postings.get(value);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(value);
+                }
+            }
+        }
+
+        /**
+         * @return the ids of the items whose value equals filterValue, along
+         * with those which have no value, the same as a scan would match
+         */
+        Set<Serializable> lookup(Object filterValue) {
+            Set<Serializable> matches = postings.get(filterValue);
+            Set<Serializable> nulls = postings.get(NULL);
+            if (nulls == null) {
+                return matches == null ? Collections.<Serializable>emptySet() : matches;
+            }
+            Set<Serializable> ids = new LinkedHashSet<Serializable>(nulls);
+            if (matches != null) {
+                ids.addAll(matches);
+            }
+            return ids;
+        }
+
+        void clear() {
+            postings.clear();
+            values.clear();
+        }
+
+        private Object valueOf(Object item) {
+            Object value = Property.of(item.getClass(), propertyName).getValue(item);
+            return value == null ? NULL : value;
+        }
+    }
 }
@@ -19,12 +19,14 @@ package org.jboss.aerogear.android.impl.datamanager;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.aerogear.android.Callback;
 import org.jboss.aerogear.android.ReadFilter;
@@ -33,11 +35,13 @@ import org.jboss.aerogear.android.datamanager.Store;
 import org.jboss.aerogear.android.datamanager.StoreType;
 import org.jboss.aerogear.android.impl.reflection.Property;
 import org.jboss.aerogear.android.impl.reflection.Scan;
+import org.jboss.aerogear.android.impl.util.GsonRegistry;
 
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.os.AsyncTask;
 import android.util.Log;
 import android.util.Pair;
@@ -66,35 +70,92 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
             + " ON %s_property (PROPERTY_NAME, PROPERTY_VALUE) ;"
             + "create index  if not exists %s_property_parent_index "
             + " ON %s_property (PARENT_ID);";
+    private final static String FILTER_PROPERTIES = "select PROPERTY_NAME, PROPERTY_VALUE, PARENT_ID from %s_property "
+            + " where PARENT_ID in (select PARENT_ID from %s_property%s order by min(_ID) limit ? offset ?) "
+            + " order by _ID";
+    private final static String CREATE_DOCUMENTS_TABLE = "create table if not exists %s_document "
+            + " ( ID text primary key,"
+            + "  DOCUMENT text not null )";
+    private final static String CREATE_DOCUMENTS_INDEX = "create index if not exists %s_document_%s_index "
+            + " ON %s_document (%s)";
     private SQLiteDatabase database;
     private final Gson gson;
     private final IdGenerator generator;
-    
+    private final SQLStoreLayouts layout;
+    private final List<String> indexedProperties;
+    private final int batchSize;
+    /**
+     * Statements compiled against the open database, keyed by their SQL.
+     * They are released when the store is closed.
+     */
+    private final Map<String, SQLiteStatement> statements = new HashMap<String, SQLiteStatement>();
+    private final String readAllPropertiesSql;
+    private final String readPropertiesSql;
+    private final String insertPropertySql;
+    private final String readAllDocumentsSql;
+    private final String readDocumentSql;
+    private final String insertDocumentSql;
+    private final String removeSql;
+    private final String resetSql;
+    private final String countSql;
 
     public SQLStore(Class<T> klass, Context context) {
-        super(context, klass.getSimpleName(), null, 1);
-        this.klass = klass;
-        this.className = klass.getSimpleName();
-        this.gson = new Gson();
-        this.generator = new DefaultIdGenerator();
+        this(klass, context, new GsonBuilder(), new DefaultIdGenerator());
     }
 
     public SQLStore(Class<T> klass, Context context, GsonBuilder builder, IdGenerator generator) {
-        super(context, klass.getSimpleName(), null, 1);
-        this.klass = klass;
-        this.className = klass.getSimpleName();
-        this.gson = builder.create();
-        this.generator = generator;
+        this(klass, context, builder, generator, klass.getSimpleName());
     }
 
     public SQLStore(Class<T> klass, Context context, GsonBuilder builder, IdGenerator generator, String databaseName) {
-        super(context, databaseName, null, 1);
+        this(klass, context, builder, generator, databaseName, SQLStoreLayouts.PROPERTY, new ArrayList<String>());
+    }
+
+    public SQLStore(Class<T> klass, Context context, GsonBuilder builder, IdGenerator generator, String databaseName, SQLStoreLayouts layout, List<String> indexedProperties) {
+        this(klass, context, builder, generator, databaseName, layout, indexedProperties, StoreConfig.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 
+     * @param klass the class of the objects this store holds
+     * @param context an Android context
+     * @param builder the GsonBuilder used to serialize objects
+     * @param generator the IdGenerator used when an object has no id
+     * @param databaseName the name of the database and prefix of its tables
+     * @param layout the way objects are laid out in the database
+     * @param indexedProperties the (dotted) property names which get their own 
+     * column in the DOCUMENT layout.  Ignored by the PROPERTY layout.
+     * @param batchSize the number of items saveAll and removeAll write in one
+     * transaction
+     */
+    public SQLStore(Class<T> klass, Context context, GsonBuilder builder, IdGenerator generator, String databaseName, SQLStoreLayouts layout, List<String> indexedProperties, int batchSize) {
+        super(context, databaseName, null, layout.getDatabaseVersion());
         this.klass = klass;
         this.className = databaseName;
-        this.gson = builder.create();
+        this.gson = GsonRegistry.get(builder);
         this.generator = generator;
+        this.layout = layout;
+        this.indexedProperties = new ArrayList<String>(indexedProperties);
+        this.batchSize = batchSize;
+
+        this.readAllPropertiesSql = String.format("Select PROPERTY_NAME, PROPERTY_VALUE,PARENT_ID from %s_property order by _ID", className);
+        this.readPropertiesSql = String.format("Select PROPERTY_NAME, PROPERTY_VALUE from %s_property where PARENT_ID = ?", className);
+        this.insertPropertySql = String.format("insert into %s_property (PROPERTY_NAME, PROPERTY_VALUE, PARENT_ID) values (?,?,?)", className);
+        this.readAllDocumentsSql = String.format("Select DOCUMENT from %s_document", className);
+        this.readDocumentSql = String.format("Select DOCUMENT from %s_document where ID = ?", className);
+        this.insertDocumentSql = buildInsertDocumentSql();
+
+        if (SQLStoreLayouts.DOCUMENT.equals(layout)) {
+            this.removeSql = String.format("Delete from %s_document where ID = ?", className);
+            this.resetSql = String.format("Delete from %s_document", className);
+            this.countSql = String.format("Select count(*) from %s_document", className);
+        } else {
+            this.removeSql = String.format("Delete from %s_property where PARENT_ID = ?", className);
+            this.resetSql = String.format("Delete from %s_property", className);
+            this.countSql = String.format("Select count(*) from %s_property", className);
+        }
     }
-    
+
     /**
      * {@inheritDoc }
      */
@@ -108,29 +169,12 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
      */
     @Override
     public Collection<T> readAll() {
-        String sql = String.format("Select PROPERTY_NAME, PROPERTY_VALUE,PARENT_ID from %s_property", className);
-        Cursor cursor = database.rawQuery(sql, new String[0]);
-        HashMap<Integer, JsonObject> objects = new HashMap<Integer, JsonObject>(cursor.getCount());
-        try {
-            while (cursor.moveToNext()) {
-                Integer id = cursor.getInt(2);
-                JsonObject object = objects.get(id);
-                if (object == null) {
-                    object = new JsonObject();
-                    objects.put(id, object);
-                }
-                add(object, cursor.getString(0), cursor.getString(1));
-            }
-        } finally {
-            cursor.close();
-        }
-        ArrayList<T> data = new ArrayList<T>(cursor.getCount());
-        for (JsonObject object : objects.values()) {
-            data.add(gson.fromJson(object, klass));
+        if (SQLStoreLayouts.DOCUMENT.equals(layout)) {
+            return readAllDocuments();
         }
 
-        return data;
-
+        Cursor cursor = database.rawQuery(readAllPropertiesSql, new String[0]);
+        return hydrate(cursor);
     }
 
     /**
@@ -138,11 +182,14 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
      */
     @Override
     public T read(Serializable id) {
-        String sql = String.format("Select PROPERTY_NAME, PROPERTY_VALUE from %s_property where PARENT_ID = ?", className);
+        if (SQLStoreLayouts.DOCUMENT.equals(layout)) {
+            return readDocument(id);
+        }
+
         String[] bindArgs = new String[1];
         bindArgs[0] = id.toString();
         JsonObject result = new JsonObject();
-        Cursor cursor = database.rawQuery(sql, bindArgs);
+        Cursor cursor = database.rawQuery(readPropertiesSql, bindArgs);
 
         if (cursor.getCount() == 0) {
             return null;
@@ -168,39 +215,79 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
         if (filter == null) {
             filter = new ReadFilter();
         }
-        String sql = String.format("select PARENT_ID from %s_property where PROPERTY_NAME = ? and PROPERTY_VALUE = ?", className);
+        if (SQLStoreLayouts.DOCUMENT.equals(layout)) {
+            return readDocumentsWithFilter(filter);
+        }
+
         JsonObject where = (JsonObject) new JsonParser().parse(filter.getWhere().toString());
         List<Pair<String, String>> queryList = new ArrayList<Pair<String, String>>();
-        Map<String, AtomicInteger> resultCount = new HashMap<String, AtomicInteger>();
         buildKeyValuePairs(where, queryList, "");
 
-        if (queryList.isEmpty()) {//there is no query
-            return new ArrayList<T>(readAll());
+        /*
+         * The inner select keeps the PARENT_IDs which match every pair and 
+         * pages them, the outer select fetches their properties in one pass.
+         */
+        StringBuilder matches = new StringBuilder();
+        List<String> bindArgs = new ArrayList<String>(queryList.size() * 2 + 2);
+        String or = " where ";
+        for (Pair<String, String> kv : queryList) {
+            matches.append(or).append("(PROPERTY_NAME = ? and PROPERTY_VALUE = ?)");
+            bindArgs.add(kv.first);
+            bindArgs.add(kv.second);
+            or = " or ";
+        }
+        if (!queryList.isEmpty()) {
+            matches.append(" group by PARENT_ID having count(distinct PROPERTY_NAME) = ").append(queryList.size());
         } else {
-            for (Pair<String, String> kv : queryList) {
-                String[] bindArgs = new String[] { kv.first, kv.second };
-                Cursor cursor = database.rawQuery(sql, bindArgs);
-                while (cursor.moveToNext()) {
-                    String id = cursor.getString(0);
-                    AtomicInteger count = resultCount.get(id);
-                    if (count == null) {
-                        count = new AtomicInteger(0);
-                        resultCount.put(id, count);
-                    }
-                    count.incrementAndGet();
+            matches.append(" group by PARENT_ID");
+        }
+        bindArgs.add(limitOf(filter));
+        bindArgs.add(offsetOf(filter));
+
+        String sql = String.format(FILTER_PROPERTIES, className, className, matches);
+        Cursor cursor = database.rawQuery(sql, bindArgs.toArray(new String[bindArgs.size()]));
+        return hydrate(cursor);
+    }
+
+    /**
+     * Rebuilds the objects from a cursor of PROPERTY_NAME, PROPERTY_VALUE, 
+     * PARENT_ID rows, keeping the order in which their ids first appear.  
+     * Closes the cursor.
+     */
+    private List<T> hydrate(Cursor cursor) {
+        Map<String, JsonObject> objects = new LinkedHashMap<String, JsonObject>();
+        try {
+            while (cursor.moveToNext()) {
+                String id = cursor.getString(2);
+                JsonObject object = objects.get(id);
+                if (object == null) {
+                    object = new JsonObject();
+                    objects.put(id, object);
                 }
-                cursor.close();
+                add(object, cursor.getString(0), cursor.getString(1));
             }
+        } finally {
+            cursor.close();
         }
-        List<T> results = new ArrayList<T>();
 
-        for (String id : resultCount.keySet()) {
-            if (resultCount.get(id).get() == queryList.size()) {//There are as many objects as queries which meant a result was returned for every query
-                results.add(read(id));
-            }
+        List<T> data = new ArrayList<T>(objects.size());
+        for (JsonObject object : objects.values()) {
+            data.add(gson.fromJson(object, klass));
         }
+        return data;
+    }
 
-        return results;
+    /**
+     * @return the filter's limit as a SQL limit, where -1 means no limit
+     */
+    private static String limitOf(ReadFilter filter) {
+        Integer limit = filter.getLimit();
+        return (limit == null || limit == Integer.MAX_VALUE) ? "-1" : limit.toString();
+    }
+
+    private static String offsetOf(ReadFilter filter) {
+        Integer offset = filter.getOffset();
+        return (offset == null) ? "0" : offset.toString();
     }
 
     /**
@@ -208,8 +295,32 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
      */
     @Override
     public void save(T item) {
-        String recordIdFieldName = Scan.recordIdFieldNameIn(item.getClass());
-        Property property = new Property(item.getClass(), recordIdFieldName);
+        saveAll(Collections.singletonList(item));
+    }
+
+    /**
+     * Saves the items batchSize at a time, each batch in its own transaction.
+     * 
+     * {@inheritDoc }
+     */
+    @Override
+    public void saveAll(Collection<T> items) {
+        Iterator<T> iterator = items.iterator();
+        while (iterator.hasNext()) {
+            database.beginTransaction();
+            try {
+                for (int count = 0; count < batchSize && iterator.hasNext(); count++) {
+                    saveItem(iterator.next());
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        }
+    }
+
+    private void saveItem(T item) {
+        Property property = Scan.recordIdPropertyIn(item.getClass());
         Serializable idValue = (Serializable) property.getValue(item);
 
         if (idValue == null) {
@@ -218,18 +329,19 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
         }
 
         JsonObject serialized = (JsonObject) gson.toJsonTree(item, klass);
-        database.beginTransaction();
-        try {
-            saveElement(serialized, "", idValue);
-            database.setTransactionSuccessful();
-        } finally {
-            database.endTransaction();
+
+        if (SQLStoreLayouts.DOCUMENT.equals(layout)) {
+            execute(insertDocumentSql, documentBindArgs(serialized, idValue));
+            return;
         }
-    }
 
-    private void saveElement(JsonElement serialized, String path, Serializable id) {
-        String sql = String.format("insert into %s_property (PROPERTY_NAME, PROPERTY_VALUE, PARENT_ID) values (?,?,?)", className);
+        SQLiteStatement insertStatement = compiledStatement(insertPropertySql);
+        synchronized (insertStatement) {
+            saveElement(insertStatement, serialized, "", idValue);
+        }
+    }
 
+    private void saveElement(SQLiteStatement insertStatement, JsonElement serialized, String path, Serializable id) {
         if (serialized.isJsonObject()) {
             Set<Entry<String, JsonElement>> members = ((JsonObject) serialized).entrySet();
             String pathVar = path.isEmpty() ? "" : ".";
@@ -241,23 +353,17 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
                 if (jsonValue.isJsonArray()) {
                     JsonArray jsonArray = jsonValue.getAsJsonArray();
                     for (int index = 0; index < jsonArray.size(); index++) {
-                        saveElement(jsonArray.get(index), path + pathVar + propertyName + String.format("[%d]", index), id);
+                        saveElement(insertStatement, jsonArray.get(index), path + pathVar + propertyName + String.format("[%d]", index), id);
                     }
                 } else {
-                    saveElement(jsonValue, path + pathVar + propertyName, id);
+                    saveElement(insertStatement, jsonValue, path + pathVar + propertyName, id);
                 }
             }
         } else if (serialized.isJsonPrimitive()) {
             JsonPrimitive primitive = serialized.getAsJsonPrimitive();
-            if (primitive.isBoolean()) {
-                String value = primitive.getAsBoolean() ? "true" : "false";
-                database.execSQL(sql, new Object[] { path, value, id });
-            } else if (primitive.isNumber()) {
-                Number value = primitive.getAsNumber();
-                database.execSQL(sql, new Object[] { path, value, id });
-            } else if (primitive.isString()) {
-                String value = primitive.getAsString();
-                database.execSQL(sql, new Object[] { path, value, id });
+            if (primitive.isBoolean() || primitive.isNumber() || primitive.isString()) {
+                bind(insertStatement, path, asText(primitive), id);
+                insertStatement.execute();
             } else {
                 throw new IllegalArgumentException(serialized + " isn't a number, boolean, or string");
             }
@@ -271,8 +377,7 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
      */
     @Override
     public void reset() {
-        String sql = String.format("Delete from %s_property", className);
-        database.execSQL(sql);
+        execute(resetSql);
     }
 
     /**
@@ -280,12 +385,10 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
      */
     @Override
     public boolean isEmpty() {
-        String sql = String.format("Select count(_ID) from %s_property", className);
-        Cursor cursor = database.rawQuery(sql, null);
-        cursor.moveToFirst();
-        boolean result = (cursor.getInt(0) == 0);
-        cursor.close();
-        return result;
+        SQLiteStatement countStatement = compiledStatement(countSql);
+        synchronized (countStatement) {
+            return countStatement.simpleQueryForLong() == 0;
+        }
     }
 
     /**
@@ -293,11 +396,28 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
      */
     @Override
     public void remove(Serializable id) {
-        String sql = String.format("Delete from %s_property where PARENT_ID = ?", className);
-        Object[] bindArgs = new Object[1];
-        bindArgs[0] = id;
-        database.execSQL(sql, bindArgs);
+        execute(removeSql, id);
+    }
 
+    /**
+     * Removes the items batchSize at a time, each batch in its own transaction.
+     * 
+     * {@inheritDoc }
+     */
+    @Override
+    public void removeAll(Collection<? extends Serializable> ids) {
+        Iterator<? extends Serializable> iterator = ids.iterator();
+        while (iterator.hasNext()) {
+            database.beginTransaction();
+            try {
+                for (int count = 0; count < batchSize && iterator.hasNext(); count++) {
+                    execute(removeSql, iterator.next());
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        }
     }
 
     /**
@@ -305,16 +425,39 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
      */
     @Override
     public void onCreate(SQLiteDatabase db) {
-
-        db.execSQL(String.format(CREATE_PROPERTIES_TABLE, className));
-        db.execSQL(String.format(CREATE_PROPERTIES_INDEXES, className, className, className, className, className, className));
+        if (SQLStoreLayouts.DOCUMENT.equals(layout)) {
+            db.execSQL(String.format(CREATE_DOCUMENTS_TABLE, className));
+        } else {
+            db.execSQL(String.format(CREATE_PROPERTIES_TABLE, className));
+            db.execSQL(String.format(CREATE_PROPERTIES_INDEXES, className, className, className, className, className, className));
+        }
     }
 
     /**
+     * Upgrading to the DOCUMENT layout moves every object out of the
+     * %s_property table into the %s_document table and drops the former.
+     * 
      * {@inheritDoc }
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (SQLStoreLayouts.DOCUMENT.equals(layout) && oldVersion < SQLStoreLayouts.DOCUMENT.getDatabaseVersion()) {
+            migratePropertiesToDocuments(db);
+        }
+    }
+
+    /**
+     * The DOCUMENT layout makes sure every indexed property has a column 
+     * every time the database is opened.
+     * 
+     * {@inheritDoc }
+     */
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (SQLStoreLayouts.DOCUMENT.equals(layout)) {
+            addIndexColumns(db);
+        }
     }
 
     public void open(final Callback<SQLStore<T>> onReady) {
@@ -324,6 +467,7 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
             @Override
             protected Void doInBackground(Void... params) {
                 try {
+                    releaseStatements();
                     SQLStore.this.database = getWritableDatabase();
                 } catch (Exception e) {
                     this.exception = e;
@@ -343,9 +487,280 @@ public class SQLStore<T> extends SQLiteOpenHelper implements Store<T> {
         }.execute();
     }
 
+    /**
+     * Releases the compiled statements of this store and closes the database.
+     */
     @Override
     public void close() {
-        this.database.close();
+        releaseStatements();
+        super.close();
+    }
+
+    private void releaseStatements() {
+        synchronized (statements) {
+            for (SQLiteStatement statement : statements.values()) {
+                statement.close();
+            }
+            statements.clear();
+        }
+    }
+
+    /**
+     * Returns the statement for sql, compiling it against the open database
+     * the first time it is asked for.
+     */
+    private SQLiteStatement compiledStatement(String sql) {
+        synchronized (statements) {
+            SQLiteStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = database.compileStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+
+    private void execute(String sql, Object... bindArgs) {
+        SQLiteStatement statement = compiledStatement(sql);
+        synchronized (statement) {
+            bind(statement, bindArgs);
+            statement.execute();
+        }
+    }
+
+    private static void bind(SQLiteStatement statement, Object... bindArgs) {
+        statement.clearBindings();
+        for (int index = 0; index < bindArgs.length; index++) {
+            if (bindArgs[index] == null) {
+                statement.bindNull(index + 1);
+            } else {
+                statement.bindString(index + 1, bindArgs[index].toString());
+            }
+        }
+    }
+
+    private Collection<T> readAllDocuments() {
+        Cursor cursor = database.rawQuery(readAllDocumentsSql, new String[0]);
+        ArrayList<T> data = new ArrayList<T>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                data.add(gson.fromJson(cursor.getString(0), klass));
+            }
+        } finally {
+            cursor.close();
+        }
+        return data;
+    }
+
+    private T readDocument(Serializable id) {
+        Cursor cursor = database.rawQuery(readDocumentSql, new String[] { id.toString() });
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return gson.fromJson(cursor.getString(0), klass);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Indexed properties of the filter are queried in SQL, the remaining ones
+     * are matched against the documents which the query returns.
+     */
+    private List<T> readDocumentsWithFilter(ReadFilter filter) {
+        JsonObject where = (JsonObject) new JsonParser().parse(filter.getWhere().toString());
+        List<Pair<String, String>> queryList = new ArrayList<Pair<String, String>>();
+        buildKeyValuePairs(where, queryList, "");
+
+        StringBuilder sql = new StringBuilder(readAllDocumentsSql);
+        List<String> bindArgs = new ArrayList<String>(queryList.size());
+        List<Pair<String, String>> unindexed = new ArrayList<Pair<String, String>>(queryList.size());
+        String and = " where ";
+        for (Pair<String, String> kv : queryList) {
+            if (indexedProperties.contains(kv.first)) {
+                sql.append(and).append(columnFor(kv.first)).append(" = ?");
+                bindArgs.add(kv.second);
+                and = " and ";
+            } else {
+                unindexed.add(kv);
+            }
+        }
+
+        sql.append(" order by rowid");
+
+        /*
+         * Paging can only go into the SQL when every pair is checked there,
+         * otherwise it is applied to the documents which pass the check.
+         */
+        int skip = 0;
+        int limit = Integer.MAX_VALUE;
+        if (unindexed.isEmpty()) {
+            sql.append(" limit ? offset ?");
+            bindArgs.add(limitOf(filter));
+            bindArgs.add(offsetOf(filter));
+        } else {
+            skip = Integer.valueOf(offsetOf(filter));
+            limit = (filter.getLimit() == null) ? Integer.MAX_VALUE : filter.getLimit();
+        }
+
+        List<T> results = new ArrayList<T>();
+        JsonParser parser = new JsonParser();
+        Cursor cursor = database.rawQuery(sql.toString(), bindArgs.toArray(new String[bindArgs.size()]));
+        try {
+            while (results.size() < limit && cursor.moveToNext()) {
+                JsonObject document = (JsonObject) parser.parse(cursor.getString(0));
+                boolean matches = true;
+                for (Pair<String, String> kv : unindexed) {
+                    if (!kv.second.equals(valueAt(document, kv.first))) {
+                        matches = false;
+                        break;
+                    }
+                }
+                if (matches && skip > 0) {
+                    skip--;
+                } else if (matches) {
+                    results.add(gson.fromJson(document, klass));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return results;
+    }
+
+    private String buildInsertDocumentSql() {
+        StringBuilder columns = new StringBuilder("ID, DOCUMENT");
+        StringBuilder values = new StringBuilder("?, ?");
+        for (String propertyName : indexedProperties) {
+            columns.append(", ").append(columnFor(propertyName));
+            values.append(", ?");
+        }
+        return String.format("insert or replace into %s_document (%s) values (%s)", className, columns, values);
+    }
+
+    /**
+     * @return the arguments for insertDocumentSql
+     */
+    private Object[] documentBindArgs(JsonObject serialized, Serializable id) {
+        Object[] bindArgs = new Object[indexedProperties.size() + 2];
+        bindArgs[0] = id.toString();
+        bindArgs[1] = serialized.toString();
+        for (int index = 0; index < indexedProperties.size(); index++) {
+            bindArgs[index + 2] = valueAt(serialized, indexedProperties.get(index));
+        }
+        return bindArgs;
+    }
+
+    /**
+     * Adds a column for every indexed property the %s_document table doesn't
+     * have yet and fills it from the stored documents.
+     */
+    private void addIndexColumns(SQLiteDatabase db) {
+        List<String> missingProperties = new ArrayList<String>();
+        Cursor cursor = db.rawQuery(String.format("Select * from %s_document limit 0", className), null);
+        try {
+            for (String propertyName : indexedProperties) {
+                if (cursor.getColumnIndex(columnFor(propertyName)) == -1) {
+                    missingProperties.add(propertyName);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (missingProperties.isEmpty()) {
+            return;
+        }
+
+        for (String propertyName : missingProperties) {
+            String column = columnFor(propertyName);
+            db.execSQL(String.format("alter table %s_document add column %s text", className, column));
+            db.execSQL(String.format(CREATE_DOCUMENTS_INDEX, className, column, className, column));
+        }
+
+        JsonParser parser = new JsonParser();
+        cursor = db.rawQuery(String.format("Select ID, DOCUMENT from %s_document", className), null);
+        try {
+            while (cursor.moveToNext()) {
+                JsonObject document = (JsonObject) parser.parse(cursor.getString(1));
+                for (String propertyName : missingProperties) {
+                    String sql = String.format("update %s_document set %s = ? where ID = ?", className, columnFor(propertyName));
+                    db.execSQL(sql, new Object[] { valueAt(document, propertyName), cursor.getString(0) });
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void migratePropertiesToDocuments(SQLiteDatabase db) {
+        db.execSQL(String.format(CREATE_DOCUMENTS_TABLE, className));
+        addIndexColumns(db);
+
+        String sql = String.format("Select PARENT_ID, PROPERTY_NAME, PROPERTY_VALUE from %s_property order by _ID", className);
+        Map<String, JsonObject> objects = new LinkedHashMap<String, JsonObject>();
+        Cursor cursor = db.rawQuery(sql, new String[0]);
+        try {
+            while (cursor.moveToNext()) {
+                String id = cursor.getString(0);
+                JsonObject object = objects.get(id);
+                if (object == null) {
+                    object = new JsonObject();
+                    objects.put(id, object);
+                }
+                add(object, cursor.getString(1), cursor.getString(2));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        for (Entry<String, JsonObject> object : objects.entrySet()) {
+            // Round trip through klass so the document has its proper types instead of the stored text
+            T item = gson.fromJson(object.getValue(), klass);
+            db.execSQL(insertDocumentSql, documentBindArgs((JsonObject) gson.toJsonTree(item, klass), object.getKey()));
+        }
+
+        db.execSQL(String.format("drop table if exists %s_property", className));
+    }
+
+    /**
+     * Finds the primitive value at a dotted path of a document.
+     * 
+     * @return the value as it would be stored in the %s_property table or null
+     * if the path doesn't lead to a primitive
+     */
+    private String valueAt(JsonObject document, String propertyName) {
+        JsonElement element = document;
+        for (String name : propertyName.split("\\.")) {
+            if (element == null || !element.isJsonObject()) {
+                return null;
+            }
+            element = element.getAsJsonObject().get(name);
+        }
+
+        if (element == null || !element.isJsonPrimitive()) {
+            return null;
+        }
+
+        return asText(element.getAsJsonPrimitive());
+    }
+
+    /**
+     * @return the primitive as the text stored in PROPERTY_VALUE and IDX_ columns
+     */
+    private static String asText(JsonPrimitive primitive) {
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean() ? "true" : "false";
+        } else if (primitive.isNumber()) {
+            return primitive.getAsNumber().toString();
+        } else {
+            return primitive.getAsString();
+        }
+    }
+
+    private static String columnFor(String propertyName) {
+        return "IDX_" + propertyName.replaceAll("[^A-Za-z0-9_]", "_");
     }
 
     private void add(JsonObject result, String propertyName, String propertyValue) {
@@ -0,0 +1,54 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.datamanager;
+
+/**
+ * The ways a {@link SQLStore} can lay its data out on disk.
+ */
+public enum SQLStoreLayouts {
+
+    /**
+     * Every primitive value of an object is stored as its own row in the
+     * %s_property table.  This is the original layout.
+     */
+    PROPERTY("PROPERTY", 1),
+    /**
+     * Every object is stored as a single row in the %s_document table. The
+     * serialized object lives in one column and every indexed property gets a
+     * column of its own which readWithFilter can query.
+     */
+    DOCUMENT("DOCUMENT", 2);
+
+    private final String layoutDescription;
+    private final int databaseVersion;
+
+    SQLStoreLayouts(String layoutDescription, int databaseVersion) {
+        this.layoutDescription = layoutDescription;
+        this.databaseVersion = databaseVersion;
+    }
+
+    public String getName() {
+        return this.layoutDescription;
+    }
+
+    /**
+     * @return the version of the database schema used by this layout
+     */
+    int getDatabaseVersion() {
+        return databaseVersion;
+    }
+}
@@ -18,16 +18,23 @@ package org.jboss.aerogear.android.impl.datamanager;
 
 import android.content.Context;
 import com.google.gson.GsonBuilder;
+import org.jboss.aerogear.android.datamanager.EvictionConfig;
 import org.jboss.aerogear.android.datamanager.IdGenerator;
 import org.jboss.aerogear.android.datamanager.Store;
 import org.jboss.aerogear.android.datamanager.StoreFactory;
 import org.jboss.aerogear.android.datamanager.StoreType;
+import org.jboss.aerogear.android.serialization.Serializer;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class bundles up all of the possible variables which may be used to instantiate a {@link Store}
  */
 public final class StoreConfig {
 
+    static final int DEFAULT_BATCH_SIZE = 500;
+
     /**
      * An Android Context, used by {@link SQLStore}
      */
@@ -48,9 +55,19 @@ public final class StoreConfig {
     /**
      * The builder to use to manage objects.  Used by {@link SQLStore}
      * Defaults to new GsonBuilder();
+     * 
+     * Stores built with the same builder share one Gson, so the builder should
+     * not be changed after the first store was created.
      */
     private GsonBuilder builder = new GsonBuilder();
 
+    /**
+     * Turns objects into the bytes an encrypted store encrypts.  Used by
+     * {@link EncryptedSQLStore} and {@link EncryptedMemoryStore}.
+     * Defaults to null, JSON built with the Gson of builder.
+     */
+    private Serializer serializer;
+
     /**
      * The IdGenerator used by the Store.  Used by {@link SQLStore} and {@link MemoryStorage}.
      * Defaults to new DefaultIdGenerator();
@@ -67,6 +84,30 @@ public final class StoreConfig {
      */ 
     private String name;
 
+    /**
+     * The layout a {@link SQLStore} uses for its tables.
+     * Defaults to PROPERTY.
+     */
+    private SQLStoreLayouts layout = SQLStoreLayouts.PROPERTY;
+
+    /**
+     * The (dotted) names of the properties readWithFilter will query most.
+     * Used by {@link SQLStore} with the DOCUMENT layout to build columns and
+     * by {@link MemoryStorage} to build indexes.
+     */
+    private List<String> indexedProperties = new ArrayList<String>();
+
+    /**
+     * The number of items a SQL store writes in one transaction during 
+     * saveAll and removeAll.  Defaults to 500.
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * The limits of a memory store.  Defaults to null, an unbounded store.
+     */
+    private EvictionConfig evictionConfig;
+
     /**
      * 
      * @deprecated please use StoreConfig#Class instead.
@@ -112,6 +153,14 @@ public final class StoreConfig {
         this.builder = builder;
     }
 
+    public Serializer getSerializer() {
+        return serializer;
+    }
+
+    public void setSerializer(Serializer serializer) {
+        this.serializer = serializer;
+    }
+
     public IdGenerator getIdGenerator() {
         return idGenerator;
     }
@@ -139,5 +188,37 @@ public final class StoreConfig {
     public void setName(String name) {
         this.name = name;
     }
+
+    public SQLStoreLayouts getLayout() {
+        return layout;
+    }
+
+    public void setLayout(SQLStoreLayouts layout) {
+        this.layout = layout;
+    }
+
+    public List<String> getIndexedProperties() {
+        return indexedProperties;
+    }
+
+    public void setIndexedProperties(List<String> indexedProperties) {
+        this.indexedProperties = indexedProperties;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public EvictionConfig getEvictionConfig() {
+        return evictionConfig;
+    }
+
+    public void setEvictionConfig(EvictionConfig evictionConfig) {
+        this.evictionConfig = evictionConfig;
+    }
     
 }
\ No newline at end of file
@@ -26,7 +26,8 @@ public enum StoreTypes implements StoreType {
     MEMORY("MEMORY"),
     SQL("SQL"),
     ENCRYPTED_MEMORY("ENCRYPTED_MEMORY"),
-    ENCRYPTED_SQL("ENCRYPTED_SQL");
+    ENCRYPTED_SQL("ENCRYPTED_SQL"),
+    CONCURRENT_MEMORY("CONCURRENT_MEMORY");
 
     private final String typeDescription;
 
@@ -0,0 +1,169 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.http;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.aerogear.android.http.CachedResponse;
+import org.jboss.aerogear.android.http.ResponseCache;
+
+/**
+ * Keeps each response in a file of its own in a directory, for example
+ * Context.getCacheDir().  A file which can not be read is treated as a miss.
+ */
+public class DiskResponseCache implements ResponseCache {
+
+    private static final String TAG = DiskResponseCache.class.getSimpleName();
+    private static final int VERSION = 2;
+
+    private final File directory;
+
+    public DiskResponseCache(File directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory may not be null");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Could not create " + directory);
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized CachedResponse get(String key) {
+        File file = fileOf(key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != VERSION || !key.equals(in.readUTF())) {
+                return null;
+            }
+            String eTag = readNullable(in);
+            String lastModified = readNullable(in);
+            int headerCount = in.readInt();
+            Map<String, String> headers = new HashMap<String, String>(headerCount);
+            for (int i = 0; i < headerCount; i++) {
+                headers.put(readNullable(in), readNullable(in));
+            }
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new CachedResponse(key, eTag, lastModified, headers, body);
+        } catch (IOException ex) {
+            Log.w(TAG, "Could not read the cached response of " + key, ex);
+            file.delete();
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void put(CachedResponse response) {
+        File file = fileOf(response.getKey());
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(VERSION);
+            out.writeUTF(response.getKey());
+            writeNullable(out, response.getETag());
+            writeNullable(out, response.getLastModified());
+            out.writeInt(response.getHeaders().size());
+            for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+                writeNullable(out, header.getKey());
+                writeNullable(out, header.getValue());
+            }
+            out.writeInt(response.getBody().length);
+            out.write(response.getBody());
+        } catch (IOException ex) {
+            Log.w(TAG, "Could not cache the response of " + response.getKey(), ex);
+            close(out);
+            file.delete();
+        } finally {
+            close(out);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void remove(String key) {
+        fileOf(key).delete();
+    }
+
+    private File fileOf(String key) {
+        try {
+            // keys are not necessarily valid file names
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(directory, name.toString());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+}
@@ -22,30 +22,65 @@ import com.google.common.collect.Maps;
 
 import java.io.*;
 import java.net.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.http.HttpStatus;
 import org.jboss.aerogear.android.Provider;
+import org.jboss.aerogear.android.http.CachedResponse;
+import org.jboss.aerogear.android.http.CompressionConfig;
 import org.jboss.aerogear.android.http.HeaderAndBody;
 import org.jboss.aerogear.android.http.HttpException;
 import org.jboss.aerogear.android.http.HttpProvider;
+import org.jboss.aerogear.android.http.RequestBody;
+import org.jboss.aerogear.android.http.ResponseCache;
+import org.jboss.aerogear.android.http.StreamingHttpProvider;
 
 import android.util.Log;
 import org.jboss.aerogear.android.impl.util.UrlUtils;
+import org.jboss.aerogear.crypto.encoders.Hex;
 
 /**
  * These are tuned for AeroGear, assume the body is String data, and that the
  * headers don't do anything funny.
+ * 
+ * Given a {@link ResponseCache} GETs are made conditional on the validators
+ * of the cached response, which is returned again when the server answers 
+ * 304 Not Modified.
+ * 
+ * Given a connection pool size the provider does not disconnect after each 
+ * request.  Responses are read to their end and their streams closed so the
+ * platform can keep the connection alive and reuse it for the next request
+ * to the same host.  The platform keeps one pool for the whole process, 
+ * sized by the http.maxConnections system property which it reads once, so 
+ * an application wanting a bigger pool sets it at startup before its first
+ * request.
+ * 
+ * Given a {@link CompressionConfig} responses are asked for gzipped and 
+ * decoded as they are read, and large request bodies are gzipped as they
+ * are written.
  */
-public final class HttpRestProvider implements HttpProvider {
+public final class HttpRestProvider implements StreamingHttpProvider {
 
     private static final String TAG = HttpRestProvider.class.getSimpleName();
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String GZIP = "gzip";
+    private static final int BUFFER_SIZE = 8192;
     private final URL url;
     private final Map<String, String> defaultHeaders = new HashMap<String, String>();
     private final Integer timeout;
+    private final ResponseCache responseCache;
+    private final boolean keepAlive;
+    private final CompressionConfig compressionConfig;
     private final static java.net.CookieManager cm = new java.net.CookieManager();
 
     static {
@@ -95,13 +130,49 @@ public final class HttpRestProvider implements HttpProvider {
     };
 
     public HttpRestProvider(URL url) {
-        this.url = url;
-        this.timeout = 0;
+        this(url, 0);
     }
 
     public HttpRestProvider(URL url, Integer timeout) {
+        this(url, timeout, null);
+    }
+
+    /**
+     * @param url the URL of the resource
+     * @param timeout the connect and read timeout in milliseconds
+     * @param responseCache the cache of GET responses, null to not cache them
+     */
+    public HttpRestProvider(URL url, Integer timeout, ResponseCache responseCache) {
+        this(url, timeout, responseCache, 0);
+    }
+
+    /**
+     * @param url the URL of the resource
+     * @param timeout the connect and read timeout in milliseconds
+     * @param responseCache the cache of GET responses, null to not cache them
+     * @param connectionPoolSize a positive number keeps connections alive 
+     * for reuse, 0 disconnects after every request
+     */
+    public HttpRestProvider(URL url, Integer timeout, ResponseCache responseCache, int connectionPoolSize) {
+        this(url, timeout, responseCache, connectionPoolSize, null);
+    }
+
+    /**
+     * @param url the URL of the resource
+     * @param timeout the connect and read timeout in milliseconds
+     * @param responseCache the cache of GET responses, null to not cache them
+     * @param connectionPoolSize a positive number keeps connections alive 
+     * for reuse, 0 disconnects after every request
+     * @param compressionConfig the compression of requests and responses, 
+     * null to not compress them
+     */
+    public HttpRestProvider(URL url, Integer timeout, ResponseCache responseCache, int connectionPoolSize,
+                            CompressionConfig compressionConfig) {
         this.url = url;
         this.timeout = timeout;
+        this.responseCache = responseCache;
+        this.compressionConfig = compressionConfig;
+        this.keepAlive = connectionPoolSize > 0;
     }
 
     /**
@@ -120,15 +191,43 @@ public final class HttpRestProvider implements HttpProvider {
         HttpURLConnection urlConnection = null;
         try {
             urlConnection = prepareConnection();
-            return getHeaderAndBody(urlConnection);
+            if (responseCache == null) {
+                return getHeaderAndBody(urlConnection);
+            }
+            return getConditionally(urlConnection);
 
         } catch (IOException e) {
             Log.e(TAG, "Error on GET of " + url, e);
             throw new RuntimeException(e);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
+            release(urlConnection);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * A streamed body is neither looked up in nor added to the response 
+     * cache.
+     */
+    @Override
+    public InputStream getStream() throws HttpException {
+        HttpURLConnection urlConnection = null;
+        try {
+            urlConnection = prepareConnection();
+            if (urlConnection.getResponseCode() != HttpStatus.SC_OK) {
+                // an error is thrown, anything else has at most a short body
+                try {
+                    return getHeaderAndBody(urlConnection).openBody();
+                } finally {
+                    release(urlConnection);
+                }
             }
+            return new ConnectionStream(urlConnection, responseStream(urlConnection, urlConnection.getInputStream()));
+        } catch (IOException e) {
+            Log.e(TAG, "Error on GET of " + url, e);
+            release(urlConnection);
+            throw new RuntimeException(e);
         }
     }
 
@@ -145,6 +244,14 @@ public final class HttpRestProvider implements HttpProvider {
      */
     @Override
     public HeaderAndBody post(byte[] data) throws RuntimeException {
+        return post(new BytesBody(data));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HeaderAndBody post(RequestBody data) throws RuntimeException {
         HttpURLConnection urlConnection = null;
 
         try {
@@ -157,9 +264,7 @@ public final class HttpRestProvider implements HttpProvider {
             Log.e(TAG, "Error on POST of " + url, e);
             throw new RuntimeException(e);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
+            release(urlConnection);
         }
     }
 
@@ -176,6 +281,14 @@ public final class HttpRestProvider implements HttpProvider {
      */
     @Override
     public HeaderAndBody put(String id, byte[] data) throws RuntimeException {
+        return put(id, new BytesBody(data));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HeaderAndBody put(String id, RequestBody data) throws RuntimeException {
         HttpURLConnection urlConnection = null;
 
         try {
@@ -188,9 +301,7 @@ public final class HttpRestProvider implements HttpProvider {
             Log.e(TAG, "Error on PUT of " + url, e);
             throw new RuntimeException(e);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
+            release(urlConnection);
         }
     }
 
@@ -209,24 +320,151 @@ public final class HttpRestProvider implements HttpProvider {
             Log.e(TAG, "Error on DELETE of " + url, e);
             throw new RuntimeException(e);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
+            release(urlConnection);
+        }
+    }
+
+    private HeaderAndBody getConditionally(HttpURLConnection urlConnection)
+            throws IOException {
+
+        String cacheKey = cacheKey();
+        CachedResponse cached = responseCache.get(cacheKey);
+
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                urlConnection.setRequestProperty("If-None-Match", cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                urlConnection.setRequestProperty("If-Modified-Since", cached.getLastModified());
+            }
+            if (urlConnection.getResponseCode() == HttpStatus.SC_NOT_MODIFIED) {
+                return cached.toHeaderAndBody();
+            }
+        }
+
+        HeaderAndBody result = getHeaderAndBody(urlConnection);
+
+        String eTag = urlConnection.getHeaderField("ETag");
+        String lastModified = urlConnection.getHeaderField("Last-Modified");
+        if (urlConnection.getResponseCode() != HttpStatus.SC_OK) {
+            return result;
+        } else if (eTag == null && lastModified == null) {
+            responseCache.remove(cacheKey);
+        } else {
+            Map<String, String> headers = new HashMap<String, String>(joinHeaders(urlConnection.getHeaderFields()));
+            // the status line
+            headers.remove(null);
+            if (isGzipped(urlConnection)) {
+                // the body is kept decoded
+                Iterator<String> names = headers.keySet().iterator();
+                while (names.hasNext()) {
+                    if (describesEncodedBody(names.next())) {
+                        names.remove();
+                    }
+                }
             }
+
+            CachedResponse response = new CachedResponse();
+            response.setKey(cacheKey);
+            response.setETag(eTag);
+            response.setLastModified(lastModified);
+            response.setHeaders(headers);
+            response.setBody(result.getBody());
+            responseCache.put(response);
         }
+
+        return result;
     }
 
-    private void addBodyRequest(HttpURLConnection urlConnection, byte[] data)
+    /**
+     * A hash of the URL and the default headers, so the responses of 
+     * different credentials are kept apart and no credentials, whether in 
+     * the query or in a header, are kept in the cache.
+     */
+    String cacheKey() {
+        StringBuilder request = new StringBuilder(url.toString());
+        for (Entry<String, String> header : new TreeMap<String, String>(defaultHeaders).entrySet()) {
+            request.append('\n').append(header.getKey()).append(": ").append(header.getValue());
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Hex.HEX.encode(digest.digest(request.toString().getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Streams the body to the connection: in fixed length mode when its 
+     * length is known, otherwise in chunks, so the connection does not 
+     * buffer the whole body first.  A compressed body is always sent in 
+     * chunks as its length is only known once it is written.
+     */
+    private void addBodyRequest(HttpURLConnection urlConnection, RequestBody data)
             throws IOException {
 
         urlConnection.setDoOutput(true);
 
-        if (data != null) {
-            OutputStream out = new BufferedOutputStream(urlConnection
-                    .getOutputStream());
-            out.write(data);
+        long contentLength = data.getContentLength();
+        boolean compress = compressionConfig != null && compressionConfig.shouldCompress(contentLength);
+        if (compress) {
+            urlConnection.setRequestProperty(CONTENT_ENCODING, GZIP);
+            urlConnection.setChunkedStreamingMode(0);
+        } else if (contentLength >= 0 && contentLength <= Integer.MAX_VALUE) {
+            urlConnection.setFixedLengthStreamingMode((int) contentLength);
+        } else {
+            urlConnection.setChunkedStreamingMode(0);
+        }
+
+        OutputStream out = new BufferedOutputStream(urlConnection
+                .getOutputStream());
+        if (compress) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        try {
+            data.writeTo(out);
             out.flush();
+        } finally {
+            out.close();
+        }
+
+    }
+
+    private static final class BytesBody implements RequestBody {
+
+        private final byte[] data;
+
+        BytesBody(byte[] data) {
+            this.data = data == null ? new byte[0] : data;
+        }
+
+        @Override
+        public long getContentLength() {
+            return data.length;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(data);
+        }
+
+        @Override
+        public boolean isReplayable() {
+            return true;
         }
+    }
 
+    /**
+     * Disconnects, unless connections are kept alive.  The response has been 
+     * read to its end and closed by then, which returns the connection to the 
+     * pool.
+     */
+    private void release(HttpURLConnection urlConnection) {
+        if (urlConnection != null && !keepAlive) {
+            urlConnection.disconnect();
+        }
     }
 
     private HttpURLConnection prepareConnection() throws IOException {
@@ -237,9 +475,43 @@ public final class HttpRestProvider implements HttpProvider {
         HttpURLConnection connection = connectionPreparer.get(id);
         connection.setReadTimeout(timeout);
         connection.setConnectTimeout(timeout);
+        if (compressionConfig != null) {
+            // once asked for explicitly the platform leaves decoding to us
+            connection.setRequestProperty("Accept-Encoding", GZIP);
+        }
         return connection;
     }
 
+    private boolean isGzipped(HttpURLConnection urlConnection) {
+        return compressionConfig != null && GZIP.equalsIgnoreCase(urlConnection.getHeaderField(CONTENT_ENCODING));
+    }
+
+    /**
+     * @return true for the headers which no longer hold once a gzipped body
+     * is decoded
+     */
+    private static boolean describesEncodedBody(String headerName) {
+        return CONTENT_ENCODING.equalsIgnoreCase(headerName) || "Content-Length".equalsIgnoreCase(headerName);
+    }
+
+    /**
+     * Decodes the stream of a gzipped response as it is read.
+     */
+    private InputStream responseStream(HttpURLConnection urlConnection, InputStream stream) throws IOException {
+        if (stream == null || !isGzipped(urlConnection)) {
+            return stream;
+        }
+        return new GZIPInputStream(stream, BUFFER_SIZE);
+    }
+
+    /**
+     * The Content-Length of a gzipped response is not the length of its 
+     * decoded body.
+     */
+    private int bodyLength(HttpURLConnection urlConnection) {
+        return isGzipped(urlConnection) ? -1 : urlConnection.getContentLength();
+    }
+
     @Override
     public void setDefaultHeader(String headerName, String headerValue) {
         defaultHeaders.put(headerName, headerValue);
@@ -251,46 +523,40 @@ public final class HttpRestProvider implements HttpProvider {
         int statusCode = urlConnection.getResponseCode();
         HeaderAndBody result;
         Map<String, List<String>> headers;
-        byte[] responseData;
+        ResponseBuffer responseData;
 
         switch (statusCode) {
         case HttpStatus.SC_OK:
         case HttpStatus.SC_CREATED:
-            InputStream in = new BufferedInputStream(urlConnection
-                        .getInputStream());
-
-            responseData = readBytes(in);
+            responseData = new ResponseBuffer(bodyLength(urlConnection));
+            responseData.readFrom(responseStream(urlConnection, urlConnection.getInputStream()));
 
             break;
 
         case HttpStatus.SC_NO_CONTENT:
-            responseData = new byte[0];
+            responseData = new ResponseBuffer(0);
 
             break;
 
         default:
-            InputStream err = new BufferedInputStream(urlConnection
-                        .getErrorStream());
-
-            byte[] errData = readBytes(err);
+            ResponseBuffer errData = new ResponseBuffer(bodyLength(urlConnection));
+            errData.readFrom(responseStream(urlConnection, urlConnection.getErrorStream()));
 
-            Map<String, String> errorHeaders = Maps.transformValues(urlConnection.getHeaderFields(),
-                    new Function<List<String>, String>() {
-                        @Override
-                        public String apply(List<String> input) {
-                            return TextUtils.join(",", input);
-                        }
-                    });
+            Map<String, String> errorHeaders = joinHeaders(urlConnection.getHeaderFields());
 
-            throw new HttpException(errData, statusCode, errorHeaders);
+            throw new HttpException(errData.toByteArray(), statusCode, errorHeaders);
 
         }
 
         headers = urlConnection.getHeaderFields();
-        result = new HeaderAndBody(responseData, new HashMap<String, Object>(
+        result = HeaderAndBody.wrap(responseData.buffer, responseData.length, new HashMap<String, Object>(
                 headers.size()));
 
+        boolean decoded = isGzipped(urlConnection);
         for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (decoded && describesEncodedBody(header.getKey())) {
+                continue;
+            }
             result.setHeader(header.getKey(), TextUtils.join(",", header.getValue()));
         }
 
@@ -298,22 +564,92 @@ public final class HttpRestProvider implements HttpProvider {
 
     }
 
-    private byte[] readBytes(InputStream inputStream) throws IOException {
-        // this dynamically extends to take the bytes you read
-        ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
+    private static Map<String, String> joinHeaders(Map<String, List<String>> headers) {
+        return Maps.transformValues(headers,
+                new Function<List<String>, String>() {
+                    @Override
+                    public String apply(List<String> input) {
+                        return TextUtils.join(",", input);
+                    }
+                });
+    }
+
+    /**
+     * Holds a response body.  The buffer is sized from the Content-Length of
+     * the response, so a body of the announced length is read straight into 
+     * it and handed to the HeaderAndBody without being grown or copied.
+     */
+    private static final class ResponseBuffer {
+
+        private static final int DEFAULT_SIZE = 8192;
+        private static final int MAX_INITIAL_SIZE = 16 * 1024 * 1024;
+
+        private byte[] buffer;
+        private int length = 0;
+
+        ResponseBuffer(int contentLength) {
+            if (contentLength < 0) {
+                buffer = new byte[DEFAULT_SIZE];
+            } else {
+                buffer = new byte[Math.min(contentLength, MAX_INITIAL_SIZE)];
+            }
+        }
+
+        /**
+         * Reads the stream to its end and closes it, which lets the 
+         * connection be reused.
+         */
+        void readFrom(InputStream inputStream) throws IOException {
+            if (inputStream == null) {
+                return;
+            }
+            try {
+                while (true) {
+                    if (length == buffer.length) {
+                        // a full buffer is only grown if the body is longer
+                        int next = inputStream.read();
+                        if (next == -1) {
+                            return;
+                        }
+                        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, DEFAULT_SIZE));
+                        buffer[length++] = (byte) next;
+                    }
+                    int read = inputStream.read(buffer, length, buffer.length - length);
+                    if (read == -1) {
+                        return;
+                    }
+                    length += read;
+                }
+            } finally {
+                inputStream.close();
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+    }
+
+    /**
+     * The body of a response which releases its connection once closed.
+     */
+    private class ConnectionStream extends FilterInputStream {
 
-        // this is storage overwritten on each iteration with bytes
-        int bufferSize = 1024;
-        byte[] buffer = new byte[bufferSize];
+        private final HttpURLConnection urlConnection;
 
-        // we need to know how may bytes were read to write them to the byteBuffer
-        int len;
-        while ((len = inputStream.read(buffer)) != -1) {
-            byteBuffer.write(buffer, 0, len);
+        ConnectionStream(HttpURLConnection urlConnection, InputStream body) {
+            super(body);
+            this.urlConnection = urlConnection;
         }
 
-        // and then we can return your byte array.
-        return byteBuffer.toByteArray();
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                release(urlConnection);
+            }
+        }
     }
 
 }
@@ -23,6 +23,7 @@ import org.jboss.aerogear.android.authentication.impl.HttpBasicAuthenticationMod
 import org.jboss.aerogear.android.http.HeaderAndBody;
 import org.jboss.aerogear.android.http.HttpException;
 import org.jboss.aerogear.android.http.HttpProvider;
+import org.jboss.aerogear.android.http.RequestBody;
 
 import android.util.Pair;
 
@@ -60,6 +61,11 @@ public class HttpRestProviderForPush implements HttpProvider {
         return this.provider.post(data);
     }
 
+    @Override
+    public HeaderAndBody post(RequestBody data) throws HttpException {
+        return this.provider.post(data);
+    }
+
     @Override
     public HeaderAndBody put(String id, String data) throws HttpException {
         return this.provider.put(id, data);
@@ -70,6 +76,11 @@ public class HttpRestProviderForPush implements HttpProvider {
         return this.provider.put(id, data);
     }
 
+    @Override
+    public HeaderAndBody put(String id, RequestBody data) throws HttpException {
+        return this.provider.put(id, data);
+    }
+
     @Override
     public HeaderAndBody delete(String id) throws HttpException {
         return this.provider.delete(id);
@@ -0,0 +1,75 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jboss.aerogear.android.http.CachedResponse;
+import org.jboss.aerogear.android.http.ResponseCache;
+
+/**
+ * Keeps responses in memory, dropping the least recently used one once it 
+ * holds maxEntries of them.
+ */
+public class MemoryResponseCache implements ResponseCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+
+    private final Map<String, CachedResponse> responses;
+
+    public MemoryResponseCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public MemoryResponseCache(final int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized CachedResponse get(String key) {
+        return responses.get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void put(CachedResponse response) {
+        responses.put(response.getKey(), response);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void remove(String key) {
+        responses.remove(key);
+    }
+
+}
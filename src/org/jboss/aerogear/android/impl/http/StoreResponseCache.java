@@ -0,0 +1,63 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.http;
+
+import org.jboss.aerogear.android.datamanager.Store;
+import org.jboss.aerogear.android.http.CachedResponse;
+import org.jboss.aerogear.android.http.ResponseCache;
+
+/**
+ * Keeps responses in a {@link Store}, so any of the store types (including 
+ * the SQL and encrypted ones) can back the cache.  The body of a response is
+ * stored as one Base64 value.  The store must be open.
+ */
+public class StoreResponseCache implements ResponseCache {
+
+    private final Store<CachedResponse> store;
+
+    public StoreResponseCache(Store<CachedResponse> store) {
+        if (store == null) {
+            throw new IllegalArgumentException("store may not be null");
+        }
+        this.store = store;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized CachedResponse get(String key) {
+        return store.read(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void put(CachedResponse response) {
+        store.save(response);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void remove(String key) {
+        store.remove(key);
+    }
+
+}
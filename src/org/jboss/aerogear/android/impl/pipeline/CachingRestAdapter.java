@@ -0,0 +1,619 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.android.Callback;
+import org.jboss.aerogear.android.ReadFilter;
+import org.jboss.aerogear.android.datamanager.Store;
+import org.jboss.aerogear.android.http.HeaderAndBody;
+import org.jboss.aerogear.android.impl.reflection.Scan;
+import org.jboss.aerogear.android.pipeline.BatchConfig;
+import org.jboss.aerogear.android.pipeline.CacheConfig;
+import org.jboss.aerogear.android.pipeline.ItemCallback;
+import org.jboss.aerogear.android.pipeline.Pipe;
+import org.jboss.aerogear.android.pipeline.PartialSaveException;
+import org.jboss.aerogear.android.pipeline.PipeHandler;
+import org.jboss.aerogear.android.pipeline.PipeScheduler.Priority;
+import org.jboss.aerogear.android.pipeline.PipeType;
+import org.jboss.aerogear.android.pipeline.RequestBuilder;
+import org.jboss.aerogear.android.pipeline.ResponseParser;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+/**
+ * A {@link Pipe} which keeps a local copy of its data in a {@link Store}.
+ * 
+ * Reads are answered from the store when it has matching data and the 
+ * server is asked again in the background.  The answer only replaces the 
+ * stored data when its ETag or Last-Modified header changed.  When the store 
+ * has no matching data the read goes to the server and its result is stored.
+ * Paging metadata from the server is not kept, page with the ReadFilter's 
+ * limit and offset instead.
+ * 
+ * Saves of items which have an id and removes are applied to the store at 
+ * once and queued for the server.  The queue is flushed in batches after 
+ * {@link CacheConfig#getFlushDelay()}, later writes of an id replace 
+ * queued ones, and failed writes are retried with a growing delay.  Items 
+ * without an id are saved on the server first so it can assign one.  Given a
+ * bulk endpoint the queued saves of a batch are sent in one request.
+ */
+public final class CachingRestAdapter<T> implements Pipe<T> {
+
+    private static final String TAG = CachingRestAdapter.class.getSimpleName();
+    private static final String[] VALIDATOR_HEADERS = { "ETag", "Etag", "etag", "Last-Modified", "last-modified" };
+    private static final ScheduledExecutorService WRITE_BEHIND_EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final RestAdapter<T> restAdapter;
+    private final Store<T> store;
+    private final CacheConfig cacheConfig;
+    private final boolean bulkSaves;
+    /**
+     * A paged pipe reads one page even without a filter
+     */
+    private final boolean paged;
+    /**
+     * The last ETag or Last-Modified seen for each read, keyed by its query
+     */
+    private final Map<String, String> validators = new HashMap<String, String>();
+    /**
+     * Writes waiting for the server, keyed by id, oldest first
+     */
+    private final LinkedHashMap<String, PendingWrite<T>> pending = new LinkedHashMap<String, PendingWrite<T>>();
+    private boolean flushScheduled = false;
+    /**
+     * Held while flushing, so a write taken by one flush is never overtaken
+     * by a newer write of its id sent by another
+     */
+    private final Object flushLock = new Object();
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    public CachingRestAdapter(Class<T> klass, URL baseURL, PipeConfig config) {
+        this.restAdapter = new RestAdapter<T>(klass, baseURL, config);
+        this.cacheConfig = config.getCacheConfig();
+        this.bulkSaves = config.getBulkEndpoint() != null;
+        this.paged = config.getPageConfig() != null;
+        this.store = (Store<T>) cacheConfig.getStore();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PipeType getType() {
+        return PipeTypes.CACHED_REST;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URL getUrl() {
+        return restAdapter.getUrl();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void read(Callback<List<T>> callback) {
+        read(new ReadFilter(), callback);
+    }
+
+    @Override
+    public void readWithFilter(ReadFilter filter, Callback<List<T>> callback) {
+        read(filter, callback);
+    }
+
+    @Override
+    public void read(ReadFilter filter, final Callback<List<T>> callback) {
+        if (filter == null) {
+            filter = new ReadFilter();
+        }
+        final ReadFilter innerFilter = filter;
+
+        restAdapter.execute(Priority.INTERACTIVE, new Runnable() {
+            @Override
+            public void run() {
+                List<T> cached;
+                try {
+                    cached = store.readWithFilter(innerFilter);
+                } catch (Exception e) {
+                    Log.w(TAG, "The store could not be read, reading from the server", e);
+                    cached = new ArrayList<T>();
+                }
+
+                if (!cached.isEmpty()) {
+                    callback.onSuccess(cached);
+                    try {
+                        fetch(innerFilter, true);
+                    } catch (Exception e) {
+                        Log.w(TAG, "Revalidating " + keyOf(innerFilter) + " failed", e);
+                    }
+                    return;
+                }
+
+                List<T> result = null;
+                Exception exception = null;
+                try {
+                    result = fetch(innerFilter, false);
+                } catch (Exception e) {
+                    Log.e(TAG, e.getMessage(), e);
+                    exception = e;
+                }
+                if (exception == null) {
+                    callback.onSuccess(result);
+                } else {
+                    callback.onFailure(exception);
+                }
+            }
+        }, callback);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Incremental reads always go to the server.  Each batch is saved in the
+     * store before it is handed to the callback.
+     */
+    @Override
+    public void read(ReadFilter filter, final BatchConfig batchConfig, final ItemCallback<T> callback) {
+        if (filter == null) {
+            filter = new ReadFilter();
+        }
+        final ReadFilter innerFilter = filter;
+        final Set<String> freshIds = new HashSet<String>();
+
+        restAdapter.execute(Priority.INTERACTIVE, new Runnable() {
+            @Override
+            public void run() {
+                ItemBatches.read(getHandler(), innerFilter, CachingRestAdapter.this, batchConfig, new ItemCallback<T>() {
+                    @Override
+                    public void onItems(List<T> items) {
+                        storeFresh(items, freshIds);
+                        callback.onItems(items);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        if (isFullRead(innerFilter)) {
+                            try {
+                                removeStale(freshIds);
+                            } catch (Exception e) {
+                                Log.w(TAG, "Removing stale items of " + keyOf(innerFilter) + " failed", e);
+                            }
+                        }
+                        callback.onComplete();
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        callback.onFailure(e);
+                    }
+                });
+            }
+        }, callback);
+    }
+
+    @Override
+    public void save(final T item, final Callback<T> callback) {
+        final String id = idOf(item);
+
+        if (id == null) {
+            restAdapter.save(item, new Callback<T>() {
+                @Override
+                public void onSuccess(T saved) {
+                    store.save(saved);
+                    callback.onSuccess(saved);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    callback.onFailure(e);
+                }
+            });
+            return;
+        }
+
+        restAdapter.execute(Priority.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    store.save(item);
+                } catch (Exception e) {
+                    callback.onFailure(e);
+                    return;
+                }
+                enqueue(new PendingWrite<T>(id, item));
+                callback.onSuccess(item);
+            }
+        }, callback);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Like save, items which have an id are stored at once and queued for 
+     * the server while the others are saved on the server first, together.
+     */
+    @Override
+    public void saveAll(Collection<T> items, final Callback<List<T>> callback) {
+        final List<T> toSave = new ArrayList<T>(items);
+
+        restAdapter.execute(Priority.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                List<String> ids = new ArrayList<String>(toSave.size());
+                List<T> withoutId = new ArrayList<T>();
+                for (T item : toSave) {
+                    String id = idOf(item);
+                    ids.add(id);
+                    if (id == null) {
+                        withoutId.add(item);
+                    }
+                }
+
+                List<T> result = new ArrayList<T>(toSave.size());
+                try {
+                    Iterator<T> created = withoutId.isEmpty() ? withoutId.iterator()
+                            : getHandler().onSaveAll(withoutId).iterator();
+                    for (int i = 0; i < toSave.size(); i++) {
+                        T item = ids.get(i) == null ? created.next() : toSave.get(i);
+                        store.save(item);
+                        if (ids.get(i) != null) {
+                            enqueue(new PendingWrite<T>(ids.get(i), item));
+                        }
+                        result.add(item);
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, e.getMessage(), e);
+                    callback.onFailure(e);
+                    return;
+                }
+                callback.onSuccess(result);
+            }
+        }, callback);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(final String id, final Callback<Void> callback) {
+        restAdapter.execute(Priority.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Serializable storedId = storedIdFor(id);
+                    if (storedId != null) {
+                        store.remove(storedId);
+                    }
+                } catch (Exception e) {
+                    callback.onFailure(e);
+                    return;
+                }
+                enqueue(new PendingWrite<T>(id, null));
+                callback.onSuccess(null);
+            }
+        }, callback);
+    }
+
+    /**
+     * Sends the queued writes to the server now, a batch at a time, until the
+     * queue is empty or a write fails.  Failed writes are queued again to be
+     * retried later, unless a newer write of their id was queued meanwhile.
+     * 
+     * Flushes of this pipe run one at a time; a flush started while another
+     * runs waits for it to finish.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            flushPending();
+        }
+    }
+
+    private void flushPending() {
+        boolean failed = false;
+        while (!failed) {
+            List<PendingWrite<T>> batch = new ArrayList<PendingWrite<T>>();
+            synchronized (pending) {
+                flushScheduled = false;
+                Iterator<PendingWrite<T>> writes = pending.values().iterator();
+                while (writes.hasNext() && batch.size() < cacheConfig.getMaxBatchSize()) {
+                    batch.add(writes.next());
+                    writes.remove();
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            long retryDelay = 0;
+            List<PendingWrite<T>> saves = new ArrayList<PendingWrite<T>>();
+            for (PendingWrite<T> write : batch) {
+                if (bulkSaves && write.item != null) {
+                    saves.add(write);
+                    continue;
+                }
+                try {
+                    send(write);
+                } catch (Exception e) {
+                    failed = true;
+                    retryDelay = Math.max(retryDelay, retryLater(write, e));
+                }
+            }
+
+            if (!saves.isEmpty()) {
+                List<T> items = new ArrayList<T>(saves.size());
+                for (PendingWrite<T> write : saves) {
+                    items.add(write.item);
+                }
+                try {
+                    getHandler().onSaveAll(items);
+                } catch (Exception e) {
+                    failed = true;
+                    int saved = e instanceof PartialSaveException ? ((PartialSaveException) e).getSaved().size() : 0;
+                    for (PendingWrite<T> write : saves.subList(saved, saves.size())) {
+                        retryDelay = Math.max(retryDelay, retryLater(write, e));
+                    }
+                }
+            }
+
+            if (failed) {
+                synchronized (pending) {
+                    schedule(retryDelay);
+                }
+            }
+        }
+    }
+
+    @Override
+    public PipeHandler<T> getHandler() {
+        return restAdapter.getHandler();
+    }
+
+    @Override
+    public Class<T> getKlass() {
+        return restAdapter.getKlass();
+    }
+
+    @Override
+    public Gson getGson() {
+        return restAdapter.getGson();
+    }
+
+    @Override
+    public RequestBuilder<T> getRequestBuilder() {
+        return restAdapter.getRequestBuilder();
+    }
+
+    @Override
+    public ResponseParser<T> getResponseParser() {
+        return restAdapter.getResponseParser();
+    }
+
+    /**
+     * Reads from the server and stores the result.
+     *
+     * @param filter the read to make
+     * @param revalidating true if the store already answered this read, in 
+     * which case an unchanged response is neither parsed nor stored
+     * @return the items read, or null if they were unchanged
+     */
+    private List<T> fetch(ReadFilter filter, boolean revalidating) {
+        HeaderAndBody response = getHandler().onRawReadWithFilter(filter, this);
+
+        String key = keyOf(filter);
+        String validator = validatorOf(response);
+        String previous;
+        synchronized (validators) {
+            previous = validators.put(key, validator);
+        }
+        if (revalidating && validator != null && validator.equals(previous)) {
+            return null;
+        }
+
+        List<T> fresh = getResponseParser().handleResponse(response, getKlass());
+        Set<String> freshIds = new HashSet<String>(fresh.size());
+        storeFresh(fresh, freshIds);
+
+        if (isFullRead(filter)) {
+            removeStale(freshIds);
+        }
+
+        return fresh;
+    }
+
+    /**
+     * Saves the items read from the server, except those with a write still
+     * pending, and adds their ids to freshIds.
+     */
+    private void storeFresh(List<T> fresh, Set<String> freshIds) {
+        List<T> toStore = new ArrayList<T>(fresh.size());
+        synchronized (pending) {
+            for (T item : fresh) {
+                String id = idOf(item);
+                freshIds.add(id);
+                if (!pending.containsKey(id)) {
+                    toStore.add(item);
+                }
+            }
+        }
+        store.saveAll(toStore);
+    }
+
+    /**
+     * Removes the stored items which a full read did not return, except those
+     * with a write still pending.
+     */
+    private void removeStale(Set<String> freshIds) {
+        List<Serializable> stale = new ArrayList<Serializable>();
+        for (T item : new ArrayList<T>(store.readAll())) {
+            Serializable id = idValueOf(item);
+            synchronized (pending) {
+                if (id != null && !freshIds.contains(id.toString()) && !pending.containsKey(id.toString())) {
+                    stale.add(id);
+                }
+            }
+        }
+        store.removeAll(stale);
+    }
+
+    /**
+     * Queues a failed write again, unless it has been tried too many times.
+     *
+     * @return the delay before it is retried, 0 if it is dropped
+     */
+    private long retryLater(PendingWrite<T> write, Exception e) {
+        write.attempts++;
+        if (write.attempts > cacheConfig.getMaxRetries()) {
+            Log.e(TAG, "Dropping the write of " + write.id + " after " + write.attempts + " attempts", e);
+            return 0;
+        }
+        Log.w(TAG, "Writing " + write.id + " failed, it will be retried", e);
+        synchronized (pending) {
+            if (!pending.containsKey(write.id)) {
+                pending.put(write.id, write);
+            }
+        }
+        return cacheConfig.getRetryDelay() << (write.attempts - 1);
+    }
+
+    private void send(PendingWrite<T> write) {
+        if (write.item == null) {
+            getHandler().onRemove(write.id);
+        } else {
+            getHandler().onRawSave(write.id, getRequestBuilder().getBody(write.item));
+        }
+    }
+
+    private void enqueue(PendingWrite<T> write) {
+        synchronized (pending) {
+            pending.remove(write.id);
+            pending.put(write.id, write);
+            schedule(cacheConfig.getFlushDelay());
+        }
+    }
+
+    /**
+     * Must hold the lock on pending
+     */
+    private void schedule(long delay) {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            WRITE_BEHIND_EXECUTOR.schedule(flushTask, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Pipes use String ids while a store may use the id's own type, so when
+     * the String is not found the stored items are searched for it.
+     */
+    private Serializable storedIdFor(String id) {
+        if (store.read(id) != null) {
+            return id;
+        }
+        for (T item : store.readAll()) {
+            Serializable storedId = idValueOf(item);
+            if (storedId != null && storedId.toString().equals(id)) {
+                return storedId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the read returns every item, so stored items it did 
+     * not return are stale
+     */
+    private boolean isFullRead(ReadFilter filter) {
+        return !paged
+                && filter.getLinkUri() == null
+                && (filter.getWhere() == null || filter.getWhere().length() == 0)
+                && (filter.getLimit() == null || filter.getLimit() == Integer.MAX_VALUE)
+                && (filter.getOffset() == null || filter.getOffset() == 0);
+    }
+
+    private static String keyOf(ReadFilter filter) {
+        return filter.getLinkUri() == null ? filter.getQuery() : filter.getLinkUri().toString();
+    }
+
+    private static String validatorOf(HeaderAndBody response) {
+        for (String header : VALIDATOR_HEADERS) {
+            Object value = response.getHeader(header);
+            if (value != null) {
+                return value.toString();
+            }
+        }
+        return null;
+    }
+
+    private static String idOf(Object item) {
+        Serializable id = idValueOf(item);
+        return id == null ? null : id.toString();
+    }
+
+    private static Serializable idValueOf(Object item) {
+        return (Serializable) Scan.recordIdPropertyIn(item.getClass()).getValue(item);
+    }
+
+    /**
+     * A save, or a remove when item is null, waiting for the server
+     */
+    private static class PendingWrite<T> {
+
+        private final String id;
+        private final T item;
+        private int attempts = 0;
+
+        PendingWrite(String id, T item) {
+            this.id = id;
+            this.item = item;
+        }
+    }
+
+}
@@ -32,6 +32,14 @@ public final class DefaultPipeFactory implements PipeFactory {
 
             createdPipe = new RestAdapter<T>(klass, url, config);
 
+        } else if (PipeTypes.CACHED_REST.equals(config.getType())) {
+            if (config.getCacheConfig() == null || config.getCacheConfig().getStore() == null) {
+                throw new IllegalArgumentException("PipeConfig.cacheConfig.store may not be null");
+            }
+            URL url = UrlUtils.appendToBaseURL(config.getBaseURL(), config.getEndpoint());
+
+            createdPipe = new CachingRestAdapter<T>(klass, url, config);
+
         } else {
             throw new IllegalArgumentException("Type is not supported yet");
         }
@@ -0,0 +1,198 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.aerogear.android.pipeline.PipeScheduler;
+
+/**
+ * Runs the tasks of Pipes on a bounded number of threads.
+ * 
+ * No more than maxPerHost tasks talk to one host at a time, the rest wait in
+ * a queue so one slow server can not take every thread.  Waiting interactive
+ * tasks start before waiting background ones; tasks of the same priority 
+ * start in the order they came in.  Once maxQueued tasks are waiting new 
+ * ones are rejected, which bounds the memory held by a burst of calls.
+ * 
+ * Threads are only started when needed and stop after being idle for a 
+ * while.  Unless given another scheduler, every Pipe shares the one returned
+ * by {@link #getInstance()}.
+ */
+public final class DefaultPipeScheduler implements PipeScheduler {
+
+    private static final String TAG = DefaultPipeScheduler.class.getSimpleName();
+    private static final int KEEP_ALIVE_SECONDS = 30;
+    private static final DefaultPipeScheduler INSTANCE = new DefaultPipeScheduler(8, 4, 256);
+
+    private final int maxThreads;
+    private final int maxPerHost;
+    private final int maxQueued;
+    private final ExecutorService executor;
+    private final Deque<Task> interactive = new ArrayDeque<Task>();
+    private final Deque<Task> background = new ArrayDeque<Task>();
+    private final Map<String, Integer> runningPerHost = new HashMap<String, Integer>();
+    private int running = 0;
+
+    /**
+     * @param maxThreads the most tasks run at once
+     * @param maxPerHost the most tasks run at once against one host
+     * @param maxQueued the most tasks waiting to run
+     */
+    public DefaultPipeScheduler(int maxThreads, int maxPerHost, int maxQueued) {
+        if (maxThreads < 1 || maxPerHost < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("maxThreads and maxPerHost must be at least 1, maxQueued at least 0");
+        }
+        this.maxThreads = maxThreads;
+        this.maxPerHost = maxPerHost;
+        this.maxQueued = maxQueued;
+
+        // tasks are only handed over when a thread is free, so the queue stays short
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(maxThreads, maxThreads, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, TAG + " #" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        threadPool.allowCoreThreadTimeOut(true);
+        this.executor = threadPool;
+    }
+
+    /**
+     * @return the scheduler shared by the Pipes of the application: 8 
+     * threads, 4 tasks per host and 256 waiting tasks
+     */
+    public static DefaultPipeScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void execute(URL url, Priority priority, Runnable task) throws RejectedExecutionException {
+        if (interactive.size() + background.size() >= maxQueued) {
+            throw new RejectedExecutionException(maxQueued + " tasks are already waiting to run");
+        }
+        Task queued = new Task(url == null ? null : url.getHost(), task);
+        if (priority == Priority.INTERACTIVE) {
+            interactive.addLast(queued);
+        } else {
+            background.addLast(queued);
+        }
+        dispatch();
+    }
+
+    /**
+     * @return the number of tasks waiting to run
+     */
+    public synchronized int getQueuedCount() {
+        return interactive.size() + background.size();
+    }
+
+    /**
+     * Starts waiting tasks while there are free threads and tasks whose host
+     * is below its limit.
+     */
+    private void dispatch() {
+        while (running < maxThreads) {
+            Task next = takeRunnable(interactive);
+            if (next == null) {
+                next = takeRunnable(background);
+            }
+            if (next == null) {
+                return;
+            }
+            started(next);
+            executor.execute(next);
+        }
+    }
+
+    private Task takeRunnable(Deque<Task> queue) {
+        Iterator<Task> tasks = queue.iterator();
+        while (tasks.hasNext()) {
+            Task task = tasks.next();
+            if (task.host == null || runningAt(task.host) < maxPerHost) {
+                tasks.remove();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private int runningAt(String host) {
+        Integer count = runningPerHost.get(host);
+        return count == null ? 0 : count;
+    }
+
+    private void started(Task task) {
+        running++;
+        if (task.host != null) {
+            runningPerHost.put(task.host, runningAt(task.host) + 1);
+        }
+    }
+
+    private synchronized void finished(Task task) {
+        running--;
+        if (task.host != null) {
+            int count = runningAt(task.host) - 1;
+            if (count == 0) {
+                runningPerHost.remove(task.host);
+            } else {
+                runningPerHost.put(task.host, count);
+            }
+        }
+        dispatch();
+    }
+
+    private final class Task implements Runnable {
+
+        private final String host;
+        private final Runnable task;
+
+        Task(String host, Runnable task) {
+            this.host = host;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                finished(this);
+            }
+        }
+    }
+}
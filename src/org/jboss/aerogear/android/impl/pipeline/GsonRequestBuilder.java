@@ -16,12 +16,15 @@
  */
 package org.jboss.aerogear.android.impl.pipeline;
 
+import java.util.List;
+
+import org.jboss.aerogear.android.impl.util.GsonRegistry;
+import org.jboss.aerogear.android.pipeline.BulkRequestBuilder;
 import org.jboss.aerogear.android.pipeline.MarshallingConfig;
-import org.jboss.aerogear.android.pipeline.RequestBuilder;
 
 import com.google.gson.Gson;
 
-public class GsonRequestBuilder<T> implements RequestBuilder<T> {
+public class GsonRequestBuilder<T> implements BulkRequestBuilder<T> {
 
     public static final String CONTENT_TYPE = "application/json";
 
@@ -29,7 +32,7 @@ public class GsonRequestBuilder<T> implements RequestBuilder<T> {
     private MarshallingConfig marshallingConfig = new MarshallingConfig();
 
     public GsonRequestBuilder() {
-        this.gson = new Gson();
+        this.gson = GsonRegistry.getDefault();
     }
 
     public GsonRequestBuilder(Gson gson) {
@@ -41,6 +44,16 @@ public class GsonRequestBuilder<T> implements RequestBuilder<T> {
         return gson.toJson(data).getBytes(marshallingConfig.getEncoding());
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * The objects are sent as a JSON array.
+     */
+    @Override
+    public byte[] getBulkBody(List<T> data) {
+        return gson.toJson(data).getBytes(marshallingConfig.getEncoding());
+    }
+
     /**
      * @deprecated This method exists to support another deprecated method while we transition off of it.  {@link  PipeConfig#setGsonBuilder(com.google.gson.GsonBuilder) }
      */
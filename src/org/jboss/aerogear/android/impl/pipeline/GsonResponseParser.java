@@ -17,25 +17,49 @@
 package org.jboss.aerogear.android.impl.pipeline;
 
 import org.jboss.aerogear.android.pipeline.MarshallingConfig;
-import org.jboss.aerogear.android.pipeline.ResponseParser;
+import org.jboss.aerogear.android.pipeline.StreamingResponseParser;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
-import java.nio.charset.Charset;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import org.jboss.aerogear.android.http.HeaderAndBody;
 import org.jboss.aerogear.android.impl.util.ClassUtils;
+import org.jboss.aerogear.android.impl.util.GsonRegistry;
 
-public class GsonResponseParser<T> implements ResponseParser<T> {
+/**
+ * Parses JSON responses with Gson.
+ * 
+ * The body is read as a stream: the reader skips over everything but the 
+ * dataRoot and binds the items found there one by one, so no String or 
+ * JsonElement tree of the whole response is built.  Should the dataRoot not
+ * be found the body is parsed again as a tree, which returns the deepest 
+ * element of the dataRoot that was found as before.  The bytes read while
+ * looking for the dataRoot are kept for that, and dropped once it is found.
+ */
+public class GsonResponseParser<T> implements StreamingResponseParser<T> {
 
     private Gson gson;
     private MarshallingConfig marshallingConfig = new MarshallingConfig();
 
     public GsonResponseParser() {
-        this.gson = new Gson();
+        this.gson = GsonRegistry.getDefault();
     }
 
     public GsonResponseParser(Gson gson) {
@@ -54,18 +78,105 @@ public class GsonResponseParser<T> implements ResponseParser<T> {
 
     @Override
     public List<T> handleResponse(HeaderAndBody httpResponse, Class<T> responseType) {
-        byte[] responseBody = httpResponse.getBody();
+        Iterator<T> items = iterateResponse(httpResponse, responseType);
+        List<T> result = new ArrayList<T>();
+        while (items.hasNext()) {
+            result.add(items.next());
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The whole body is the saved object; the dataRoot is not used.
+     */
+    @Override
+    public T handleSaveResponse(HeaderAndBody httpResponse, Class<T> responseType) {
+        Reader body = new InputStreamReader(httpResponse.openBody(), marshallingConfig.getEncoding());
+        try {
+            return gson.fromJson(body, responseType);
+        } finally {
+            close(body);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<T> iterateResponse(HeaderAndBody httpResponse, Class<T> responseType) {
+        return iterateResponse(httpResponse.openBody(), responseType);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<T> iterateResponse(InputStream body, Class<T> responseType) {
+        RecordingInputStream recording = new RecordingInputStream(body);
+        JsonReader reader = new JsonReader(new InputStreamReader(recording, marshallingConfig.getEncoding()));
+        reader.setLenient(true);
+        try {
+            if (skipToDataRoot(reader, marshallingConfig.getDataRoot())) {
+                ItemIterator items = new ItemIterator(reader, responseType);
+                recording.stopRecording();
+                return items;
+            }
+            return handleResponseTree(recording.replay(), responseType).iterator();
+        } catch (IOException e) {
+            throw new JsonParseException(e);
+        } finally {
+            if (!recording.stoppedRecording()) {
+                close(reader);
+            }
+        }
+    }
+
+    /**
+     * Moves the reader onto the value at dataRoot.
+     * 
+     * @return false if the response has no value at dataRoot
+     */
+    private boolean skipToDataRoot(JsonReader reader, String dataRoot) throws IOException {
+        if (reader.peek() == JsonToken.END_DOCUMENT) {
+            return false;
+        }
+
+        for (String identifier : dataRoot.split("\\.")) {
+            if (identifier.equals("")) {
+                return true;
+            }
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return false;
+            }
+            reader.beginObject();
+            boolean found = false;
+            while (!found && reader.hasNext()) {
+                if (reader.nextName().equals(identifier)) {
+                    found = true;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<T> handleResponseTree(InputStream body, Class<T> responseType) {
         List<T> result;
-        String responseAsString = new String(responseBody, marshallingConfig.getEncoding());
         JsonParser parser = new JsonParser();
-        JsonElement httpJsonResult = parser.parse(responseAsString);
+        JsonElement httpJsonResult = parser.parse(new InputStreamReader(body, marshallingConfig.getEncoding()));
         httpJsonResult = getResultElement(httpJsonResult, marshallingConfig.getDataRoot());
         if (httpJsonResult.isJsonArray()) {
-            T[] resultArray = gson.fromJson(httpJsonResult.toString(), ClassUtils.asArrayClass(responseType));
+            T[] resultArray = gson.fromJson(httpJsonResult, ClassUtils.asArrayClass(responseType));
             result = Arrays.asList(resultArray);
 
         } else {
-            T resultObject = gson.fromJson(httpJsonResult.toString(), responseType);
+            T resultObject = gson.fromJson(httpJsonResult, responseType);
             List<T> resultList = new ArrayList<T>(1);
             resultList.add(resultObject);
             result = resultList;
@@ -109,6 +220,150 @@ public class GsonResponseParser<T> implements ResponseParser<T> {
         return element;
     }
 
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    /**
+     * Keeps the bytes read through it until told to stop, so they can be
+     * read again.
+     */
+    private static class RecordingInputStream extends FilterInputStream {
+
+        private ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+
+        RecordingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1 && recorded != null) {
+                recorded.write(read);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0 && recorded != null) {
+                recorded.write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            if (recorded == null) {
+                return super.skip(count);
+            }
+            // read, so skipped bytes are recorded too
+            long skipped = 0;
+            while (skipped < count && read() != -1) {
+                skipped++;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        void stopRecording() {
+            recorded = null;
+        }
+
+        boolean stoppedRecording() {
+            return recorded == null;
+        }
+
+        /**
+         * @return the whole stream again, from its first byte
+         */
+        InputStream replay() {
+            return new SequenceInputStream(new ByteArrayInputStream(recorded.toByteArray()), in);
+        }
+    }
+
+    /**
+     * Decodes the items at the dataRoot as it is advanced: each element of an
+     * array, or the single object found there.
+     */
+    private class ItemIterator implements Iterator<T>, Closeable {
+
+        private final JsonReader reader;
+        private final Class<T> responseType;
+        private final boolean array;
+        private boolean done = false;
+
+        ItemIterator(JsonReader reader, Class<T> responseType) throws IOException {
+            this.reader = reader;
+            this.responseType = responseType;
+            this.array = reader.peek() == JsonToken.BEGIN_ARRAY;
+            if (array) {
+                reader.beginArray();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (done) {
+                return false;
+            }
+            try {
+                if (array && !reader.hasNext()) {
+                    reader.endArray();
+                    finish();
+                }
+            } catch (IOException e) {
+                finish();
+                throw new JsonParseException(e);
+            }
+            return !done;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                T item = gson.fromJson(reader, responseType);
+                if (!array) {
+                    finish();
+                }
+                return item;
+            } catch (RuntimeException e) {
+                finish();
+                throw e;
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Closes the body before its last item has been decoded.
+         */
+        @Override
+        public void close() {
+            finish();
+        }
+
+        private void finish() {
+            done = true;
+            GsonResponseParser.close(reader);
+        }
+    }
+
     /**
      * The marshalling config sets options for reading and processing data
      * 
@@ -0,0 +1,104 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Shares the result of a call with every caller which asks for the same key
+ * while it is running.  The first caller makes the call, the others wait for
+ * its result, or its exception.  Results are not kept once the call is done.
+ * <p>
+ * Every caller is handed the same result object, so results should be
+ * immutable, or copied by the caller before they are changed.
+ */
+class InFlightCalls<V> {
+
+    private final Map<String, Call<V>> calls = new HashMap<String, Call<V>>();
+
+    /**
+     * @param key what identifies the call
+     * @param call makes the call if no call of the same key is running
+     * @return the result of the call
+     */
+    V run(String key, Callable<V> call) {
+        Call<V> running;
+        boolean first = false;
+        synchronized (calls) {
+            running = calls.get(key);
+            if (running == null) {
+                running = new Call<V>();
+                calls.put(key, running);
+                first = true;
+            }
+        }
+
+        if (first) {
+            try {
+                running.result = call.call();
+            } catch (Exception e) {
+                running.exception = e;
+            } catch (Error e) {
+                running.exception = e;
+            } finally {
+                synchronized (calls) {
+                    calls.remove(key);
+                }
+                running.done.countDown();
+            }
+        } else {
+            joined(key);
+            try {
+                running.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        return running.get();
+    }
+
+    /**
+     * Called when a caller waits for a call which is already running.
+     *
+     * @param key what identifies the call
+     */
+    void joined(String key) {
+    }
+
+    private static final class Call<V> {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile V result;
+        private volatile Throwable exception;
+
+        V get() {
+            if (exception instanceof RuntimeException) {
+                throw (RuntimeException) exception;
+            } else if (exception instanceof Error) {
+                throw (Error) exception;
+            } else if (exception != null) {
+                throw new RuntimeException(exception);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jboss.aerogear.android.ReadFilter;
+import org.jboss.aerogear.android.pipeline.BatchConfig;
+import org.jboss.aerogear.android.pipeline.ItemCallback;
+import org.jboss.aerogear.android.pipeline.Pipe;
+import org.jboss.aerogear.android.pipeline.PipeHandler;
+
+/**
+ * Runs the incremental reads of the pipes: items are pulled from the handler
+ * as they are decoded and handed to the callback in batches.
+ */
+final class ItemBatches {
+
+    private static final String TAG = ItemBatches.class.getSimpleName();
+
+    private ItemBatches() {
+    }
+
+    /**
+     * Reads through handler and delivers the items to callback, followed by 
+     * onComplete, or onFailure if anything goes wrong.  Runs on the calling
+     * thread.  An iterator which is {@link Closeable} is closed once 
+     * delivery stops, whether all of its items were delivered or not.
+     */
+    static <T> void read(PipeHandler<T> handler, ReadFilter filter, Pipe<T> requestingPipe,
+                         BatchConfig batchConfig, ItemCallback<T> callback) {
+        Iterator<T> items = null;
+        try {
+            items = handler.onReadItems(filter, requestingPipe);
+            deliver(items, batchConfig, callback);
+        } catch (Exception e) {
+            Log.e(TAG, e.getMessage(), e);
+            callback.onFailure(e);
+            return;
+        } finally {
+            if (items instanceof Closeable) {
+                try {
+                    ((Closeable) items).close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+        callback.onComplete();
+    }
+
+    /**
+     * Hands the items to callback in batches.  An item is only decoded once 
+     * the batch before it has been accepted.
+     */
+    static <T> void deliver(Iterator<T> items, BatchConfig batchConfig, ItemCallback<T> callback) {
+        if (batchConfig == null) {
+            batchConfig = new BatchConfig();
+        }
+        int batchSize = batchConfig.getBatchSize();
+        long batchDelay = batchConfig.getBatchDelay();
+
+        List<T> batch = new ArrayList<T>();
+        long batchStart = 0;
+        while (items.hasNext()) {
+            if (batch.isEmpty()) {
+                batchStart = System.currentTimeMillis();
+            }
+            batch.add(items.next());
+            if (batch.size() >= batchSize
+                    || (batchDelay > 0 && System.currentTimeMillis() - batchStart >= batchDelay)) {
+                callback.onItems(batch);
+                batch = new ArrayList<T>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            callback.onItems(batch);
+        }
+    }
+}
@@ -17,6 +17,8 @@
 package org.jboss.aerogear.android.impl.pipeline;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.jboss.aerogear.android.Callback;
@@ -24,9 +26,12 @@ import org.jboss.aerogear.android.ReadFilter;
 import org.jboss.aerogear.android.impl.pipeline.loader.AbstractPipeLoader;
 import org.jboss.aerogear.android.impl.pipeline.loader.ReadLoader;
 import org.jboss.aerogear.android.impl.pipeline.loader.RemoveLoader;
+import org.jboss.aerogear.android.impl.pipeline.loader.SaveAllLoader;
 import org.jboss.aerogear.android.impl.pipeline.loader.SaveLoader;
 import org.jboss.aerogear.android.pipeline.AbstractActivityCallback;
 import org.jboss.aerogear.android.pipeline.AbstractFragmentCallback;
+import org.jboss.aerogear.android.pipeline.BatchConfig;
+import org.jboss.aerogear.android.pipeline.ItemCallback;
 import org.jboss.aerogear.android.pipeline.LoaderPipe;
 import org.jboss.aerogear.android.pipeline.Pipe;
 import org.jboss.aerogear.android.pipeline.PipeHandler;
@@ -73,7 +78,7 @@ public class LoaderAdapter<T> implements LoaderPipe<T>,
 
     private static enum Methods {
 
-        READ, SAVE, REMOVE
+        READ, SAVE, SAVE_ALL, REMOVE
     }
 
     private final Context applicationContext;
@@ -169,6 +174,17 @@ public class LoaderAdapter<T> implements LoaderPipe<T>,
         manager.initLoader(id, bundle, this);
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * Incremental reads do not go through a Loader: they are run by the 
+     * wrapped Pipe and the callback is called on its reading thread.
+     */
+    @Override
+    public void read(ReadFilter filter, BatchConfig batchConfig, ItemCallback<T> callback) {
+        pipe.read(filter, batchConfig, callback);
+    }
+
     @Override
     public void save(T item, Callback<T> callback) {
         int id = Objects.hashCode(name, item, callback);
@@ -180,6 +196,16 @@ public class LoaderAdapter<T> implements LoaderPipe<T>,
         manager.initLoader(id, bundle, this);
     }
 
+    @Override
+    public void saveAll(Collection<T> items, Callback<List<T>> callback) {
+        int id = Objects.hashCode(name, items, callback);
+        Bundle bundle = new Bundle();
+        bundle.putSerializable(CALLBACK, callback);
+        bundle.putSerializable(ITEMS, new ArrayList<T>(items));
+        bundle.putSerializable(METHOD, Methods.SAVE_ALL);
+        manager.initLoader(id, bundle, this);
+    }
+
     @Override
     public void remove(String toRemoveId, Callback<Void> callback) {
         int id = Objects.hashCode(name, toRemoveId, callback);
@@ -243,6 +269,12 @@ public class LoaderAdapter<T> implements LoaderPipe<T>,
                     pipe.getHandler(), data, dataId);
         }
             break;
+        case SAVE_ALL: {
+            List items = (List) bundle.get(ITEMS);
+            loader = new SaveAllLoader(applicationContext, callback,
+                    pipe.getHandler(), items);
+        }
+            break;
         }
         return loader;
     }
@@ -257,7 +289,9 @@ public class LoaderAdapter<T> implements LoaderPipe<T>,
         } else {
             final AbstractPipeLoader<HeaderAndBody> modernLoader = (AbstractPipeLoader<HeaderAndBody>) loader;
             Object object = null;
-            if (!modernLoader.hasException() && data != null && data.getBody() != null) {
+            if (modernLoader instanceof SaveAllLoader) {
+                object = ((SaveAllLoader) modernLoader).getSaved();
+            } else if (!modernLoader.hasException() && data != null) {
                 object = extractObject(data, modernLoader);
             }
 
@@ -16,14 +16,12 @@
  */
 package org.jboss.aerogear.android.impl.pipeline;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Field;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -31,8 +29,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import org.jboss.aerogear.android.http.RequestBody;
+import org.jboss.aerogear.android.impl.reflection.ClassMetadata;
 import org.jboss.aerogear.android.impl.reflection.Property;
-import org.jboss.aerogear.android.pipeline.RequestBuilder;
+import org.jboss.aerogear.android.pipeline.StreamingRequestBuilder;
 import org.jboss.aerogear.android.pipeline.TypeAndStream;
 
 import android.util.Log;
@@ -42,30 +42,78 @@ import org.jboss.aerogear.android.pipeline.MarshallingConfig;
 /**
  * This class generates a Multipart request with the type multipart/form-data
  *
- * It will load the entire contents of files into memory before it uploads them.
+ * Pipes stream the request to the server: files are copied to the connection
+ * in blocks as it is sent, and its length is sent up front when the size of
+ * every part is known.  getBody still loads the entire contents of files into
+ * memory.
  *
  */
-public class MultipartRequestBuilder<T> implements RequestBuilder<T> {
+public class MultipartRequestBuilder<T> implements StreamingRequestBuilder<T> {
 
     private static final String TAG = MultipartRequestBuilder.class.getSimpleName();
     private static final String lineEnd = "\r\n";
     private static final String twoHyphens = "--";
-    private final String boundary = UUID.randomUUID().toString();
-    private final String CONTENT_TYPE = "multipart/form-data; boundary=" + boundary;
+    private static final int BUFFER_SIZE = 8192;
+    private final String boundary;
+    private final boolean fixedBoundary;
+    private final String CONTENT_TYPE;
     private final String OCTECT_STREAM_MIME_TYPE = "application/octet-stream";
     private MarshallingConfig marshallingConfig = new MarshallingConfig();
 
+    public MultipartRequestBuilder() {
+        this(UUID.randomUUID().toString(), false);
+    }
+
+    /**
+     * Every body built with the same boundary and data is the same, which a 
+     * resumable upload resumed after a restart relies on.
+     * 
+     * @param boundary the boundary between the parts
+     */
+    public MultipartRequestBuilder(String boundary) {
+        this(boundary, true);
+    }
+
+    private MultipartRequestBuilder(String boundary, boolean fixedBoundary) {
+        this.boundary = boundary;
+        this.fixedBoundary = fixedBoundary;
+        this.CONTENT_TYPE = "multipart/form-data; boundary=" + boundary;
+    }
+
+    /**
+     * @return false if the boundary was chosen at random, so the body of an
+     * item differs from one builder to the next
+     */
+    public boolean hasFixedBoundary() {
+        return fixedBoundary;
+    }
+
     @Override
     public byte[] getBody(T data) {
+        RequestBody body = getStreamingBody(data);
+        long contentLength = body.getContentLength();
+        ByteArrayOutputStream binaryStream = new ByteArrayOutputStream(
+                contentLength >= 0 && contentLength <= Integer.MAX_VALUE ? (int) contentLength : BUFFER_SIZE);
+        try {
+            body.writeTo(binaryStream);
+        } catch (IOException ex) {
+            Log.e(TAG, ex.getMessage(), ex);
+            throw new IllegalStateException(ex);
+        }
+        return binaryStream.toByteArray();
+    }
 
-        ByteArrayOutputStream binaryStream = new ByteArrayOutputStream();
-        DataOutputStream dataOutputStream = new DataOutputStream(binaryStream);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RequestBody getStreamingBody(T data) {
 
         try {
             List<Property> properties = getProperties(data.getClass());
 
             Map<String, String> fields = new HashMap<String, String>(properties.size());
-            Map<String, TypeAndStream> files = new HashMap<String, TypeAndStream>(properties.size());
+            Map<String, FilePart> files = new HashMap<String, FilePart>(properties.size());
 
             for (Property propertyDescriptor : properties) {
 
@@ -78,70 +126,66 @@ public class MultipartRequestBuilder<T> implements RequestBuilder<T> {
                 } else {
                     if (value instanceof byte[]) {
                         files.put(propertyDescriptor.getFieldName(),
-                                new TypeAndStream(OCTECT_STREAM_MIME_TYPE,
+                                new FilePart(OCTECT_STREAM_MIME_TYPE,
                                         propertyDescriptor.getFieldName(),
-                                        new ByteArrayInputStream((byte[]) value)));
+                                        (byte[]) value));
                     } else if (value instanceof InputStream) {
                         files.put(propertyDescriptor.getFieldName(),
-                                new TypeAndStream(OCTECT_STREAM_MIME_TYPE,
+                                new FilePart(OCTECT_STREAM_MIME_TYPE,
                                         propertyDescriptor.getFieldName(),
                                         (InputStream) value));
                     } else if (value instanceof File) {
                         files.put(propertyDescriptor.getFieldName(),
-                                new TypeAndStream(getMimeType((File) value),
+                                new FilePart(getMimeType((File) value),
                                         ((File) value).getName(),
-                                        new FileInputStream((File) value)));
+                                        (File) value));
                     } else if (value instanceof TypeAndStream) {
+                        TypeAndStream type = (TypeAndStream) value;
                         files.put(propertyDescriptor.getFieldName(),
-                                (TypeAndStream) value);
+                                new FilePart(type.getMimeType(), type.getFileName(), type.getInputStream()));
                     } else {
                         throw new IllegalArgumentException(propertyDescriptor.getFieldName() + " is not a supported type for Multipart uplaod");
                     }
                 }
             }
 
+            MultipartBody body = new MultipartBody();
+
             for (Map.Entry<String, String> field : fields.entrySet()) {
-                setField(dataOutputStream, field.getKey(), field.getValue());
+                setField(body, field.getKey(), field.getValue());
             }
 
             if (files.size() == 1) {
-                Map.Entry<String, TypeAndStream> pair = files.entrySet().iterator().next();
-                TypeAndStream type = pair.getValue();
+                Map.Entry<String, FilePart> pair = files.entrySet().iterator().next();
+                FilePart file = pair.getValue();
                 String name = pair.getKey();
-                dataOutputStream.writeBytes(twoHyphens + boundary + lineEnd);
-                dataOutputStream.writeBytes("Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + type.getFileName() + "\"" + lineEnd);
-                dataOutputStream.writeBytes("Content-Type: " + type.getMimeType() + lineEnd);
-                dataOutputStream.writeBytes("Content-Transfer-Encoding: binary" + lineEnd);
-                dataOutputStream.writeBytes(lineEnd);
-                int b;
-                while ((b = type.getInputStream().read()) != -1) {
-                    dataOutputStream.write(b);
-                }
-                dataOutputStream.writeBytes(lineEnd);
+                body.add(twoHyphens + boundary + lineEnd);
+                body.add("Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + file.fileName + "\"" + lineEnd);
+                body.add("Content-Type: " + file.mimeType + lineEnd);
+                body.add("Content-Transfer-Encoding: binary" + lineEnd);
+                body.add(lineEnd);
+                body.add(file);
+                body.add(lineEnd);
             } else if (files.size() > 1) {
-                String newBoundary = UUID.randomUUID().toString();
-                dataOutputStream.writeBytes(twoHyphens + boundary + lineEnd);
-                dataOutputStream.writeBytes("Content-Disposition: form-data; name=\"files\"" + lineEnd);
-                dataOutputStream.writeBytes("Content-Type: multipart/mixed; boundary=" + newBoundary + lineEnd);
-                dataOutputStream.writeBytes(lineEnd);
-
-                for (Map.Entry<String, TypeAndStream> file : files.entrySet()) {
-                    TypeAndStream type = file.getValue();
-                    dataOutputStream.writeBytes(twoHyphens + newBoundary + lineEnd);
-                    dataOutputStream.writeBytes("Content-Disposition: file; filename=\"" + type.getFileName() + "\"" + lineEnd);
-                    dataOutputStream.writeBytes("Content-Type: " + type.getMimeType() + lineEnd);
-                    dataOutputStream.writeBytes("Content-Transfer-Encoding: binary" + lineEnd);
-                    dataOutputStream.writeBytes(lineEnd);
-                    int b;
-                    while ((b = type.getInputStream().read()) != -1) {
-                        dataOutputStream.write(b);
-                    }
-                    dataOutputStream.writeBytes(lineEnd);
+                String newBoundary = boundary + "-files";
+                body.add(twoHyphens + boundary + lineEnd);
+                body.add("Content-Disposition: form-data; name=\"files\"" + lineEnd);
+                body.add("Content-Type: multipart/mixed; boundary=" + newBoundary + lineEnd);
+                body.add(lineEnd);
+
+                for (FilePart file : files.values()) {
+                    body.add(twoHyphens + newBoundary + lineEnd);
+                    body.add("Content-Disposition: file; filename=\"" + file.fileName + "\"" + lineEnd);
+                    body.add("Content-Type: " + file.mimeType + lineEnd);
+                    body.add("Content-Transfer-Encoding: binary" + lineEnd);
+                    body.add(lineEnd);
+                    body.add(file);
+                    body.add(lineEnd);
                 }
-                dataOutputStream.writeBytes(twoHyphens + newBoundary + twoHyphens + lineEnd);
+                body.add(twoHyphens + newBoundary + twoHyphens + lineEnd);
             }
-            dataOutputStream.writeBytes(twoHyphens + boundary + twoHyphens + lineEnd);
-            return binaryStream.toByteArray();
+            body.add(twoHyphens + boundary + twoHyphens + lineEnd);
+            return body;
         } catch (Exception ex) {
             Log.e(TAG, ex.getMessage(), ex);
             throw new IllegalStateException(ex);
@@ -150,16 +194,7 @@ public class MultipartRequestBuilder<T> implements RequestBuilder<T> {
     }
 
     private List<Property> getProperties(Class<? extends Object> baseClass) {
-
-        ArrayList<Property> properties = new ArrayList<Property>();
-
-        for (Field field : baseClass.getDeclaredFields()) {
-            Property property = new Property(baseClass, field.getName());
-            properties.add(property);
-        }
-
-        return properties;
-
+        return ClassMetadata.of(baseClass).getDeclaredProperties();
     }
 
     @Override
@@ -167,13 +202,13 @@ public class MultipartRequestBuilder<T> implements RequestBuilder<T> {
         return CONTENT_TYPE;
     }
 
-    private void setField(DataOutputStream dataOutputStream, String name, Object value) throws IOException {
-        dataOutputStream.writeBytes(twoHyphens + boundary + lineEnd);
-        dataOutputStream.writeBytes("Content-Disposition: form-data; name=\"" + name + "\"" + lineEnd);
-        dataOutputStream.writeBytes("Content-Type: text/plain; charset=US-ASCII" + lineEnd);
-        dataOutputStream.writeBytes("Content-Transfer-Encoding: 8bit" + lineEnd);
-        dataOutputStream.writeBytes(lineEnd);
-        dataOutputStream.writeBytes(value.toString() + lineEnd);
+    private void setField(MultipartBody body, String name, Object value) {
+        body.add(twoHyphens + boundary + lineEnd);
+        body.add("Content-Disposition: form-data; name=\"" + name + "\"" + lineEnd);
+        body.add("Content-Type: text/plain; charset=US-ASCII" + lineEnd);
+        body.add("Content-Transfer-Encoding: 8bit" + lineEnd);
+        body.add(lineEnd);
+        body.add(value.toString() + lineEnd);
     }
 
     private String getMimeType(File file) throws MalformedURLException {
@@ -189,4 +224,151 @@ public class MultipartRequestBuilder<T> implements RequestBuilder<T> {
     public void setMarshallingConfig(MarshallingConfig marshallingConfig) {
         this.marshallingConfig = marshallingConfig;
     }
+
+    /**
+     * The parts of a multipart body, written in order.  Text is collected
+     * into blocks and files are copied in blocks of BUFFER_SIZE bytes.
+     */
+    private static final class MultipartBody implements RequestBody {
+
+        private final List<Object> parts = new ArrayList<Object>();
+        private StringBuilder text = null;
+
+        void add(String value) {
+            if (text == null) {
+                text = new StringBuilder();
+                parts.add(text);
+            }
+            text.append(value);
+        }
+
+        void add(FilePart file) {
+            text = null;
+            parts.add(file);
+        }
+
+        @Override
+        public long getContentLength() {
+            long contentLength = 0;
+            for (Object part : parts) {
+                if (part instanceof FilePart) {
+                    long length = ((FilePart) part).length();
+                    if (length < 0) {
+                        return -1;
+                    }
+                    contentLength += length;
+                } else {
+                    contentLength += part.toString().length();
+                }
+            }
+            return contentLength;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            byte[] buffer = null;
+            for (Object part : parts) {
+                if (part instanceof FilePart) {
+                    if (buffer == null) {
+                        buffer = new byte[BUFFER_SIZE];
+                    }
+                    ((FilePart) part).writeTo(out, buffer);
+                } else {
+                    out.write(asBytes(part.toString()));
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * A body with an InputStream or TypeAndStream part is not, as writing
+         * it reads the stream to its end.
+         */
+        @Override
+        public boolean isReplayable() {
+            for (Object part : parts) {
+                if (part instanceof FilePart && ((FilePart) part).stream != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Keeps the low eight bits of each character, as 
+         * DataOutputStream.writeBytes does.
+         */
+        private static byte[] asBytes(String value) {
+            byte[] bytes = new byte[value.length()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) value.charAt(i);
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * The content of a file part: an array, a file which is only opened while
+     * it is written, or a stream of unknown length.
+     */
+    private static final class FilePart {
+
+        private final String mimeType;
+        private final String fileName;
+        private final byte[] bytes;
+        private final File file;
+        private final InputStream stream;
+
+        FilePart(String mimeType, String fileName, byte[] bytes) {
+            this(mimeType, fileName, bytes, null, null);
+        }
+
+        FilePart(String mimeType, String fileName, File file) {
+            this(mimeType, fileName, null, file, null);
+        }
+
+        FilePart(String mimeType, String fileName, InputStream stream) {
+            this(mimeType, fileName, null, null, stream);
+        }
+
+        private FilePart(String mimeType, String fileName, byte[] bytes, File file, InputStream stream) {
+            this.mimeType = mimeType;
+            this.fileName = fileName;
+            this.bytes = bytes;
+            this.file = file;
+            this.stream = stream;
+        }
+
+        long length() {
+            if (bytes != null) {
+                return bytes.length;
+            } else if (file != null) {
+                return file.length();
+            }
+            return -1;
+        }
+
+        void writeTo(OutputStream out, byte[] buffer) throws IOException {
+            if (bytes != null) {
+                out.write(bytes);
+            } else if (file != null) {
+                InputStream in = new FileInputStream(file);
+                try {
+                    copy(in, out, buffer);
+                } finally {
+                    in.close();
+                }
+            } else {
+                copy(stream, out, buffer);
+            }
+        }
+
+        private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
 }
@@ -23,13 +23,22 @@ import java.util.Locale;
 
 import org.jboss.aerogear.android.Pipeline;
 import org.jboss.aerogear.android.authentication.AuthenticationModule;
+import org.jboss.aerogear.android.http.CompressionConfig;
+import org.jboss.aerogear.android.http.ResponseCache;
+import org.jboss.aerogear.android.impl.util.GsonRegistry;
+import org.jboss.aerogear.android.pipeline.CacheConfig;
 import org.jboss.aerogear.android.pipeline.Pipe;
 import org.jboss.aerogear.android.pipeline.PipeHandler;
+import org.jboss.aerogear.android.pipeline.PipeScheduler;
 import org.jboss.aerogear.android.pipeline.PipeType;
 import org.jboss.aerogear.android.pipeline.RequestBuilder;
 import org.jboss.aerogear.android.pipeline.ResponseParser;
+import org.jboss.aerogear.android.pipeline.RetryConfig;
+import org.jboss.aerogear.android.pipeline.UploadConfig;
 import org.jboss.aerogear.android.pipeline.paging.PageConfig;
+import org.jboss.aerogear.android.serialization.Serializer;
 
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.jboss.aerogear.android.pipeline.MarshallingConfig;
 
@@ -42,11 +51,20 @@ public final class PipeConfig {
     private URL baseURL;
     private String name;
     private String endpoint;
+    private String bulkEndpoint;
+    private Integer maxBulkSize = 100;
     private PipeType type = PipeTypes.REST;
     private PageConfig pageConfig;
+    private CacheConfig cacheConfig;
+    private UploadConfig uploadConfig;
     private AuthenticationModule authModule;
     private PipeHandler handler;
     private Integer timeout = 60000;
+    private ResponseCache responseCache;
+    private Integer connectionPoolSize = 0;
+    private CompressionConfig compressionConfig;
+    private PipeScheduler scheduler = DefaultPipeScheduler.getInstance();
+    private RetryConfig retryConfig = new RetryConfig();
     private ResponseParser responseParser = new GsonResponseParser();
     /**
      * Where the data elements the pipe wants to extract are found in the
@@ -117,6 +135,53 @@ public final class PipeConfig {
         this.endpoint = endpoint;
     }
 
+    /**
+     * BulkEndpoint is the path, appended to the URL of the Pipe, which saveAll
+     * posts arrays of items to.  The server answers with the saved items in 
+     * the same order.  It is null, and saveAll saves items one by one, by 
+     * default.
+     *
+     * @return the current bulkEndpoint
+     */
+    public String getBulkEndpoint() {
+        return bulkEndpoint;
+    }
+
+    /**
+     * BulkEndpoint is the path, appended to the URL of the Pipe, which saveAll
+     * posts arrays of items to.  The server answers with the saved items in 
+     * the same order.  It is null, and saveAll saves items one by one, by 
+     * default.
+     *
+     * @param bulkEndpoint a new bulkEndpoint, null to save items one by one
+     */
+    public void setBulkEndpoint(String bulkEndpoint) {
+        this.bulkEndpoint = bulkEndpoint;
+    }
+
+    /**
+     * MaxBulkSize is the most items saveAll posts to the bulk endpoint in one
+     * request; more items are sent in several requests (default: 100)
+     *
+     * @return the current maxBulkSize
+     */
+    public Integer getMaxBulkSize() {
+        return maxBulkSize;
+    }
+
+    /**
+     * MaxBulkSize is the most items saveAll posts to the bulk endpoint in one
+     * request; more items are sent in several requests (default: 100)
+     *
+     * @param maxBulkSize a new maxBulkSize, at least 1
+     */
+    public void setMaxBulkSize(Integer maxBulkSize) {
+        if (maxBulkSize == null || maxBulkSize < 1) {
+            throw new IllegalArgumentException("maxBulkSize must be at least 1");
+        }
+        this.maxBulkSize = maxBulkSize;
+    }
+
     /**
      * @return type of Pipe to configure.
      * @see PipeTypes
@@ -170,8 +235,9 @@ public final class PipeConfig {
             throw new IllegalStateException("responseBuilder is not an instance of GsonResponseBuilder");
         } else {
             this.gsonBulder = gsonBuilder;
-            ((GsonResponseParser) responseParser).setGson(gsonBuilder.create());
-            ((GsonRequestBuilder) requestBuilder).setGson(gsonBuilder.create());
+            Gson gson = GsonRegistry.get(gsonBuilder);
+            ((GsonResponseParser) responseParser).setGson(gson);
+            ((GsonRequestBuilder) requestBuilder).setGson(gson);
         }
     }
 
@@ -255,6 +321,46 @@ public final class PipeConfig {
         this.pageConfig = pageConfig;
     }
 
+    /**
+     * CacheConfig is the configuration information for a CACHED_REST Pipe.
+     *
+     * @see CacheConfig
+     */
+    public CacheConfig getCacheConfig() {
+        return cacheConfig;
+    }
+
+    /**
+     * CacheConfig is the configuration information for a CACHED_REST Pipe.
+     *
+     * @param cacheConfig
+     * @see CacheConfig
+     */
+    public void setCacheConfig(CacheConfig cacheConfig) {
+        this.cacheConfig = cacheConfig;
+    }
+
+    /**
+     * UploadConfig makes the saves of a Pipe resumable uploads.  It is null,
+     * and saves are sent in one request, by default.
+     *
+     * @see UploadConfig
+     */
+    public UploadConfig getUploadConfig() {
+        return uploadConfig;
+    }
+
+    /**
+     * UploadConfig makes the saves of a Pipe resumable uploads.  It is null,
+     * and saves are sent in one request, by default.
+     *
+     * @param uploadConfig
+     * @see UploadConfig
+     */
+    public void setUploadConfig(UploadConfig uploadConfig) {
+        this.uploadConfig = uploadConfig;
+    }
+
     /**
      * DataRoot refers to the dotted location of the result we are interested in
      * from the JSON response from the server.
@@ -349,6 +455,137 @@ public final class PipeConfig {
         this.timeout = timeout;
     }
 
+    /**
+     * ResponseCache keeps the responses of reads so the Pipe can ask the
+     * server for them conditionally and reuse them when they have not been
+     * modified.  It is null, and reads are not cached, by default.
+     *
+     * @return the current responseCache
+     * @see org.jboss.aerogear.android.impl.http.MemoryResponseCache
+     * @see org.jboss.aerogear.android.impl.http.DiskResponseCache
+     * @see org.jboss.aerogear.android.impl.http.StoreResponseCache
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * ResponseCache keeps the responses of reads so the Pipe can ask the
+     * server for them conditionally and reuse them when they have not been
+     * modified.  It is null, and reads are not cached, by default.
+     *
+     * @param responseCache a new responseCache, null to not cache reads
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * ConnectionPoolSize, when positive, keeps the connections of a Pipe 
+     * alive for reuse by its next requests.  When it is 0, the default, 
+     * every request opens a new connection and disconnects it once done.  
+     * How many idle connections are kept per host is a process wide 
+     * setting of the platform, the http.maxConnections system property, 
+     * which is read once and so must be set at startup.
+     *
+     * @return the current connectionPoolSize
+     */
+    public Integer getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    /**
+     * ConnectionPoolSize, when positive, keeps the connections of a Pipe 
+     * alive for reuse by its next requests.  When it is 0, the default, 
+     * every request opens a new connection and disconnects it once done.  
+     * How many idle connections are kept per host is a process wide 
+     * setting of the platform, the http.maxConnections system property, 
+     * which is read once and so must be set at startup.
+     *
+     * @param connectionPoolSize a new connectionPoolSize
+     */
+    public void setConnectionPoolSize(Integer connectionPoolSize) {
+        this.connectionPoolSize = connectionPoolSize;
+    }
+
+    /**
+     * CompressionConfig has the requests and responses of a Pipe sent 
+     * gzipped.  It is null, and nothing is compressed, by default.
+     *
+     * @return the current compressionConfig
+     * @see CompressionConfig
+     */
+    public CompressionConfig getCompressionConfig() {
+        return compressionConfig;
+    }
+
+    /**
+     * CompressionConfig has the requests and responses of a Pipe sent 
+     * gzipped.  It is null, and nothing is compressed, by default.
+     *
+     * @param compressionConfig a new compressionConfig, null to not compress
+     * @see CompressionConfig
+     */
+    public void setCompressionConfig(CompressionConfig compressionConfig) {
+        this.compressionConfig = compressionConfig;
+    }
+
+    /**
+     * Scheduler runs the calls of a Pipe off the calling thread.
+     *
+     * This value defaults to the {@link DefaultPipeScheduler} shared by every
+     * Pipe of the application.
+     *
+     * @return the current scheduler
+     */
+    public PipeScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Scheduler runs the calls of a Pipe off the calling thread.
+     *
+     * This value defaults to the {@link DefaultPipeScheduler} shared by every
+     * Pipe of the application.
+     *
+     * @param scheduler a new scheduler
+     */
+    public void setScheduler(PipeScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * RetryConfig says which failed calls of a Pipe are tried again and how
+     * long to wait before.  Each retry is a new task for the scheduler of the
+     * Pipe.  Calls made through the PipeHandler directly, as Loaders do, are
+     * not retried.
+     *
+     * This value defaults to a new RetryConfig, which retries reads, saves 
+     * of items with an id and removes, but not other saves.
+     *
+     * @return the current retryConfig
+     * @see RetryConfig
+     */
+    public RetryConfig getRetryConfig() {
+        return retryConfig;
+    }
+
+    /**
+     * RetryConfig says which failed calls of a Pipe are tried again and how
+     * long to wait before.  Each retry is a new task for the scheduler of the
+     * Pipe.  Calls made through the PipeHandler directly, as Loaders do, are
+     * not retried.
+     *
+     * This value defaults to a new RetryConfig, which retries reads, saves 
+     * of items with an id and removes, but not other saves.
+     *
+     * @param retryConfig a new retryConfig, null to never retry
+     * @see RetryConfig
+     */
+    public void setRetryConfig(RetryConfig retryConfig) {
+        this.retryConfig = retryConfig;
+    }
+
     /**
      * A request builder is responsible for turning an object into a request
      * used in a Pipe's save methods.
@@ -392,4 +629,31 @@ public final class PipeConfig {
     public void setResponseParser(ResponseParser responseParser) {
         this.responseParser = responseParser;
     }
+
+    /**
+     * Sends and parses objects with serializer, replacing the request builder
+     * and the response parser.  Their encodings are kept.
+     *
+     * @param serializer the format of request and response bodies, for 
+     * instance {@link org.jboss.aerogear.android.impl.serialization.BinarySerializer}
+     */
+    public void setSerializer(Serializer serializer) {
+        SerializerRequestBuilder newRequestBuilder = new SerializerRequestBuilder(serializer);
+        SerializerResponseParser newResponseParser = new SerializerResponseParser(serializer);
+        newRequestBuilder.getMarshallingConfig().setEncoding(requestBuilder.getMarshallingConfig().getEncoding());
+        newResponseParser.getMarshallingConfig().setEncoding(responseParser.getMarshallingConfig().getEncoding());
+        this.requestBuilder = newRequestBuilder;
+        this.responseParser = newResponseParser;
+    }
+
+    /**
+     * @return the serializer set with {@link #setSerializer(Serializer)} while
+     * the request builder is the one it set, null otherwise
+     */
+    public Serializer getSerializer() {
+        if (requestBuilder instanceof SerializerRequestBuilder) {
+            return ((SerializerRequestBuilder) requestBuilder).getSerializer();
+        }
+        return null;
+    }
 }
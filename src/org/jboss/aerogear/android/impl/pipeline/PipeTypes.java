@@ -23,7 +23,8 @@ import org.jboss.aerogear.android.pipeline.PipeType;
  */
 public enum PipeTypes implements PipeType {
 
-    REST("REST");
+    REST("REST"),
+    CACHED_REST("CACHED_REST");
 
     private final String typeDescription;
 
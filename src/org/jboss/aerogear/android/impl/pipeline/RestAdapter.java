@@ -17,20 +17,28 @@
 package org.jboss.aerogear.android.impl.pipeline;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.jboss.aerogear.android.Callback;
 import org.jboss.aerogear.android.ReadFilter;
+import org.jboss.aerogear.android.impl.reflection.Scan;
+import org.jboss.aerogear.android.pipeline.BatchConfig;
+import org.jboss.aerogear.android.pipeline.ItemCallback;
+import org.jboss.aerogear.android.pipeline.PartialSaveException;
 import org.jboss.aerogear.android.pipeline.Pipe;
 import org.jboss.aerogear.android.pipeline.PipeHandler;
+import org.jboss.aerogear.android.pipeline.PipeScheduler;
+import org.jboss.aerogear.android.pipeline.PipeScheduler.Priority;
 import org.jboss.aerogear.android.pipeline.PipeType;
 import org.jboss.aerogear.android.pipeline.RequestBuilder;
 import org.jboss.aerogear.android.pipeline.ResponseParser;
+import org.jboss.aerogear.android.pipeline.RetryConfig;
+import org.jboss.aerogear.android.pipeline.StreamingRequestBuilder;
 
 import android.util.Log;
 
@@ -38,17 +46,33 @@ import com.google.gson.Gson;
 
 /**
  * Rest implementation of {@link Pipe}.
+ * 
+ * Calls run on the {@link PipeScheduler} of the {@link PipeConfig}: reads as
+ * interactive tasks, saves and removes as background ones.  A call the 
+ * scheduler rejects fails its callback at once.
+ * 
+ * Failed calls are retried as the {@link RetryConfig} of the PipeConfig 
+ * allows.  Incremental reads, which may have delivered items already, are
+ * not retried, and neither are saves whose body can not be replayed, such 
+ * as a multipart body with a stream, which the first attempt consumes.
  */
 public final class RestAdapter<T> implements Pipe<T> {
 
     private static final String TAG = RestAdapter.class.getSimpleName();
-    private static final int CORE_POOL_SIZE = 5;
-    private static final int MAX_POOL_SIZE = 64;
-    private static final int KEEP_ALIVE = 1;
-    private static final BlockingQueue<Runnable> WORK_QUEUE =
-            new LinkedBlockingQueue<Runnable>(10);
-    public static final Executor THREAD_POOL_EXECUTOR = new ThreadPoolExecutor(CORE_POOL_SIZE, MAX_POOL_SIZE, KEEP_ALIVE,
-            TimeUnit.SECONDS, WORK_QUEUE);
+
+    /**
+     * Runs tasks as background tasks of the shared 
+     * {@link DefaultPipeScheduler}.
+     *
+     * @deprecated Pipes run on the PipeScheduler of their PipeConfig
+     */
+    @Deprecated
+    public static final Executor THREAD_POOL_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            DefaultPipeScheduler.getInstance().execute(null, Priority.BACKGROUND, task);
+        }
+    };
 
     /**
      * A class of the Generic type this pipe wraps. This is used by GSON for
@@ -63,6 +87,8 @@ public final class RestAdapter<T> implements Pipe<T> {
     private final PipeHandler<T> restRunner;
     private final RequestBuilder<T> requestBuilder;
     private final ResponseParser<T> responseParser;
+    private final PipeScheduler scheduler;
+    private final RetryConfig retryConfig;
 
     public RestAdapter(Class<T> klass, URL baseURL) {
         this.restRunner = new RestRunner<T>(klass, baseURL);
@@ -70,6 +96,8 @@ public final class RestAdapter<T> implements Pipe<T> {
         this.baseURL = baseURL;
         this.requestBuilder = new GsonRequestBuilder<T>();
         this.responseParser = new GsonResponseParser<T>();
+        this.scheduler = DefaultPipeScheduler.getInstance();
+        this.retryConfig = new RetryConfig();
     }
 
     @SuppressWarnings("unchecked")
@@ -79,6 +107,8 @@ public final class RestAdapter<T> implements Pipe<T> {
 
         this.requestBuilder = config.getRequestBuilder();
         this.responseParser = config.getResponseParser();
+        this.scheduler = config.getScheduler() == null ? DefaultPipeScheduler.getInstance() : config.getScheduler();
+        this.retryConfig = config.getRetryConfig();
 
         if (config.getHandler() != null) {
             this.restRunner = (PipeHandler<T>) config.getHandler();
@@ -116,25 +146,12 @@ public final class RestAdapter<T> implements Pipe<T> {
         }
         final ReadFilter innerFilter = filter;
 
-        THREAD_POOL_EXECUTOR.execute(new Runnable() {
-            List<T> result = null;
-            Exception exception = null;
-
+        submit(Priority.INTERACTIVE, true, new Callable<List<T>>() {
             @Override
-            public void run() {
-                try {
-                    this.result = restRunner.onReadWithFilter(innerFilter, RestAdapter.this);
-                } catch (Exception e) {
-                    Log.e(TAG, e.getMessage(), e);
-                    this.exception = e;
-                }
-                if (exception == null) {
-                    callback.onSuccess(this.result);
-                } else {
-                    callback.onFailure(exception);
-                }
+            public List<T> call() {
+                return restRunner.onReadWithFilter(innerFilter, RestAdapter.this);
             }
-        });
+        }, callback);
 
     }
 
@@ -142,77 +159,212 @@ public final class RestAdapter<T> implements Pipe<T> {
      * {@inheritDoc}
      */
     @Override
-    public void read(final Callback<List<T>> callback) {
-        THREAD_POOL_EXECUTOR.execute(new Runnable() {
-            List<T> result = null;
-            Exception exception = null;
+    public void read(ReadFilter filter, final BatchConfig batchConfig, final ItemCallback<T> callback) {
+        if (filter == null) {
+            filter = new ReadFilter();
+        }
+        final ReadFilter innerFilter = filter;
 
+        execute(Priority.INTERACTIVE, new Runnable() {
             @Override
             public void run() {
-                try {
-                    this.result = restRunner.onRead(RestAdapter.this);
-                } catch (Exception e) {
-                    Log.e(TAG, e.getMessage(), e);
-                    this.exception = e;
-                }
-                if (exception == null) {
-                    callback.onSuccess(this.result);
-                } else {
-                    callback.onFailure(exception);
-                }
+                ItemBatches.read(restRunner, innerFilter, RestAdapter.this, batchConfig, callback);
             }
-        });
+        }, callback);
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
-    public void save(final T data, final Callback<T> callback) {
-
-        THREAD_POOL_EXECUTOR.execute(new Runnable() {
+    public void read(final Callback<List<T>> callback) {
+        submit(Priority.INTERACTIVE, true, new Callable<List<T>>() {
             @Override
-            public void run() {
-                T result = null;
-                Exception exception = null;
+            public List<T> call() {
+                return restRunner.onRead(RestAdapter.this);
+            }
+        }, callback);
+    }
 
-                try {
-                    result = restRunner.onSave(data);
-                } catch (Exception e) {
-                    exception = e;
-                }
+    @Override
+    public void save(final T data, final Callback<T> callback) {
+        Object id = Scan.recordIdPropertyIn(data.getClass()).getValue(data);
+        boolean put = id != null && id.toString().length() > 0;
+        RetryConfig retries = retryConfig != null && isReplayable(data) ? retryConfig : null;
 
-                if (exception == null) {
-                    callback.onSuccess(result);
-                } else {
-                    callback.onFailure(exception);
-                }
+        submit(Priority.BACKGROUND, retries, put, new Callable<T>() {
+            @Override
+            public T call() {
+                return restRunner.onSave(data);
             }
-        });
+        }, callback);
 
     }
 
     /**
      * {@inheritDoc}
+     * 
+     * A retry saves only the items which were not saved yet.
      */
     @Override
-    public void remove(final String id, final Callback<Void> callback) {
+    public void saveAll(Collection<T> items, final Callback<List<T>> callback) {
+        final List<T> toSave = new ArrayList<T>(items);
 
-        THREAD_POOL_EXECUTOR.execute(new Runnable() {
-            Exception exception = null;
+        submit(Priority.BACKGROUND, false, new Callable<List<T>>() {
+            private final List<T> saved = new ArrayList<T>(toSave.size());
 
             @Override
-            public void run() {
+            @SuppressWarnings("unchecked")
+            public List<T> call() {
+                List<T> remaining = toSave.subList(saved.size(), toSave.size());
                 try {
-                    RestAdapter.this.restRunner.onRemove(id);
-                } catch (Exception e) {
-                    exception = e;
-                }
-                if (exception == null) {
-                    callback.onSuccess(null);
-                } else {
-                    callback.onFailure(exception);
+                    saved.addAll(restRunner.onSaveAll(remaining));
+                } catch (PartialSaveException e) {
+                    saved.addAll((List<T>) e.getSaved());
+                    throw new PartialSaveException(saved, toSave.size(), e.getCause());
+                } catch (RuntimeException e) {
+                    if (saved.isEmpty()) {
+                        throw e;
+                    }
+                    throw new PartialSaveException(saved, toSave.size(), e);
                 }
+                return saved;
             }
-        });
+        }, callback);
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(final String id, final Callback<Void> callback) {
+
+        submit(Priority.BACKGROUND, true, new Callable<Void>() {
+            @Override
+            public Void call() {
+                RestAdapter.this.restRunner.onRemove(id);
+                return null;
+            }
+        }, callback);
+
+    }
+
+    /**
+     * @return false if the body of data is written from a stream, so it can 
+     * only be sent once
+     */
+    @SuppressWarnings("unchecked")
+    private boolean isReplayable(T data) {
+        if (!(requestBuilder instanceof StreamingRequestBuilder)) {
+            return true;
+        }
+        try {
+            return ((StreamingRequestBuilder<T>) requestBuilder).getStreamingBody(data).isReplayable();
+        } catch (RuntimeException e) {
+            // the save fails the same way when it is run
+            return false;
+        }
+    }
+
+    private <V> void submit(Priority priority, boolean idempotent, Callable<V> call, Callback<V> callback) {
+        submit(priority, retryConfig, idempotent, call, callback);
+    }
+
+    /**
+     * Runs a call of this Pipe on its scheduler and gives its result to the 
+     * callback.  A failed call which the RetryConfig allows to retry is 
+     * handed to the scheduler again once its delay is over.
+     * 
+     * @param retries how the call is retried, null if it is not
+     * @param idempotent true if the call may safely be made again
+     */
+    private <V> void submit(Priority priority, RetryConfig retries, boolean idempotent, Callable<V> call, Callback<V> callback) {
+        execute(priority, new Attempt<V>(priority, retries, idempotent, call, callback, 1), callback);
+    }
+
+    /**
+     * Runs a task of this Pipe on its scheduler, failing the callback if the
+     * task is rejected.
+     */
+    void execute(Priority priority, Runnable task, Callback<?> callback) {
+        RejectedExecutionException rejected = schedule(priority, task);
+        if (rejected != null) {
+            callback.onFailure(rejected);
+        }
+    }
+
+    /**
+     * Runs a task of this Pipe on its scheduler, failing the callback if the
+     * task is rejected.
+     */
+    void execute(Priority priority, Runnable task, ItemCallback<?> callback) {
+        RejectedExecutionException rejected = schedule(priority, task);
+        if (rejected != null) {
+            callback.onFailure(rejected);
+        }
+    }
+
+    /**
+     * Hands a task to the scheduler.
+     *
+     * @return the rejection if the scheduler refused the task, otherwise null
+     */
+    private RejectedExecutionException schedule(Priority priority, Runnable task) {
+        try {
+            scheduler.execute(baseURL, priority, task);
+            return null;
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "A call to " + baseURL + " was rejected", e);
+            return e;
+        }
+    }
+
+    /**
+     * One attempt of a call.  It schedules the next attempt, rather than 
+     * waiting for it, so no thread of the scheduler is held meanwhile.
+     */
+    private final class Attempt<V> implements Runnable {
+
+        private final Priority priority;
+        private final RetryConfig retries;
+        private final boolean idempotent;
+        private final Callable<V> call;
+        private final Callback<V> callback;
+        private final int attempt;
+
+        Attempt(Priority priority, RetryConfig retries, boolean idempotent, Callable<V> call, Callback<V> callback, int attempt) {
+            this.priority = priority;
+            this.retries = retries;
+            this.idempotent = idempotent;
+            this.call = call;
+            this.callback = callback;
+            this.attempt = attempt;
+        }
+
+        @Override
+        public void run() {
+            V result;
+            try {
+                result = call.call();
+            } catch (Exception e) {
+                long delay = retries == null ? -1 : Retries.delayBeforeRetry(retries, idempotent, attempt, e);
+                if (delay < 0) {
+                    Log.e(TAG, e.getMessage(), e);
+                    callback.onFailure(e);
+                    return;
+                }
+                Log.w(TAG, "Attempt " + attempt + " failed, retrying in " + delay + " ms", e);
+                final Attempt<V> next = new Attempt<V>(priority, retries, idempotent, call, callback, attempt + 1);
+                Retries.later(delay, new Runnable() {
+                    @Override
+                    public void run() {
+                        execute(priority, next, callback);
+                    }
+                });
+                return;
+            }
+            callback.onSuccess(result);
+        }
     }
 
     @Override
@@ -16,6 +16,8 @@
  */
 package org.jboss.aerogear.android.impl.pipeline;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Array;
 import java.net.MalformedURLException;
@@ -23,33 +25,43 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.jboss.aerogear.android.Provider;
 import org.jboss.aerogear.android.ReadFilter;
 import org.jboss.aerogear.android.authentication.AuthenticationModule;
 import org.jboss.aerogear.android.authentication.AuthorizationFields;
+import org.jboss.aerogear.android.http.CompressionConfig;
 import org.jboss.aerogear.android.http.HeaderAndBody;
 import org.jboss.aerogear.android.http.HttpException;
 import org.jboss.aerogear.android.http.HttpProvider;
+import org.jboss.aerogear.android.http.RequestBody;
+import org.jboss.aerogear.android.http.ResponseCache;
+import org.jboss.aerogear.android.http.StreamingHttpProvider;
 import org.jboss.aerogear.android.impl.core.HttpProviderFactory;
 import org.jboss.aerogear.android.impl.pipeline.paging.DefaultParameterProvider;
 import org.jboss.aerogear.android.impl.pipeline.paging.URIBodyPageParser;
 import org.jboss.aerogear.android.impl.pipeline.paging.URIPageHeaderParser;
 import org.jboss.aerogear.android.impl.pipeline.paging.WebLink;
 import org.jboss.aerogear.android.impl.pipeline.paging.WrappingPagedList;
-import org.jboss.aerogear.android.impl.reflection.Property;
 import org.jboss.aerogear.android.impl.reflection.Scan;
 import org.jboss.aerogear.android.impl.util.ParseException;
 import org.jboss.aerogear.android.impl.util.UrlUtils;
 import org.jboss.aerogear.android.impl.util.WebLinkParser;
+import org.jboss.aerogear.android.pipeline.BulkRequestBuilder;
+import org.jboss.aerogear.android.pipeline.PartialSaveException;
 import org.jboss.aerogear.android.pipeline.Pipe;
 import org.jboss.aerogear.android.pipeline.PipeHandler;
 import org.jboss.aerogear.android.pipeline.RequestBuilder;
 import org.jboss.aerogear.android.pipeline.ResponseParser;
+import org.jboss.aerogear.android.pipeline.StreamingRequestBuilder;
+import org.jboss.aerogear.android.pipeline.StreamingResponseParser;
+import org.jboss.aerogear.android.pipeline.UploadConfig;
+import org.jboss.aerogear.android.pipeline.UploadIdentity;
 import org.jboss.aerogear.android.pipeline.paging.PageConfig;
 import org.jboss.aerogear.android.pipeline.paging.ParameterProvider;
 import org.json.JSONObject;
@@ -82,9 +94,15 @@ public class RestRunner<T> implements PipeHandler<T> {
     private final URL baseURL;
     private final Provider<HttpProvider> httpProviderFactory = new HttpProviderFactory();
     private final Integer timeout;
+    private final ResponseCache responseCache;
+    private final int connectionPoolSize;
+    private final UploadConfig uploadConfig;
+    private final CompressionConfig compressionConfig;
+    private final String bulkEndpoint;
+    private final int maxBulkSize;
     private final ResponseParser<T> responseParser;
+    private final InFlightCalls<HeaderAndBody> rawReads = new InFlightCalls<HeaderAndBody>();
     private AuthenticationModule authModule;
-    private Charset encoding = Charset.forName("UTF-8");
 
     public RestRunner(Class<T> klass, URL baseURL) {
         this.klass = klass;
@@ -95,6 +113,12 @@ public class RestRunner<T> implements PipeHandler<T> {
         this.pageConfig = null;
         this.parameterProvider = new DefaultParameterProvider();
         this.timeout = 60000;
+        this.responseCache = null;
+        this.connectionPoolSize = 0;
+        this.uploadConfig = null;
+        this.compressionConfig = null;
+        this.bulkEndpoint = null;
+        this.maxBulkSize = 100;
         this.responseParser = new GsonResponseParser<T>();
     }
 
@@ -104,6 +128,12 @@ public class RestRunner<T> implements PipeHandler<T> {
         this.arrayKlass = ClassUtils.asArrayClass(klass);
         this.baseURL = baseURL;
         this.timeout = config.getTimeout();
+        this.responseCache = config.getResponseCache();
+        this.connectionPoolSize = config.getConnectionPoolSize() == null ? 0 : config.getConnectionPoolSize();
+        this.uploadConfig = config.getUploadConfig();
+        this.compressionConfig = config.getCompressionConfig();
+        this.bulkEndpoint = config.getBulkEndpoint();
+        this.maxBulkSize = config.getMaxBulkSize() == null ? 100 : config.getMaxBulkSize();
 
         if (config.getRequestBuilder() != null) {
             this.requestBuilder = config.getRequestBuilder();
@@ -111,10 +141,9 @@ public class RestRunner<T> implements PipeHandler<T> {
             this.requestBuilder = new GsonRequestBuilder<T>();
         }
 
-        if (config.getEncoding() != null) {
-            this.encoding = config.getEncoding();
-        } else {
-            this.encoding = Charset.forName("UTF-8");
+        if (uploadConfig != null && requestBuilder instanceof MultipartRequestBuilder
+                && !((MultipartRequestBuilder) requestBuilder).hasFixedBoundary()) {
+            throw new IllegalArgumentException("An UploadConfig needs a MultipartRequestBuilder with a fixed boundary");
         }
 
         if (config.getDataRoot() != null) {
@@ -166,22 +195,119 @@ public class RestRunner<T> implements PipeHandler<T> {
     public T onSave(T data) {
 
         final String id;
-        String recordIdFieldName = Scan.recordIdFieldNameIn(data.getClass());
-        Object idObject = new Property(data.getClass(), recordIdFieldName).getValue(data);
+        Object idObject = Scan.recordIdPropertyIn(data.getClass()).getValue(data);
         id = idObject == null ? null : idObject.toString();
 
-        byte[] body = requestBuilder.getBody(data);
+        HeaderAndBody result;
+        if (requestBuilder instanceof StreamingRequestBuilder) {
+            RequestBody body = ((StreamingRequestBuilder<T>) requestBuilder).getStreamingBody(data);
+            result = onStreamingSave(id, data, body);
+        } else {
+            byte[] body = requestBuilder.getBody(data);
+            result = onRawSave(id, body);
+        }
+
+        return responseParser.handleSaveResponse(result, klass);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Given a bulk endpoint and a {@link BulkRequestBuilder} the items are 
+     * posted to it maxBulkSize at a time.  The server answers each request 
+     * with the saved items in order, or with no content if they are saved as
+     * sent.
+     * <p>
+     * If a request fails after others saved items, a 
+     * {@link PartialSaveException} holding the saved items is thrown.
+     */
+    @Override
+    public List<T> onSaveAll(List<T> items) {
+        List<T> saved = new ArrayList<T>(items.size());
+        try {
+            saveAll(items, saved);
+        } catch (RuntimeException e) {
+            if (saved.isEmpty()) {
+                throw e;
+            }
+            throw new PartialSaveException(saved, items.size(), e);
+        }
+        return saved;
+    }
+
+    private void saveAll(List<T> items, List<T> saved) {
+        if (bulkEndpoint == null || !(requestBuilder instanceof BulkRequestBuilder)) {
+            for (T item : items) {
+                saved.add(onSave(item));
+            }
+            return;
+        }
+
+        BulkRequestBuilder<T> bulkBuilder = (BulkRequestBuilder<T>) requestBuilder;
+        for (int start = 0; start < items.size(); start += maxBulkSize) {
+            List<T> batch = items.subList(start, Math.min(start + maxBulkSize, items.size()));
+            HttpProvider httpProvider = getHttpProvider(URI.create(bulkEndpoint));
+            byte[] body = bulkBuilder.getBulkBody(batch);
+            HeaderAndBody result = httpProvider.post(body);
+
+            if (result.getBodyLength() == 0) {
+                saved.addAll(batch);
+                continue;
+            }
+            List<T> batchResult = responseParser.handleResponse(result, klass);
+            if (batchResult.size() != batch.size()) {
+                throw new IllegalStateException("The bulk save of " + batch.size() + " items returned "
+                        + batchResult.size() + " items");
+            }
+            saved.addAll(batchResult);
+        }
+    }
 
-        HeaderAndBody result = onRawSave(id, body);
+    /**
+     * {@inheritDoc}
+     * 
+     * With a streaming parser and HttpProvider the items are decoded from 
+     * the connection while the body arrives, so the body is never held in 
+     * memory as a whole.  Such reads are not shared with concurrent reads of
+     * the same URL.  Otherwise the whole body is read before the first item
+     * is decoded.
+     */
+    @Override
+    public Iterator<T> onReadItems(ReadFilter filter, Pipe<T> requestingPipe) {
+        if (!(responseParser instanceof StreamingResponseParser)) {
+            return responseParser.handleResponse(onRawReadWithFilter(filter, requestingPipe), klass).iterator();
+        }
+        StreamingResponseParser<T> streamingParser = (StreamingResponseParser<T>) responseParser;
 
-        return responseParser.handleResponse(new String(result.getBody(), encoding), klass);
+        ReadRequest request = prepareRead(filter);
+        if (!(request.httpProvider instanceof StreamingHttpProvider)) {
+            return streamingParser.iterateResponse(runRead(request), klass);
+        }
+        final StreamingHttpProvider httpProvider = (StreamingHttpProvider) request.httpProvider;
+        InputStream body = runAuthorizedGet(new Callable<InputStream>() {
+            @Override
+            public InputStream call() {
+                return httpProvider.getStream();
+            }
+        });
+        return streamingParser.iterateResponse(body, klass);
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * Concurrent reads of the same URL with the same authorization share one
+     * request.  Each of them parses the response, so no two get the same 
+     * items.
+     */
     @Override
     public List<T> onReadWithFilter(ReadFilter filter, Pipe<T> requestingPipe) {
         List<T> result;
 
-        HeaderAndBody httpResponse = onRawReadWithFilter(filter, requestingPipe);
+        final ReadRequest request = prepareRead(filter);
+        // Callers of the same read share the response, but each parses it
+        // for itself so no two callers are handed the same item objects.
+        HeaderAndBody httpResponse = runRead(request);
         result = responseParser.handleResponse(httpResponse, klass);
 
         if (pageConfig != null) {
@@ -241,9 +367,12 @@ public class RestRunner<T> implements PipeHandler<T> {
     }
 
     private HttpProvider getHttpProvider(URI relativeUri) {
-        final String queryString;
-
         AuthorizationFields fields = loadAuth(relativeUri, "GET");
+        return getHttpProvider(authorizedURL(relativeUri, fields), fields);
+    }
+
+    private URL authorizedURL(URI relativeUri, AuthorizationFields fields) {
+        final String queryString;
 
         if (relativeUri == null || relativeUri.getQuery() == null) {
             queryString = "";
@@ -252,9 +381,16 @@ public class RestRunner<T> implements PipeHandler<T> {
         }
 
         URL mergedURL = UrlUtils.appendToBaseURL(baseURL, relativeUri.getPath());
-        URL authorizedURL = addAuthorization(fields.getQueryParameters(), UrlUtils.appendQueryToBaseURL(mergedURL, queryString));
+        return addAuthorization(fields.getQueryParameters(), UrlUtils.appendQueryToBaseURL(mergedURL, queryString));
+    }
 
-        final HttpProvider httpProvider = httpProviderFactory.get(authorizedURL, timeout);
+    private HttpProvider getHttpProvider(URL authorizedURL, AuthorizationFields fields) {
+        final HttpProvider httpProvider;
+        if (responseCache == null && connectionPoolSize == 0 && compressionConfig == null) {
+            httpProvider = httpProviderFactory.get(authorizedURL, timeout);
+        } else {
+            httpProvider = httpProviderFactory.get(authorizedURL, timeout, responseCache, connectionPoolSize, compressionConfig);
+        }
         httpProvider.setDefaultHeader("Content-TYpe", requestBuilder.getContentType());
         addAuthHeaders(httpProvider, fields);
         return httpProvider;
@@ -374,10 +510,6 @@ public class RestRunner<T> implements PipeHandler<T> {
         }
     }
 
-    void setEncoding(Charset encoding) {
-        this.encoding = encoding;
-    }
-
     public String getDataRoot() {
         return dataRoot;
     }
@@ -395,39 +527,119 @@ public class RestRunner<T> implements PipeHandler<T> {
         return onRawReadWithFilter(new ReadFilter(), requestingPipe);
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * Concurrent reads of the same URL with the same authorization share one
+     * request.
+     */
     @Override
     public HeaderAndBody onRawReadWithFilter(ReadFilter filter, Pipe<T> requestingPipe) {
-        HttpProvider httpProvider;
+        return runRead(prepareRead(filter));
+    }
+
+    private ReadRequest prepareRead(ReadFilter filter) {
+        URI relativeUri;
 
         if (filter == null) {
             filter = new ReadFilter();
         }
 
         if (filter.getLinkUri() == null) {
-            httpProvider = getHttpProvider(parameterProvider.getParameters(filter));
+            relativeUri = parameterProvider.getParameters(filter);
         } else {
-            httpProvider = getHttpProvider(filter.getLinkUri());
+            relativeUri = filter.getLinkUri();
         }
 
-        return runHttpGet(httpProvider);
+        AuthorizationFields fields = loadAuth(relativeUri, "GET");
+        URL authorizedURL = authorizedURL(relativeUri, fields);
+
+        StringBuilder key = new StringBuilder(authorizedURL.toString());
+        for (Pair<String, String> header : fields.getHeaders()) {
+            key.append('\n').append(header.first).append(": ").append(header.second);
+        }
 
+        return new ReadRequest(key.toString(), getHttpProvider(authorizedURL, fields));
+    }
+
+    private HeaderAndBody runRead(final ReadRequest request) {
+        return rawReads.run(request.key, new Callable<HeaderAndBody>() {
+            @Override
+            public HeaderAndBody call() {
+                return runHttpGet(request.httpProvider);
+            }
+        });
     }
     
-    private HeaderAndBody runHttpGet(HttpProvider httpProvider) {
-        HeaderAndBody httpResponse;
-        
+    private HeaderAndBody runHttpGet(final HttpProvider httpProvider) {
+        return runAuthorizedGet(new Callable<HeaderAndBody>() {
+            @Override
+            public HeaderAndBody call() {
+                return httpProvider.get();
+            }
+        });
+    }
+
+    /**
+     * Runs a GET, once more after logging in again if it was refused.
+     */
+    private <V> V runAuthorizedGet(Callable<V> get) {
         try {
-            httpResponse = httpProvider.get();
-        } catch (HttpException exception) {
-            if ((exception.getStatusCode() == HttpStatus.SC_UNAUTHORIZED
-                    || exception.getStatusCode() == HttpStatus.SC_FORBIDDEN) && retryAuth(authModule)) {
-                httpResponse = httpProvider.get();
-            } else {
+            try {
+                return get.call();
+            } catch (HttpException exception) {
+                if ((exception.getStatusCode() == HttpStatus.SC_UNAUTHORIZED
+                        || exception.getStatusCode() == HttpStatus.SC_FORBIDDEN) && retryAuth(authModule)) {
+                    return get.call();
+                }
                 throw exception;
             }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
         }
+    }
 
-        return httpResponse;
+    /**
+     * Like onRawSave, but the body is written to the connection as it is 
+     * sent, in chunks if the Pipe has an UploadConfig.
+     */
+    @SuppressWarnings("unchecked")
+    private HeaderAndBody onStreamingSave(final String id, T data, RequestBody item) {
+        if (uploadConfig != null) {
+            String resource = (id == null || id.length() == 0) ? baseURL.toString() : UrlUtils.appendToBaseURL(baseURL, id).toString();
+            UploadIdentity<T> identity = uploadConfig.getIdentity();
+            String contentIdentity = identity == null ? null : identity.identityOf(data);
+            try {
+                return new ResumableUpload(uploadConfig).upload(resource, contentIdentity, item, new ResumableUpload.ChunkSender() {
+                    @Override
+                    public HeaderAndBody send(String uploadId, String contentRange, RequestBody chunk) {
+                        final HttpProvider httpProvider = getHttpProvider();
+                        httpProvider.setDefaultHeader("Upload-Id", uploadId);
+                        httpProvider.setDefaultHeader("Content-Range", contentRange);
+                        if (id == null || id.length() == 0) {
+                            return httpProvider.post(chunk);
+                        } else {
+                            return httpProvider.put(id, chunk);
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                Log.e(TAG, "Error uploading to " + resource, e);
+                throw new RuntimeException(e);
+            }
+        }
+
+        final HttpProvider httpProvider = getHttpProvider();
+
+        HeaderAndBody result;
+        if (id == null || id.length() == 0) {
+            result = httpProvider.post(item);
+        } else {
+            result = httpProvider.put(id, item);
+        }
+        return result;
     }
 
     @Override
@@ -443,4 +655,18 @@ public class RestRunner<T> implements PipeHandler<T> {
         return result;
     }
 
+    /**
+     * A GET ready to be sent, with the key of the reads it can be shared by.
+     */
+    private static final class ReadRequest {
+
+        private final String key;
+        private final HttpProvider httpProvider;
+
+        ReadRequest(String key, HttpProvider httpProvider) {
+            this.key = key;
+            this.httpProvider = httpProvider;
+        }
+    }
+
 }
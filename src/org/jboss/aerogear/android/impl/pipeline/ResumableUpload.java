@@ -0,0 +1,192 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+
+import org.jboss.aerogear.android.datamanager.Store;
+import org.jboss.aerogear.android.http.HeaderAndBody;
+import org.jboss.aerogear.android.http.RequestBody;
+import org.jboss.aerogear.android.pipeline.UploadConfig;
+import org.jboss.aerogear.android.pipeline.UploadProgress;
+
+/**
+ * Sends a body in chunks as described by {@link UploadConfig}.
+ * 
+ * The body is written once, through an OutputStream which skips the bytes 
+ * already acknowledged and sends the rest a chunk at a time, so no more than
+ * one chunk is held in memory.
+ * 
+ * Progress is only kept for bodies of known length whose content has an 
+ * identity; anything else is uploaded from the start every time.
+ */
+final class ResumableUpload {
+
+    /**
+     * Sends one chunk of an upload to the server.
+     */
+    interface ChunkSender {
+
+        HeaderAndBody send(String uploadId, String contentRange, RequestBody chunk);
+    }
+
+    private final Store<UploadProgress> store;
+    private final int chunkSize;
+
+    ResumableUpload(UploadConfig uploadConfig) {
+        this.store = uploadConfig.getStore();
+        this.chunkSize = uploadConfig.getChunkSize();
+    }
+
+    /**
+     * @param resource the URL the body is saved to
+     * @param identity the identity of the content of the body, null if it 
+     * has none
+     * @param body the body to upload
+     * @param sender sends the chunks
+     * @return the response to the last chunk
+     * @throws IOException if the body can not be read
+     */
+    HeaderAndBody upload(String resource, String identity, RequestBody body, ChunkSender sender) throws IOException {
+        long length = body.getContentLength();
+        boolean resumable = identity != null && length >= 0;
+        String key = resource + "#" + identity + "#" + length;
+
+        UploadProgress progress = resumable ? store.read(key) : null;
+        if (progress == null) {
+            progress = new UploadProgress(key, UUID.randomUUID().toString(), length);
+            if (resumable) {
+                store.save(progress);
+            }
+        }
+
+        ChunkingOutputStream out = new ChunkingOutputStream(progress, resumable, sender);
+        body.writeTo(out);
+        HeaderAndBody result = out.finish();
+
+        if (resumable) {
+            store.remove(key);
+        }
+        return result;
+    }
+
+    private final class ChunkingOutputStream extends OutputStream {
+
+        private final UploadProgress progress;
+        private final boolean resumable;
+        private final ChunkSender sender;
+        private final byte[] chunk = new byte[chunkSize];
+        private int count = 0;
+        private long position = 0;
+
+        ChunkingOutputStream(UploadProgress progress, boolean resumable, ChunkSender sender) {
+            this.progress = progress;
+            this.resumable = resumable;
+            this.sender = sender;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            long skip = Math.min(Math.max(progress.getOffset() - position, 0), length);
+            position += skip;
+            offset += skip;
+            length -= skip;
+
+            while (length > 0) {
+                if (count == chunk.length) {
+                    // a full chunk is held back until more bytes come, so
+                    // the last chunk is always sent by finish
+                    sendChunk(false);
+                }
+                int copied = Math.min(length, chunk.length - count);
+                System.arraycopy(bytes, offset, chunk, count, copied);
+                count += copied;
+                position += copied;
+                offset += copied;
+                length -= copied;
+            }
+        }
+
+        HeaderAndBody finish() throws IOException {
+            if (position < progress.getOffset()) {
+                store.remove(progress.getKey());
+                throw new IOException("The body is shorter than the part already uploaded");
+            }
+            return sendChunk(true);
+        }
+
+        private HeaderAndBody sendChunk(boolean last) {
+            long start = progress.getOffset();
+            String total;
+            if (progress.getLength() >= 0) {
+                total = String.valueOf(progress.getLength());
+            } else {
+                total = last ? String.valueOf(start + count) : "*";
+            }
+            String contentRange;
+            if (count == 0) {
+                contentRange = "bytes */" + total;
+            } else {
+                contentRange = "bytes " + start + "-" + (start + count - 1) + "/" + total;
+            }
+
+            HeaderAndBody response = sender.send(progress.getUploadId(), contentRange, new ChunkBody(chunk, count));
+
+            if (!last) {
+                progress.setOffset(start + count);
+                if (resumable) {
+                    store.save(progress);
+                }
+                count = 0;
+            }
+            return response;
+        }
+    }
+
+    private static final class ChunkBody implements RequestBody {
+
+        private final byte[] chunk;
+        private final int count;
+
+        ChunkBody(byte[] chunk, int count) {
+            this.chunk = chunk;
+            this.count = count;
+        }
+
+        @Override
+        public long getContentLength() {
+            return count;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(chunk, 0, count);
+        }
+
+        @Override
+        public boolean isReplayable() {
+            return true;
+        }
+    }
+}
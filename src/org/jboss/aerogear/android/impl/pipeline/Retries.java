@@ -0,0 +1,127 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.android.http.HttpException;
+import org.jboss.aerogear.android.pipeline.PartialSaveException;
+import org.jboss.aerogear.android.pipeline.RetryConfig;
+
+import android.util.Log;
+
+/**
+ * Decides when failed calls of a Pipe are tried again, as a 
+ * {@link RetryConfig} allows, and waits for them without holding a thread of
+ * the scheduler.
+ */
+final class Retries {
+
+    private static final String TAG = Retries.class.getSimpleName();
+    private static final Random RANDOM = new Random();
+    private static final String HTTP_DATE = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "Pipe retries");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private Retries() {
+    }
+
+    /**
+     * Hands a task to the timer of the retries, which runs it once the delay
+     * is over.  The task should only hand the retry to a scheduler, as every
+     * Pipe shares the one timer thread.
+     * 
+     * @param delay milliseconds to wait
+     * @param task what to run then
+     */
+    static void later(long delay, Runnable task) {
+        TIMER.schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A {@link PartialSaveException} is judged by the failure which caused it.
+     * 
+     * @return how many milliseconds to wait before the next attempt, -1 to 
+     * not make one
+     */
+    static long delayBeforeRetry(RetryConfig retryConfig, boolean idempotent, int attempt, Exception failure) {
+        if (failure instanceof PartialSaveException && failure.getCause() instanceof Exception) {
+            failure = (Exception) failure.getCause();
+        }
+        if (attempt >= retryConfig.getMaxAttempts()
+                || (!idempotent && !retryConfig.isRetryNonIdempotent())
+                || !retryConfig.isRetryable(failure)) {
+            return -1;
+        }
+
+        double backoff = retryConfig.getInitialDelay() * Math.pow(retryConfig.getMultiplier(), attempt - 1);
+        long delay = (long) (RANDOM.nextDouble() * Math.min(backoff, retryConfig.getMaxDelay()));
+
+        long retryAfter = retryAfterOf(failure);
+        if (retryAfter > retryConfig.getMaxDelay()) {
+            return -1;
+        }
+        return Math.max(delay, retryAfter);
+    }
+
+    /**
+     * @return the milliseconds a Retry-After header of the failure asks to 
+     * wait, 0 if there is none
+     */
+    static long retryAfterOf(Exception failure) {
+        if (!(failure instanceof HttpException) || ((HttpException) failure).getHeaders() == null) {
+            return 0;
+        }
+
+        String retryAfter = null;
+        for (Map.Entry<String, String> header : ((HttpException) failure).getHeaders().entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(header.getKey())) {
+                retryAfter = header.getValue();
+            }
+        }
+        if (retryAfter == null) {
+            return 0;
+        }
+
+        retryAfter = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(retryAfter) * 1000);
+        } catch (NumberFormatException notSeconds) {
+            try {
+                long date = new SimpleDateFormat(HTTP_DATE, Locale.US).parse(retryAfter).getTime();
+                return Math.max(0, date - System.currentTimeMillis());
+            } catch (ParseException e) {
+                Log.w(TAG, "Ignoring the Retry-After header " + retryAfter, e);
+                return 0;
+            }
+        }
+    }
+}
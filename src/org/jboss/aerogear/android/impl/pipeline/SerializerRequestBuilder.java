@@ -0,0 +1,73 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import java.util.List;
+
+import org.jboss.aerogear.android.pipeline.BulkRequestBuilder;
+import org.jboss.aerogear.android.pipeline.MarshallingConfig;
+import org.jboss.aerogear.android.serialization.Serializer;
+
+/**
+ * Builds request bodies with a {@link Serializer}
+ */
+public class SerializerRequestBuilder<T> implements BulkRequestBuilder<T> {
+
+    private final Serializer serializer;
+    private MarshallingConfig marshallingConfig = new MarshallingConfig();
+
+    public SerializerRequestBuilder(Serializer serializer) {
+        if (serializer == null) {
+            throw new IllegalArgumentException("serializer may not be null");
+        }
+        this.serializer = serializer;
+    }
+
+    @Override
+    public byte[] getBody(T data) {
+        return serializer.serialize(data);
+    }
+
+    @Override
+    public byte[] getBulkBody(List<T> data) {
+        return serializer.serializeAll(data);
+    }
+
+    @Override
+    public String getContentType() {
+        return serializer.getContentType();
+    }
+
+    public Serializer getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * The marshalling config sets options for reading and processing data
+     * 
+     * @return the current config
+     */
+    @Override
+    public MarshallingConfig getMarshallingConfig() {
+        return marshallingConfig;
+    }
+
+    public void setMarshallingConfig(MarshallingConfig marshallingConfig) {
+        this.marshallingConfig = marshallingConfig;
+    }
+
+}
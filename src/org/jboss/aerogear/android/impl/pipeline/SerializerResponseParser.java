@@ -0,0 +1,95 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import java.util.List;
+
+import org.jboss.aerogear.android.http.HeaderAndBody;
+import org.jboss.aerogear.android.pipeline.MarshallingConfig;
+import org.jboss.aerogear.android.pipeline.ResponseParser;
+import org.jboss.aerogear.android.serialization.Serializer;
+
+/**
+ * Parses response bodies with a {@link Serializer}.  Every body is read with
+ * {@link Serializer#deserializeAll(byte[], Class)}, so a server answers a save
+ * with a collection of one object.  The dataRoot of the marshalling config is
+ * not used.
+ */
+public class SerializerResponseParser<T> implements ResponseParser<T> {
+
+    private final Serializer serializer;
+    private MarshallingConfig marshallingConfig = new MarshallingConfig();
+
+    public SerializerResponseParser(Serializer serializer) {
+        if (serializer == null) {
+            throw new IllegalArgumentException("serializer may not be null");
+        }
+        this.serializer = serializer;
+    }
+
+    /**
+     * Serialized responses are bytes, which a String may not hold unchanged.
+     * 
+     * @throws UnsupportedOperationException always, use 
+     * {@link #handleSaveResponse(HeaderAndBody, Class)}
+     */
+    @Override
+    public T handleResponse(String response, Class<T> responseType) {
+        throw new UnsupportedOperationException("Serialized responses are parsed from their bytes");
+    }
+
+    /**
+     * Serialized responses are bytes, which a String may not hold unchanged.
+     * 
+     * @throws UnsupportedOperationException always, use 
+     * {@link #handleResponse(HeaderAndBody, Class)}
+     */
+    @Override
+    public T[] handleArrayResponse(String response, Class<T[]> responseType) {
+        throw new UnsupportedOperationException("Serialized responses are parsed from their bytes");
+    }
+
+    @Override
+    public List<T> handleResponse(HeaderAndBody response, Class<T> responseType) {
+        return serializer.deserializeAll(response.getBody(), responseType);
+    }
+
+    @Override
+    public T handleSaveResponse(HeaderAndBody response, Class<T> responseType) {
+        List<T> result = handleResponse(response, responseType);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    public Serializer getSerializer() {
+        return serializer;
+    }
+
+    /**
+     * The marshalling config sets options for reading and processing data
+     * 
+     * @return the current config
+     */
+    @Override
+    public MarshallingConfig getMarshallingConfig() {
+        return marshallingConfig;
+    }
+
+    public void setMarshallingConfig(MarshallingConfig marshallingConfig) {
+        this.marshallingConfig = marshallingConfig;
+    }
+
+}
@@ -17,6 +17,8 @@
 package org.jboss.aerogear.android.impl.pipeline;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.jboss.aerogear.android.Callback;
@@ -24,7 +26,10 @@ import org.jboss.aerogear.android.ReadFilter;
 import org.jboss.aerogear.android.impl.pipeline.loader.support.AbstractSupportPipeLoader;
 import org.jboss.aerogear.android.impl.pipeline.loader.support.SupportReadLoader;
 import org.jboss.aerogear.android.impl.pipeline.loader.support.SupportRemoveLoader;
+import org.jboss.aerogear.android.impl.pipeline.loader.support.SupportSaveAllLoader;
 import org.jboss.aerogear.android.impl.pipeline.loader.support.SupportSaveLoader;
+import org.jboss.aerogear.android.pipeline.BatchConfig;
+import org.jboss.aerogear.android.pipeline.ItemCallback;
 import org.jboss.aerogear.android.pipeline.LoaderPipe;
 import org.jboss.aerogear.android.pipeline.Pipe;
 import org.jboss.aerogear.android.pipeline.PipeHandler;
@@ -71,7 +76,7 @@ public class SupportLoaderAdapter<T> implements LoaderPipe<T>, LoaderManager.Loa
 
     private static enum Methods {
 
-        READ, SAVE, REMOVE
+        READ, SAVE, SAVE_ALL, REMOVE
     }
 
     private final Context applicationContext;
@@ -179,6 +184,17 @@ public class SupportLoaderAdapter<T> implements LoaderPipe<T>, LoaderManager.Loa
         manager.initLoader(id, bundle, this);
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * Incremental reads do not go through a Loader: they are run by the 
+     * wrapped Pipe and the callback is called on its reading thread.
+     */
+    @Override
+    public void read(ReadFilter filter, BatchConfig batchConfig, ItemCallback<T> callback) {
+        pipe.read(filter, batchConfig, callback);
+    }
+
     @Override
     public void save(T item, Callback<T> callback) {
         int id = Objects.hashCode(name, item, callback);
@@ -190,6 +206,16 @@ public class SupportLoaderAdapter<T> implements LoaderPipe<T>, LoaderManager.Loa
         manager.initLoader(id, bundle, this);
     }
 
+    @Override
+    public void saveAll(Collection<T> items, Callback<List<T>> callback) {
+        int id = Objects.hashCode(name, items, callback);
+        Bundle bundle = new Bundle();
+        bundle.putSerializable(CALLBACK, callback);
+        bundle.putSerializable(ITEMS, new ArrayList<T>(items));
+        bundle.putSerializable(METHOD, Methods.SAVE_ALL);
+        manager.initLoader(id, bundle, this);
+    }
+
     @Override
     public void remove(String toRemoveId, Callback<Void> callback) {
         int id = Objects.hashCode(name, toRemoveId, callback);
@@ -230,6 +256,12 @@ public class SupportLoaderAdapter<T> implements LoaderPipe<T>, LoaderManager.Loa
                         pipe.getHandler(), data, dataId);
         }
             break;
+        case SAVE_ALL: {
+            List items = (List) bundle.get(ITEMS);
+            loader = new SupportSaveAllLoader(applicationContext, callback,
+                    pipe.getHandler(), items);
+        }
+            break;
         }
         return loader;
     }
@@ -262,7 +294,9 @@ public class SupportLoaderAdapter<T> implements LoaderPipe<T>, LoaderManager.Loa
         } else {
             final AbstractSupportPipeLoader<HeaderAndBody> supportLoader = (AbstractSupportPipeLoader<HeaderAndBody>) loader;
             Object object = null;
-            if (!supportLoader.hasException() && data != null && data.getBody() != null) {
+            if (supportLoader instanceof SupportSaveAllLoader) {
+                object = ((SupportSaveAllLoader) supportLoader).getSaved();
+            } else if (!supportLoader.hasException() && data != null) {
                 object = extractObject(data, supportLoader);
             }
 
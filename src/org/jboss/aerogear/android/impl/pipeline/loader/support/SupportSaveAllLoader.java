@@ -0,0 +1,76 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline.loader.support;
+
+import java.util.List;
+
+import org.jboss.aerogear.android.Callback;
+import org.jboss.aerogear.android.pipeline.PipeHandler;
+
+import android.content.Context;
+import org.jboss.aerogear.android.http.HeaderAndBody;
+
+/**
+ * This class performs a bulk save on behalf of a Pipe using the Loader
+ * infrastructure.
+ *
+ * As a Loader it will only call the save once and retain an instance to the
+ * saved items regardless of how many times it is called unless reset() is
+ * called.
+ *
+ * The saved items are already parsed by the PipeHandler, so they are kept by
+ * the Loader and read with {@link #getSaved()}.  The Loader delivers no
+ * HeaderAndBody.
+ */
+public class SupportSaveAllLoader<T> extends AbstractSupportPipeLoader<List<T>> {
+
+    private final PipeHandler<T> runner;
+    private final List<T> items;
+    private List<T> saved;
+
+    public SupportSaveAllLoader(Context context, Callback<List<T>> callback, PipeHandler<T> runner, List<T> items) {
+        super(context, callback);
+        this.runner = runner;
+        this.items = items;
+    }
+
+    @Override
+    public HeaderAndBody loadInBackground() {
+        try {
+            saved = runner.onSaveAll(items);
+        } catch (Exception e) {
+            super.exception = e;
+        }
+        return null;
+    }
+
+    /**
+     * @return the saved items, or null if the save has not finished or failed
+     */
+    public List<T> getSaved() {
+        return saved;
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (saved != null) {
+            deliverResult(null);
+        } else {
+            forceLoad();
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.jboss.aerogear.android.impl.pipeline.paging;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.Charset;
 
 import org.jboss.aerogear.android.ReadFilter;
 import org.jboss.aerogear.android.http.HeaderAndBody;
@@ -60,7 +61,7 @@ public class URIBodyPageParser implements PageParameterExtractor<PageConfig> {
     public ReadFilter getNextFilter(HeaderAndBody result, PageConfig config) {
         ReadFilter filter = new ReadFilter();
         JsonParser parser = new JsonParser();
-        JsonElement element = parser.parse(new String(result.getBody()));
+        JsonElement element = parser.parse(result.getBodyAsString(Charset.defaultCharset()));
         URI nextUri = URI.create(getFromJSON(element, config.getNextIdentifier()));
         filter.setLinkUri(baseUri.resolve(nextUri));
         return filter;
@@ -70,7 +71,7 @@ public class URIBodyPageParser implements PageParameterExtractor<PageConfig> {
     public ReadFilter getPreviousFilter(HeaderAndBody result, PageConfig config) {
         ReadFilter filter = new ReadFilter();
         JsonParser parser = new JsonParser();
-        JsonElement element = parser.parse(new String(result.getBody()));
+        JsonElement element = parser.parse(result.getBodyAsString(Charset.defaultCharset()));
         URI nextUri = URI.create(getFromJSON(element, config.getPreviousIdentifier()));
         filter.setLinkUri(baseUri.resolve(nextUri));
         return filter;
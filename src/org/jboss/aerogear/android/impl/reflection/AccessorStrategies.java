@@ -0,0 +1,115 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.reflection;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * The ways a {@link Property} can access its field
+ */
+public enum AccessorStrategies implements AccessorStrategy {
+
+    /**
+     * Calls the getter and setter of the field, which must both exist.  This
+     * is the default.
+     */
+    METHODS {
+        @Override
+        public PropertyAccessor accessorFor(Class klass, Field field) {
+            final Method getMethod;
+            final Method setMethod;
+            try {
+                getMethod = klass.getMethod(getMethodName(field));
+                setMethod = klass.getMethod(setMethodName(field), field.getType());
+            } catch (Exception e) {
+                throw new PropertyNotFoundException(klass, field.getType(), field.getName());
+            }
+
+            return new PropertyAccessor() {
+                @Override
+                public Object getValue(Object instance) throws Exception {
+                    return getMethod.invoke(instance);
+                }
+
+                @Override
+                public void setValue(Object instance, Object value) throws Exception {
+                    setMethod.invoke(instance, value);
+                }
+            };
+        }
+    },
+
+    /**
+     * Reads and writes the field directly, skipping the getter and setter, 
+     * which need not exist.  Field access is cheaper than calling a method 
+     * through reflection as no argument array is allocated.
+     */
+    FIELDS {
+        @Override
+        public PropertyAccessor accessorFor(Class klass, final Field field) {
+            try {
+                field.setAccessible(true);
+            } catch (SecurityException e) {
+                throw new PropertyNotFoundException(klass, field.getType(), field.getName());
+            }
+
+            return new PropertyAccessor() {
+                @Override
+                public Object getValue(Object instance) throws Exception {
+                    return field.get(instance);
+                }
+
+                @Override
+                public void setValue(Object instance, Object value) throws Exception {
+                    field.set(instance, value);
+                }
+            };
+        }
+    },
+
+    /**
+     * Calls the getter and setter of the field when they exist and reads and
+     * writes the field directly otherwise.
+     */
+    METHODS_OR_FIELDS {
+        @Override
+        public PropertyAccessor accessorFor(Class klass, Field field) {
+            try {
+                return METHODS.accessorFor(klass, field);
+            } catch (PropertyNotFoundException e) {
+                return FIELDS.accessorFor(klass, field);
+            }
+        }
+    };
+
+    private static String getMethodName(Field field) {
+        if (field.getType() == boolean.class) {
+            return "is" + capitalize(field.getName());
+        } else {
+            return "get" + capitalize(field.getName());
+        }
+    }
+
+    private static String setMethodName(Field field) {
+        return "set" + capitalize(field.getName());
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+}
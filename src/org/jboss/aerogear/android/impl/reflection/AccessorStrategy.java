@@ -0,0 +1,38 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.reflection;
+
+import java.lang.reflect.Field;
+
+/**
+ * Decides how a {@link Property} reads and writes its field when no accessor
+ * was registered for it.
+ * 
+ * @see AccessorStrategies
+ */
+public interface AccessorStrategy {
+
+    /**
+     * @param klass the class of the objects to access
+     * @param field the field of the property, declared by klass or one of its
+     * superclasses
+     * @return an accessor of field on the objects of klass
+     * @throws PropertyNotFoundException if the field can not be accessed
+     */
+    PropertyAccessor accessorFor(Class klass, Field field);
+
+}
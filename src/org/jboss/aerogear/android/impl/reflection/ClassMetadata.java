@@ -0,0 +1,185 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.reflection;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.aerogear.android.RecordId;
+
+/**
+ * What reflection finds out about a class: its @RecordId field and the 
+ * Properties asked for so far.  It is looked up once per class and kept for
+ * the life of the process, so stores and pipes do not search the class again 
+ * for every object.  Instances are safe for concurrent use.
+ */
+public final class ClassMetadata {
+
+    private static final ConcurrentMap<Class, ClassMetadata> CACHE = new ConcurrentHashMap<Class, ClassMetadata>();
+
+    private final Class klass;
+    private final Field recordIdField;
+    private final ConcurrentMap<String, Property> properties = new ConcurrentHashMap<String, Property>();
+    private final ConcurrentMap<String, PropertyAccessor> accessors = new ConcurrentHashMap<String, PropertyAccessor>();
+    private volatile Property recordIdProperty;
+    private volatile List<Property> declaredProperties;
+
+    private ClassMetadata(Class klass) {
+        this.klass = klass;
+        this.recordIdField = findRecordIdField(klass);
+    }
+
+    /**
+     * @param klass the class to describe
+     * @return the metadata of klass
+     */
+    public static ClassMetadata of(Class klass) {
+        if (klass == null) {
+            throw new IllegalArgumentException("Class could not be null");
+        }
+        ClassMetadata metadata = CACHE.get(klass);
+        if (metadata == null) {
+            ClassMetadata created = new ClassMetadata(klass);
+            metadata = CACHE.putIfAbsent(klass, created);
+            if (metadata == null) {
+                metadata = created;
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Forgets the Properties of every class, after the accessor strategy
+     * changed.  Registered accessors are kept.
+     */
+    static void clearProperties() {
+        for (ClassMetadata metadata : CACHE.values()) {
+            metadata.properties.clear();
+            metadata.recordIdProperty = null;
+            metadata.declaredProperties = null;
+        }
+    }
+
+    private static Field findRecordIdField(Class klass) {
+        for (Class current = klass; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(RecordId.class)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the field annotated with @RecordId, in the class or its 
+     * superclasses
+     * @throws RecordIdNotFoundException if there is none
+     */
+    public Field getRecordIdField() {
+        if (recordIdField == null) {
+            throw new RecordIdNotFoundException(klass);
+        }
+        return recordIdField;
+    }
+
+    /**
+     * @return the Property of the @RecordId field
+     * @throws RecordIdNotFoundException if there is no @RecordId field
+     * @throws PropertyNotFoundException if it can not be accessed
+     */
+    public Property getRecordIdProperty() {
+        Property property = recordIdProperty;
+        if (property == null) {
+            property = getProperty(getRecordIdField().getName());
+            recordIdProperty = property;
+        }
+        return property;
+    }
+
+    /**
+     * @param fieldName the name of a field of the class or its superclasses
+     * @return the Property of the field
+     * @throws FieldNotFoundException if there is no such field
+     * @throws PropertyNotFoundException if it can not be accessed
+     */
+    public Property getProperty(String fieldName) {
+        Property property = properties.get(fieldName);
+        if (property == null) {
+            property = new Property(klass, fieldName, accessors.get(fieldName));
+            Property previous = properties.putIfAbsent(fieldName, property);
+            if (previous != null) {
+                property = previous;
+            }
+        }
+        return property;
+    }
+
+    /**
+     * @return the Properties of every field declared by the class itself, in
+     * the order of getDeclaredFields
+     * @throws PropertyNotFoundException if one can not be accessed
+     */
+    public List<Property> getDeclaredProperties() {
+        List<Property> declared = declaredProperties;
+        if (declared == null) {
+            Field[] fields = klass.getDeclaredFields();
+            List<Property> found = new ArrayList<Property>(fields.length);
+            for (Field field : fields) {
+                found.add(getProperty(field.getName()));
+            }
+            declared = Collections.unmodifiableList(found);
+            declaredProperties = declared;
+        }
+        return declared;
+    }
+
+    /**
+     * Makes the Property of a field use accessor instead of reflection, for
+     * instance an accessor generated for the model or written by hand.  
+     * Accessors should be registered before the class is first stored or 
+     * sent.
+     * 
+     * @param fieldName the name of a field of the class or its superclasses
+     * @param accessor reads and writes the field
+     * @throws IllegalArgumentException if either param is null
+     */
+    public void registerAccessor(String fieldName, PropertyAccessor accessor) {
+        if (fieldName == null) {
+            throw new IllegalArgumentException("Fieldname could not be null");
+        }
+        if (accessor == null) {
+            throw new IllegalArgumentException("accessor may not be null");
+        }
+        accessors.put(fieldName, accessor);
+        properties.remove(fieldName);
+        recordIdProperty = null;
+        declaredProperties = null;
+    }
+
+    /**
+     * @param fieldName the name of a field
+     * @return the accessor registered for the field, or null
+     */
+    PropertyAccessor getRegisteredAccessor(String fieldName) {
+        return accessors.get(fieldName);
+    }
+}
@@ -17,20 +17,66 @@
 package org.jboss.aerogear.android.impl.reflection;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 
 /**
  * Helper to access property with reflection
+ *
+ * How the value is read and written is decided by an accessor registered 
+ * with {@link ClassMetadata#registerAccessor(String, PropertyAccessor)} or, 
+ * when there is none, by the {@link AccessorStrategy} set with 
+ * {@link #setAccessorStrategy(AccessorStrategy)}.
  */
 public class Property {
 
+    private static volatile AccessorStrategy accessorStrategy = AccessorStrategies.METHODS;
+
     private final Class klass;
     private final String fieldName;
 
     private Class type;
 
-    private Method getMethod;
-    private Method setMethod;
+    private final PropertyAccessor accessor;
+
+    /**
+     * The Property of a field, looked up once per class and field and shared.
+     *
+     * @param klass Class to be manipulated
+     * @param fieldName Field to be accessed
+     * @return the Property of fieldName in klass
+     *
+     * @throws IllegalArgumentException if either param is null
+     * @throws PropertyNotFoundException if property isn't found
+     */
+    public static Property of(Class klass, String fieldName) {
+        if (fieldName == null) {
+            throw new IllegalArgumentException("Fieldname could not be null");
+        }
+        return ClassMetadata.of(klass).getProperty(fieldName);
+    }
+
+    /**
+     * @return how properties without a registered accessor reach their field
+     */
+    public static AccessorStrategy getAccessorStrategy() {
+        return accessorStrategy;
+    }
+
+    /**
+     * Properties already looked up are forgotten, so the strategy applies to
+     * every class; accessors registered for a field are still used.  It
+     * should be set once, before the first store or pipe is used.
+     * 
+     * @param accessorStrategy how properties without a registered accessor 
+     * reach their field, {@link AccessorStrategies#METHODS} by default
+     * @throws IllegalArgumentException if accessorStrategy is null
+     */
+    public static void setAccessorStrategy(AccessorStrategy accessorStrategy) {
+        if (accessorStrategy == null) {
+            throw new IllegalArgumentException("accessorStrategy may not be null");
+        }
+        Property.accessorStrategy = accessorStrategy;
+        ClassMetadata.clearProperties();
+    }
 
     public Class getType() {
         return type;
@@ -46,6 +92,14 @@ public class Property {
      * @throws PropertyNotFoundException if property isn't found
      */
     public Property(Class klass, String fieldName) {
+        this(klass, fieldName, registeredAccessor(klass, fieldName));
+    }
+
+    /**
+     * @param accessor the accessor registered for the field, or null to use
+     * the accessor strategy
+     */
+    Property(Class klass, String fieldName, PropertyAccessor accessor) {
         if (klass == null) {
             throw new IllegalArgumentException("Class could not be null");
         }
@@ -56,13 +110,21 @@ public class Property {
         this.klass = klass;
         this.fieldName = fieldName;
 
-        setPropertyType();
-        findAccessorMethods();
+        Field field = findField();
+        this.type = field.getType();
+        this.accessor = accessor != null ? accessor : accessorStrategy.accessorFor(klass, field);
     }
 
-    private void setPropertyType() {
+    private static PropertyAccessor registeredAccessor(Class klass, String fieldName) {
+        if (klass == null || fieldName == null) {
+            return null;
+        }
+        return ClassMetadata.of(klass).getRegisteredAccessor(fieldName);
+    }
+
+    private Field findField() {
         try {
-            type = findFieldInClass(klass, fieldName).getType();
+            return findFieldInClass(klass, fieldName);
         } catch (NoSuchFieldException e) {
             throw new FieldNotFoundException(klass, fieldName);
         }
@@ -89,32 +151,6 @@ public class Property {
         }
     }
 
-    private void findAccessorMethods() {
-        try {
-            getMethod = klass.getMethod(getMethodName());
-            setMethod = klass.getMethod(setMethodName(), type);
-        } catch (Exception e) {
-            throw new PropertyNotFoundException(klass, getType(), fieldName);
-        }
-
-    }
-
-    private String getMethodName() {
-        if (type == boolean.class) {
-            return "is" + capitalize(fieldName);
-        } else {
-            return "get" + capitalize(fieldName);
-        }
-    }
-
-    private String setMethodName() {
-        return "set" + capitalize(fieldName);
-    }
-
-    private String capitalize(String name) {
-        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
-    }
-
     /**
      * Get value
      *
@@ -123,7 +159,7 @@ public class Property {
      */
     public Object getValue(Object instance) {
         try {
-            return getMethod.invoke(instance);
+            return accessor.getValue(instance);
         } catch (Exception e) {
             throw new PropertyNotFoundException(klass, getType(), fieldName);
         }
@@ -138,7 +174,7 @@ public class Property {
      */
     public void setValue(Object instance, Object value) {
         try {
-            setMethod.invoke(instance, value);
+            accessor.setValue(instance, value);
         } catch (Exception e) {
             throw new PropertyNotFoundException(klass, getType(), fieldName);
         }
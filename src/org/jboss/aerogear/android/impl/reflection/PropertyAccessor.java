@@ -0,0 +1,41 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.reflection;
+
+/**
+ * Reads and writes one property of the objects of a class.  Accessors
+ * written for a model, by hand or by a code generator, avoid reflection 
+ * altogether and are registered with 
+ * {@link ClassMetadata#registerAccessor(String, PropertyAccessor)}.
+ */
+public interface PropertyAccessor {
+
+    /**
+     * @param instance the object to read
+     * @return the value of the property
+     * @throws Exception if it can not be read
+     */
+    Object getValue(Object instance) throws Exception;
+
+    /**
+     * @param instance the object to write
+     * @param value the new value of the property
+     * @throws Exception if it can not be written
+     */
+    void setValue(Object instance, Object value) throws Exception;
+
+}
@@ -16,12 +16,10 @@
  */
 package org.jboss.aerogear.android.impl.reflection;
 
-import java.lang.reflect.Field;
-
-import org.jboss.aerogear.android.RecordId;
-
 /**
  * Helper to search annotations
+ * 
+ * What is found is kept per class by {@link ClassMetadata}.
  */
 public final class Scan {
 
@@ -29,29 +27,20 @@ public final class Scan {
      * Search field with @RecordId
      *
      * @param klass Class to search @RecordId
-     * @return Field with @RecordId
+     * @return Name Field name with the @RecordId
      */
-    private static Field recordIdFieldIn(Class klass) {
-        for (Field field : klass.getDeclaredFields()) {
-            if (field.isAnnotationPresent(RecordId.class)) {
-                return field;
-            }
-        }
-        Class superclass = klass.getSuperclass();
-        if (superclass != null) {
-            return recordIdFieldIn(superclass);
-        }
-        throw new RecordIdNotFoundException(klass);
+    public static String recordIdFieldNameIn(Class klass) {
+        return ClassMetadata.of(klass).getRecordIdField().getName();
     }
 
     /**
-     * Search field with @RecordId
+     * Search the property of the field with @RecordId
      *
      * @param klass Class to search @RecordId
-     * @return Name Field name with the @RecordId
+     * @return Property of the field with the @RecordId
      */
-    public static String recordIdFieldNameIn(Class klass) {
-        return recordIdFieldIn(klass).getName();
+    public static Property recordIdPropertyIn(Class klass) {
+        return ClassMetadata.of(klass).getRecordIdProperty();
     }
 
     /**
@@ -64,8 +53,7 @@ public final class Scan {
      * @throws RecordIdNotFoundException if data does not have a field annotated with @RecordId
      */
     public static String findIdValueIn(Object data) {
-        String recordIdFieldName = Scan.recordIdFieldNameIn(data.getClass());
-        Object idObject = new Property(data.getClass(), recordIdFieldName).getValue(data);
+        Object idObject = recordIdPropertyIn(data.getClass()).getValue(data);
         String id = idObject == null ? null : idObject.toString();
         return id;
     }
@@ -0,0 +1,753 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.serialization;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.aerogear.android.serialization.FieldNumber;
+import org.jboss.aerogear.android.serialization.Serializer;
+
+/**
+ * A compact binary format, driven by the fields of the model classes.
+ * 
+ * An object is a sequence of fields, each a key followed by a value.  The 
+ * key holds the number of the field and the way its value is encoded, as in
+ * Protocol Buffers: integers, booleans, characters and dates are varints, 
+ * with signed integers zigzag encoded; floats and doubles are four and eight
+ * bytes; strings (UTF-8), enums (by name), byte arrays, nested objects and 
+ * collections are prefixed with their length.  Null values are left out and
+ * unknown fields are skipped.  A collection of objects, as sent by 
+ * {@link #serializeAll(Collection)}, is its size followed by each object 
+ * prefixed with its length.
+ * 
+ * Every non static, non transient field of a class and its superclasses is 
+ * serialized, and each must be numbered with {@link FieldNumber}.  A field 
+ * keeps its number when it is renamed and fields may be added with new 
+ * numbers, so data written before a model changes can still be read after 
+ * it; a number which is no longer used must not be given to another field.  
+ * Likewise enum constants may be added and reordered, but data holding a 
+ * constant which was renamed or removed can no longer be read.  
+ * Supported field types are primitives and their wrappers, String, byte[], 
+ * enums, Date, other model classes and Collections, Lists and Sets of any of
+ * those.  A value is written with the fields of the class its field or 
+ * collection is declared with, not those of its runtime class, so fields 
+ * which only a subclass declares are not written.  Objects are created with
+ * their no argument constructor, which every model class must have.
+ */
+public class BinarySerializer implements Serializer {
+
+    public static final String CONTENT_TYPE = "application/x-aerogear-binary";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int VARINT = 0;
+    private static final int FIXED64 = 1;
+    private static final int LENGTH_DELIMITED = 2;
+    private static final int FIXED32 = 5;
+
+    private static final int MAX_FIELD_NUMBER = (1 << 29) - 1;
+
+    private static final ConcurrentMap<Class<?>, Schema> SCHEMAS = new ConcurrentHashMap<Class<?>, Schema>();
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] serialize(Object item) {
+        if (item == null) {
+            throw new IllegalArgumentException("item may not be null");
+        }
+        Output out = new Output();
+        schemaOf(item.getClass()).write(out, item);
+        return out.toByteArray();
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> type) {
+        Input in = new Input(data);
+        return type.cast(schemaOf(type).read(in, data.length));
+    }
+
+    @Override
+    public byte[] serializeAll(Collection<?> items) {
+        Output out = new Output();
+        out.writeVarint(items.size());
+        for (Object item : items) {
+            if (item == null) {
+                throw new IllegalArgumentException("items may not contain null");
+            }
+            ObjectCodec.write(out, schemaOf(item.getClass()), item);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public <T> List<T> deserializeAll(byte[] data, Class<T> type) {
+        if (data.length == 0) {
+            return new ArrayList<T>();
+        }
+        Input in = new Input(data);
+        int size = in.readSize(data.length);
+        Schema schema = schemaOf(type);
+        List<T> result = new ArrayList<T>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(type.cast(ObjectCodec.read(in, schema)));
+        }
+        return result;
+    }
+
+    private static Schema schemaOf(Class<?> type) {
+        Schema schema = SCHEMAS.get(type);
+        if (schema == null) {
+            Schema created = new Schema(type);
+            schema = SCHEMAS.putIfAbsent(type, created);
+            if (schema == null) {
+                schema = created;
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * The numbered fields of a class, in the order of their numbers, and the 
+     * codecs of their values
+     */
+    private static final class Schema {
+
+        private final Class<?> type;
+        private final Field[] fields;
+        private final int[] numbers;
+        private final Codec[] codecs;
+        private final Constructor<?> constructor;
+
+        Schema(Class<?> type) {
+            if (Modifier.isAbstract(type.getModifiers())) {
+                throw new IllegalArgumentException(type + " is abstract, which binary serialization does not support");
+            }
+            this.type = type;
+            List<Field> found = new ArrayList<Field>();
+            Map<String, Field> byName = new HashMap<String, Field>();
+            Map<Integer, Field> byNumber = new HashMap<Integer, Field>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    if (byName.put(field.getName(), field) != null) {
+                        throw new IllegalArgumentException(type + " declares multiple fields named " + field.getName());
+                    }
+                    FieldNumber number = field.getAnnotation(FieldNumber.class);
+                    if (number == null) {
+                        throw new IllegalArgumentException(field.getName() + " of " + type + " has no @FieldNumber");
+                    }
+                    if (number.value() < 1 || number.value() > MAX_FIELD_NUMBER) {
+                        throw new IllegalArgumentException(field.getName() + " of " + type + " has field number " + number.value()
+                                + ", which is not between 1 and " + MAX_FIELD_NUMBER);
+                    }
+                    Field other = byNumber.put(number.value(), field);
+                    if (other != null) {
+                        throw new IllegalArgumentException(field.getName() + " and " + other.getName() + " of " + type
+                                + " share field number " + number.value());
+                    }
+                    found.add(field);
+                }
+            }
+            this.fields = found.toArray(new Field[found.size()]);
+            Arrays.sort(this.fields, new Comparator<Field>() {
+                @Override
+                public int compare(Field left, Field right) {
+                    return numberOf(left) - numberOf(right);
+                }
+            });
+            this.numbers = new int[fields.length];
+            this.codecs = new Codec[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                numbers[i] = numberOf(fields[i]);
+                fields[i].setAccessible(true);
+                codecs[i] = codecOf(fields[i].getType(), fields[i].getGenericType(), fields[i].getName());
+            }
+            this.constructor = noArgConstructorOf(type);
+        }
+
+        private static int numberOf(Field field) {
+            return field.getAnnotation(FieldNumber.class).value();
+        }
+
+        private static Constructor<?> noArgConstructorOf(Class<?> type) {
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor;
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(type + " has no no argument constructor, which binary serialization needs", e);
+            }
+        }
+
+        void write(Output out, Object item) {
+            try {
+                for (int i = 0; i < fields.length; i++) {
+                    Object value = fields[i].get(item);
+                    if (value != null) {
+                        out.writeVarint(((long) numbers[i] << 3) | codecs[i].wireType);
+                        codecs[i].write(out, value);
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Object read(Input in, int end) {
+            Object item = newInstance();
+            try {
+                while (in.position < end) {
+                    long key = in.readVarint();
+                    int wireType = (int) (key & 7);
+                    int index = key >>> 3 <= MAX_FIELD_NUMBER ? Arrays.binarySearch(numbers, (int) (key >>> 3)) : -1;
+                    if (index >= 0 && codecs[index].wireType == wireType) {
+                        fields[index].set(item, codecs[index].read(in));
+                    } else {
+                        in.skip(wireType);
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            return item;
+        }
+
+        private Object newInstance() {
+            try {
+                return constructor.newInstance();
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to create an instance of " + type, e);
+            }
+        }
+    }
+
+    private static Codec codecOf(Class<?> type, Type genericType, String name) {
+        if (type == boolean.class || type == Boolean.class) {
+            return BooleanCodec.INSTANCE;
+        } else if (type == int.class || type == Integer.class) {
+            return new IntegerCodec(Integer.class);
+        } else if (type == long.class || type == Long.class) {
+            return new IntegerCodec(Long.class);
+        } else if (type == short.class || type == Short.class) {
+            return new IntegerCodec(Short.class);
+        } else if (type == byte.class || type == Byte.class) {
+            return new IntegerCodec(Byte.class);
+        } else if (type == char.class || type == Character.class) {
+            return CharacterCodec.INSTANCE;
+        } else if (type == float.class || type == Float.class) {
+            return FloatCodec.INSTANCE;
+        } else if (type == double.class || type == Double.class) {
+            return DoubleCodec.INSTANCE;
+        } else if (type == String.class) {
+            return StringCodec.INSTANCE;
+        } else if (type == byte[].class) {
+            return BytesCodec.INSTANCE;
+        } else if (type.isEnum()) {
+            return new EnumCodec(type);
+        } else if (type == Date.class) {
+            return DateCodec.INSTANCE;
+        } else if (Collection.class.isAssignableFrom(type)) {
+            if (!(genericType instanceof ParameterizedType)) {
+                throw new IllegalArgumentException(name + " is a raw collection, which binary serialization does not support");
+            }
+            Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            if (!(elementType instanceof Class)) {
+                throw new IllegalArgumentException(name + " is not a supported type for binary serialization");
+            }
+            return new CollectionCodec(type, codecOf((Class<?>) elementType, elementType, name));
+        } else if (type.isPrimitive() || type.isArray() || type.isInterface() || Map.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(name + " is not a supported type for binary serialization");
+        }
+        return new ObjectCodec(type);
+    }
+
+    /**
+     * Writes and reads one value, without its key
+     */
+    private abstract static class Codec {
+
+        final int wireType;
+
+        Codec(int wireType) {
+            this.wireType = wireType;
+        }
+
+        abstract void write(Output out, Object value);
+
+        abstract Object read(Input in);
+    }
+
+    private static final class BooleanCodec extends Codec {
+
+        static final BooleanCodec INSTANCE = new BooleanCodec();
+
+        BooleanCodec() {
+            super(VARINT);
+        }
+
+        @Override
+        void write(Output out, Object value) {
+            out.writeVarint((Boolean) value ? 1 : 0);
+        }
+
+        @Override
+        Object read(Input in) {
+            return in.readVarint() != 0;
+        }
+    }
+
+    private static final class IntegerCodec extends Codec {
+
+        private final Class<?> type;
+
+        IntegerCodec(Class<?> type) {
+            super(VARINT);
+            this.type = type;
+        }
+
+        @Override
+        void write(Output out, Object value) {
+            long number = ((Number) value).longValue();
+            out.writeVarint((number << 1) ^ (number >> 63));
+        }
+
+        @Override
+        Object read(Input in) {
+            long zigzag = in.readVarint();
+            long number = (zigzag >>> 1) ^ -(zigzag & 1);
+            if (type == Integer.class) {
+                return (int) number;
+            } else if (type == Long.class) {
+                return number;
+            } else if (type == Short.class) {
+                return (short) number;
+            }
+            return (byte) number;
+        }
+    }
+
+    private static final class CharacterCodec extends Codec {
+
+        static final CharacterCodec INSTANCE = new CharacterCodec();
+
+        CharacterCodec() {
+            super(VARINT);
+        }
+
+        @Override
+        void write(Output out, Object value) {
+            out.writeVarint((Character) value);
+        }
+
+        @Override
+        Object read(Input in) {
+            return (char) in.readVarint();
+        }
+    }
+
+    private static final class FloatCodec extends Codec {
+
+        static final FloatCodec INSTANCE = new FloatCodec();
+
+        FloatCodec() {
+            super(FIXED32);
+        }
+
+        @Override
+        void write(Output out, Object value) {
+            out.writeFixed(Float.floatToIntBits((Float) value), 4);
+        }
+
+        @Override
+        Object read(Input in) {
+            return Float.intBitsToFloat((int) in.readFixed(4));
+        }
+    }
+
+    private static final class DoubleCodec extends Codec {
+
+        static final DoubleCodec INSTANCE = new DoubleCodec();
+
+        DoubleCodec() {
+            super(FIXED64);
+        }
+
+        @Override
+        void write(Output out, Object value) {
+            out.writeFixed(Double.doubleToLongBits((Double) value), 8);
+        }
+
+        @Override
+        Object read(Input in) {
+            return Double.longBitsToDouble(in.readFixed(8));
+        }
+    }
+
+    private static final class StringCodec extends Codec {
+
+        static final StringCodec INSTANCE = new StringCodec();
+
+        StringCodec() {
+            super(LENGTH_DELIMITED);
+        }
+
+        @Override
+        void write(Output out, Object value) {
+            byte[] bytes = ((String) value).getBytes(UTF_8);
+            out.writeVarint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        Object read(Input in) {
+            int length = in.readLength();
+            String value = new String(in.data, in.position, length, UTF_8);
+            in.position += length;
+            return value;
+        }
+    }
+
+    private static final class BytesCodec extends Codec {
+
+        static final BytesCodec INSTANCE = new BytesCodec();
+
+        BytesCodec() {
+            super(LENGTH_DELIMITED);
+        }
+
+        @Override
+        void write(Output out, Object value) {
+            byte[] bytes = (byte[]) value;
+            out.writeVarint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        Object read(Input in) {
+            int length = in.readLength();
+            byte[] value = Arrays.copyOfRange(in.data, in.position, in.position + length);
+            in.position += length;
+            return value;
+        }
+    }
+
+    /**
+     * An enum constant, written by its name so its position in the enum may
+     * change.
+     */
+    private static final class EnumCodec extends Codec {
+
+        private final Class<?> type;
+        private final Map<String, Object> constants = new HashMap<String, Object>();
+
+        EnumCodec(Class<?> type) {
+            super(LENGTH_DELIMITED);
+            this.type = type;
+            for (Object constant : type.getEnumConstants()) {
+                constants.put(((Enum<?>) constant).name(), constant);
+            }
+        }
+
+        @Override
+        void write(Output out, Object value) {
+            StringCodec.INSTANCE.write(out, ((Enum<?>) value).name());
+        }
+
+        @Override
+        Object read(Input in) {
+            String name = (String) StringCodec.INSTANCE.read(in);
+            Object constant = constants.get(name);
+            if (constant == null) {
+                throw new IllegalArgumentException(name + " is not a constant of " + type);
+            }
+            return constant;
+        }
+    }
+
+    private static final class DateCodec extends Codec {
+
+        static final DateCodec INSTANCE = new DateCodec();
+
+        DateCodec() {
+            super(VARINT);
+        }
+
+        @Override
+        void write(Output out, Object value) {
+            long time = ((Date) value).getTime();
+            out.writeVarint((time << 1) ^ (time >> 63));
+        }
+
+        @Override
+        Object read(Input in) {
+            long zigzag = in.readVarint();
+            return new Date((zigzag >>> 1) ^ -(zigzag & 1));
+        }
+    }
+
+    /**
+     * A nested object of the declared type, prefixed with its length.  The 
+     * schema is looked up when it is first needed, so classes may refer to 
+     * themselves.
+     */
+    private static final class ObjectCodec extends Codec {
+
+        private final Class<?> type;
+
+        ObjectCodec(Class<?> type) {
+            super(LENGTH_DELIMITED);
+            this.type = type;
+        }
+
+        @Override
+        void write(Output out, Object value) {
+            write(out, schemaOf(type), value);
+        }
+
+        @Override
+        Object read(Input in) {
+            return read(in, schemaOf(type));
+        }
+
+        static void write(Output out, Schema schema, Object value) {
+            Output nested = new Output();
+            schema.write(nested, value);
+            out.writeVarint(nested.size());
+            out.write(nested.buffer, 0, nested.size());
+        }
+
+        static Object read(Input in, Schema schema) {
+            int length = in.readLength();
+            int end = in.position + length;
+            Object value = schema.read(in, end);
+            in.position = end;
+            return value;
+        }
+    }
+
+    /**
+     * The size of a collection followed by its elements, all prefixed with
+     * their length in bytes.
+     */
+    private static final class CollectionCodec extends Codec {
+
+        private final Class<?> type;
+        private final Codec elementCodec;
+
+        CollectionCodec(Class<?> type, Codec elementCodec) {
+            super(LENGTH_DELIMITED);
+            this.type = type;
+            this.elementCodec = elementCodec;
+        }
+
+        @Override
+        void write(Output out, Object value) {
+            Collection<?> elements = (Collection<?>) value;
+            Output nested = new Output();
+            nested.writeVarint(elements.size());
+            for (Object element : elements) {
+                if (element == null) {
+                    throw new IllegalArgumentException("Binary serialization does not support null elements in collections");
+                }
+                elementCodec.write(nested, element);
+            }
+            out.writeVarint(nested.size());
+            out.write(nested.buffer, 0, nested.size());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object read(Input in) {
+            int length = in.readLength();
+            int end = in.position + length;
+            int size = in.readSize(end);
+            Collection<Object> elements = newCollection(size);
+            for (int i = 0; i < size; i++) {
+                elements.add(elementCodec.read(in));
+            }
+            in.position = end;
+            return elements;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Collection<Object> newCollection(int size) {
+            if (type.isInterface()) {
+                if (Set.class.isAssignableFrom(type)) {
+                    return new LinkedHashSet<Object>(size < Integer.MAX_VALUE / 2 ? size * 2 : size);
+                }
+                return new ArrayList<Object>(size);
+            }
+            try {
+                return (Collection<Object>) type.newInstance();
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to create an instance of " + type, e);
+            }
+        }
+    }
+
+    /**
+     * A growable buffer
+     */
+    private static final class Output {
+
+        private byte[] buffer = new byte[64];
+        private int size = 0;
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeFixed(long value, int bytes) {
+            ensureCapacity(bytes);
+            for (int i = 0; i < bytes; i++) {
+                buffer[size++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensureCapacity(int length) {
+            if (size + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+            }
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] data;
+        private int position = 0;
+
+        Input(byte[] data) {
+            this.data = data;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= data.length) {
+                    throw new IllegalArgumentException("Truncated binary data");
+                }
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        long readFixed(int bytes) {
+            checkAvailable(bytes);
+            long value = 0;
+            for (int i = 0; i < bytes; i++) {
+                value |= (long) (data[position++] & 0xFF) << (8 * i);
+            }
+            return value;
+        }
+
+        int readLength() {
+            long length = readVarint();
+            if (length < 0 || length > data.length - position) {
+                throw new IllegalArgumentException("Truncated binary data");
+            }
+            return (int) length;
+        }
+
+        /**
+         * Reads the size of a collection ending at end.  Every element takes
+         * at least one byte, so a size beyond the bytes left is rejected 
+         * before anything is allocated for it.
+         */
+        int readSize(int end) {
+            long size = readVarint();
+            if (size < 0 || size > end - position) {
+                throw new IllegalArgumentException("Invalid collection size " + size);
+            }
+            return (int) size;
+        }
+
+        void skip(int wireType) {
+            switch (wireType) {
+            case VARINT:
+                readVarint();
+                break;
+            case FIXED64:
+                checkAvailable(8);
+                position += 8;
+                break;
+            case LENGTH_DELIMITED:
+                int length = readLength();
+                position += length;
+                break;
+            case FIXED32:
+                checkAvailable(4);
+                position += 4;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown wire type " + wireType);
+            }
+        }
+
+        private void checkAvailable(int bytes) {
+            if (bytes > data.length - position) {
+                throw new IllegalArgumentException("Truncated binary data");
+            }
+        }
+    }
+}
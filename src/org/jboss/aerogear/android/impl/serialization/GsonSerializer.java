@@ -0,0 +1,91 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.serialization;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.jboss.aerogear.android.impl.util.ClassUtils;
+import org.jboss.aerogear.android.impl.util.GsonRegistry;
+import org.jboss.aerogear.android.serialization.Serializer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+/**
+ * Serializes objects as UTF-8 JSON with Gson.  This is the format stores and
+ * pipes use when no serializer is configured.
+ */
+public class GsonSerializer implements Serializer {
+
+    public static final String CONTENT_TYPE = "application/json";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Gson gson;
+
+    public GsonSerializer() {
+        this(GsonRegistry.getDefault());
+    }
+
+    public GsonSerializer(Gson gson) {
+        this.gson = gson;
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] serialize(Object item) {
+        return gson.toJson(item).getBytes(UTF_8);
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> type) {
+        return gson.fromJson(new String(data, UTF_8), type);
+    }
+
+    @Override
+    public byte[] serializeAll(Collection<?> items) {
+        return gson.toJson(items).getBytes(UTF_8);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * A single JSON object is read as a list of one.
+     */
+    @Override
+    public <T> List<T> deserializeAll(byte[] data, Class<T> type) {
+        JsonElement element = new JsonParser().parse(new String(data, UTF_8));
+        if (element.isJsonNull()) {
+            return new ArrayList<T>();
+        } else if (element.isJsonArray()) {
+            return new ArrayList<T>(Arrays.asList(gson.fromJson(element, ClassUtils.asArrayClass(type))));
+        }
+        List<T> result = new ArrayList<T>(1);
+        result.add(gson.fromJson(element, type));
+        return result;
+    }
+
+}
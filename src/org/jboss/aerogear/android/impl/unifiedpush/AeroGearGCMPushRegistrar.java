@@ -31,14 +31,12 @@ import android.os.AsyncTask;
 import android.util.Log;
 
 import com.google.android.gms.gcm.GoogleCloudMessaging;
-import com.google.common.collect.ImmutableSet;
-import com.google.gson.ExclusionStrategy;
-import com.google.gson.FieldAttributes;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.jboss.aerogear.android.Provider;
 
 import org.jboss.aerogear.android.impl.http.HttpRestProviderForPush;
+import org.jboss.aerogear.android.impl.util.GsonRegistry;
 import org.jboss.aerogear.android.impl.util.UrlUtils;
 import org.jboss.aerogear.android.unifiedpush.PushConfig;
 import org.jboss.aerogear.android.unifiedpush.PushRegistrar;
@@ -53,6 +51,13 @@ public class AeroGearGCMPushRegistrar implements PushRegistrar {
     private static final String PROPERTY_ON_SERVER_EXPIRATION_TIME = "onServerExpirationTimeMs";
 
     private static final String registryDeviceEndpoint = "/rest/registry/device";
+
+    /**
+     * Sends only the fields of PushConfig the registry expects
+     */
+    static final GsonBuilder PUSH_CONFIG_GSON = new GsonBuilder()
+            .registerTypeAdapter(PushConfig.class, new PushConfigAdapter());
+
     private final URI pushServerURI;
     private final PushConfig config;
 
@@ -110,32 +115,7 @@ public class AeroGearGCMPushRegistrar implements PushRegistrar {
                     HttpRestProviderForPush httpProvider = httpProviderProvider.get(deviceRegistryURL, TIMEOUT);
                     httpProvider.setPasswordAuthentication(config.getVariantID(), config.getSecret());
 
-                    Gson gson = new GsonBuilder().setExclusionStrategies(
-                            new ExclusionStrategy() {
-                                private final ImmutableSet<String> fields;
-
-                                {
-                                    fields = ImmutableSet.<String> builder()
-                                            .add("deviceToken")
-                                            .add("deviceType")
-                                            .add("alias")
-                                            .add("operatingSystem")
-                                            .add("osVersion")
-                                            .add("categories")
-                                            .build();
-                                }
-
-                                @Override
-                                public boolean shouldSkipField(FieldAttributes f) {
-                                    return !(f.getDeclaringClass() == PushConfig.class && fields
-                                            .contains(f.getName()));
-                                }
-
-                                @Override
-                                public boolean shouldSkipClass(Class<?> arg0) {
-                                    return false;
-                                }
-                            }).create();
+                    Gson gson = GsonRegistry.get(PUSH_CONFIG_GSON);
                     try {
                         httpProvider.post(gson.toJson(config));
                         return null;
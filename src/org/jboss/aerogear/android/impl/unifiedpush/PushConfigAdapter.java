@@ -0,0 +1,105 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.unifiedpush;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.aerogear.android.unifiedpush.PushConfig;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes the fields of a PushConfig the device registry expects:
+ * deviceToken, deviceType, alias, operatingSystem, osVersion and categories.
+ * Fields without a value are left out.
+ * 
+ * It binds PushConfig without reflection, so Gson neither looks the class up
+ * nor asks an exclusion strategy about each of its fields.
+ */
+class PushConfigAdapter extends TypeAdapter<PushConfig> {
+
+    @Override
+    public void write(JsonWriter out, PushConfig config) throws IOException {
+        if (config == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeField(out, "deviceToken", config.getDeviceToken());
+        writeField(out, "deviceType", config.getDeviceType());
+        writeField(out, "alias", config.getAlias());
+        writeField(out, "operatingSystem", config.getOperatingSystem());
+        writeField(out, "osVersion", config.getOsVersion());
+        if (config.getCategories() != null) {
+            out.name("categories").beginArray();
+            for (String category : config.getCategories()) {
+                out.value(category);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public PushConfig read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        PushConfig config = new PushConfig();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if ("deviceToken".equals(name)) {
+                config.setDeviceToken(in.nextString());
+            } else if ("deviceType".equals(name)) {
+                config.setDeviceType(in.nextString());
+            } else if ("alias".equals(name)) {
+                config.setAlias(in.nextString());
+            } else if ("operatingSystem".equals(name)) {
+                config.setOperatingSystem(in.nextString());
+            } else if ("osVersion".equals(name)) {
+                config.setOsVersion(in.nextString());
+            } else if ("categories".equals(name)) {
+                List<String> categories = new ArrayList<String>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    categories.add(in.nextString());
+                }
+                in.endArray();
+                config.setCategories(categories);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return config;
+    }
+
+    private static void writeField(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -16,9 +16,10 @@
  */
 package org.jboss.aerogear.android.impl.util;
 
-import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.jboss.aerogear.android.impl.crypto.InvalidKeyException;
+import org.jboss.aerogear.android.impl.serialization.GsonSerializer;
+import org.jboss.aerogear.android.serialization.Serializer;
 import org.jboss.aerogear.crypto.CryptoBox;
 import org.jboss.aerogear.crypto.keys.PrivateKey;
 
@@ -31,17 +32,27 @@ public class CryptoUtils<T> {
     private final CryptoBox cryptoBox;
     private final byte[] IV;
     private final Class<T> modelClass;
-    private final Gson gson;
+    private final Serializer serializer;
 
     public CryptoUtils(PrivateKey privateKey, byte[] iv, Class<T> modelClass) {
         this(privateKey, iv, modelClass, new GsonBuilder());
     }
 
     public CryptoUtils(PrivateKey privateKey, byte[] iv, Class<T> modelClass, GsonBuilder builder) {
+        this(privateKey, iv, modelClass, new GsonSerializer(GsonRegistry.get(builder)));
+    }
+
+    /**
+     * @param privateKey the key items are encrypted with
+     * @param iv the initialization vector
+     * @param modelClass the class of the items
+     * @param serializer turns items into the bytes which are encrypted
+     */
+    public CryptoUtils(PrivateKey privateKey, byte[] iv, Class<T> modelClass, Serializer serializer) {
         this.modelClass = modelClass;
         this.cryptoBox = new CryptoBox(privateKey);
         this.IV = iv;
-        this.gson = builder.create();
+        this.serializer = serializer;
     }
 
     public Collection<T> decrypt(Collection<byte[]> encryptedCollection) {
@@ -53,16 +64,14 @@ public class CryptoUtils<T> {
     }
 
     public byte[] encrypt(T item) {
-        String json = gson.toJson(item);
-        byte[] message = json.getBytes();
+        byte[] message = serializer.serialize(item);
         return cryptoBox.encrypt(IV, message);
     }
 
     public T decrypt(byte[] data) {
         try {
             byte[] decryptedData = cryptoBox.decrypt(IV, data);
-            String json = new String(decryptedData);
-            return gson.fromJson(json, modelClass);
+            return serializer.deserialize(decryptedData, modelClass);
         } catch (RuntimeException e) {
             throw new InvalidKeyException(e);
         }
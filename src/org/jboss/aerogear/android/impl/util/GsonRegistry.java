@@ -0,0 +1,76 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.util;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * The Gson instances of the library, built once per configuration and shared
+ * by pipes, stores and registrars.
+ * 
+ * A Gson caches the TypeAdapter of every type it meets, so sharing one avoids
+ * looking each model class up again for every pipe and store.  Gson is safe
+ * for concurrent use.  A configuration is a GsonBuilder: the Gson of a 
+ * builder is built the first time it is asked for and kept as long as the 
+ * builder is reachable, so a builder should not be changed once it has been
+ * handed to a pipe or store.
+ */
+public final class GsonRegistry {
+
+    private static final Map<GsonBuilder, Gson> BUILT = new WeakHashMap<GsonBuilder, Gson>();
+
+    private GsonRegistry() {
+    }
+
+    /**
+     * @return the Gson with the default configuration and the adapters of
+     * {@link TypeAdapterRegistry}
+     */
+    public static Gson getDefault() {
+        return DefaultHolder.GSON;
+    }
+
+    /**
+     * @param builder the configuration of the Gson
+     * @return the Gson built from builder, with the adapters of 
+     * {@link TypeAdapterRegistry}
+     * @throws IllegalArgumentException if builder is null
+     */
+    public static Gson get(GsonBuilder builder) {
+        if (builder == null) {
+            throw new IllegalArgumentException("builder may not be null");
+        }
+        synchronized (BUILT) {
+            Gson gson = BUILT.get(builder);
+            if (gson == null) {
+                gson = TypeAdapterRegistry.create(builder);
+                BUILT.put(builder, gson);
+            }
+            return gson;
+        }
+    }
+
+    private static final class DefaultHolder {
+
+        static final Gson GSON = TypeAdapterRegistry.newGson();
+
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * The TypeAdapters every Gson built by the library uses: pipes, stores, 
+ * encrypted stores and push registration.
+ * 
+ * Gson binds a class it has no adapter for through reflection, which looks 
+ * the class up on first use and allocates as it reads.  Adapters written for
+ * model classes, by hand or by a code generator, are registered here once, 
+ * typically in Application.onCreate, and take precedence over the adapters 
+ * of the GsonBuilders passed to the library.  They are looked up when a Gson
+ * first meets a type, so an adapter must be registered before its class is 
+ * first read or written.
+ */
+public final class TypeAdapterRegistry {
+
+    private static final CopyOnWriteArrayList<TypeAdapterFactory> FACTORIES = new CopyOnWriteArrayList<TypeAdapterFactory>();
+
+    private static final TypeAdapterFactory REGISTERED = new TypeAdapterFactory() {
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            for (TypeAdapterFactory factory : FACTORIES) {
+                TypeAdapter<T> adapter = factory.create(gson, type);
+                if (adapter != null) {
+                    return adapter;
+                }
+            }
+            return null;
+        }
+    };
+
+    private TypeAdapterRegistry() {
+    }
+
+    /**
+     * @param factory creates the adapters of one or more types.  Factories 
+     * registered earlier are asked first.
+     * @throws IllegalArgumentException if factory is null
+     */
+    public static void register(TypeAdapterFactory factory) {
+        if (factory == null) {
+            throw new IllegalArgumentException("factory may not be null");
+        }
+        FACTORIES.addIfAbsent(factory);
+    }
+
+    /**
+     * @param type the class adapter reads and writes; subclasses are not
+     * matched
+     * @param adapter the adapter of type
+     * @return the factory registered, to pass to 
+     * {@link #unregister(TypeAdapterFactory)}
+     * @throws IllegalArgumentException if either param is null
+     */
+    public static <T> TypeAdapterFactory register(final Class<T> type, final TypeAdapter<T> adapter) {
+        if (type == null || adapter == null) {
+            throw new IllegalArgumentException("type and adapter may not be null");
+        }
+        TypeAdapterFactory factory = new TypeAdapterFactory() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <S> TypeAdapter<S> create(Gson gson, TypeToken<S> requested) {
+                return requested.getRawType() == type ? (TypeAdapter<S>) adapter.nullSafe() : null;
+            }
+        };
+        register(factory);
+        return factory;
+    }
+
+    /**
+     * Gson instances that already adapted a type keep the adapter.
+     * 
+     * @param factory a registered factory
+     */
+    public static void unregister(TypeAdapterFactory factory) {
+        FACTORIES.remove(factory);
+    }
+
+    /**
+     * @return a Gson with the default configuration and the registered 
+     * adapters
+     */
+    public static Gson newGson() {
+        return create(new GsonBuilder());
+    }
+
+    /**
+     * Creates a Gson from a copy of builder with the registered adapters 
+     * added.  Builder itself is not changed.
+     * 
+     * @param builder the configuration of the Gson
+     * @return a Gson with the configuration of builder and the registered 
+     * adapters
+     */
+    public static Gson create(GsonBuilder builder) {
+        return copyOf(builder).registerTypeAdapterFactory(REGISTERED).create();
+    }
+
+    /**
+     * GsonBuilder has no way to copy it, so its fields are copied one by 
+     * one.  The adapters, factories and instance creators are added to the
+     * lists and maps of the copy, so the two builders share none of them.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static GsonBuilder copyOf(GsonBuilder builder) {
+        GsonBuilder copy = new GsonBuilder();
+        try {
+            for (Field field : GsonBuilder.class.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                Object value = field.get(builder);
+                if (value instanceof Collection) {
+                    Collection copied = (Collection) field.get(copy);
+                    copied.clear();
+                    copied.addAll((Collection) value);
+                } else if (value instanceof Map) {
+                    Map copied = (Map) field.get(copy);
+                    copied.clear();
+                    copied.putAll((Map) value);
+                } else {
+                    field.set(copy, value);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not copy the GsonBuilder", e);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+/**
+ * Configures how the items of an incremental read are grouped before they
+ * are handed to an {@link ItemCallback}.  A batch is delivered once it holds
+ * batchSize items or once batchDelay milliseconds have passed since its first
+ * item, whichever comes first.
+ */
+public class BatchConfig {
+
+    private int batchSize = 100;
+    private long batchDelay = 0;
+
+    /**
+     * BatchSize is the most items delivered in one batch (default: 100)
+     *
+     * @return the current batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * BatchSize is the most items delivered in one batch (default: 100)
+     *
+     * @param batchSize a new batch size, at least 1
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * BatchDelay is how many milliseconds the first item of a batch may wait
+     * for the batch to fill up.  It is checked as items are decoded, 0 means
+     * batches are only delivered when full (default: 0)
+     *
+     * @return the current delay
+     */
+    public long getBatchDelay() {
+        return batchDelay;
+    }
+
+    /**
+     * BatchDelay is how many milliseconds the first item of a batch may wait
+     * for the batch to fill up.  It is checked as items are decoded, 0 means
+     * batches are only delivered when full (default: 0)
+     *
+     * @param batchDelay a new delay
+     */
+    public void setBatchDelay(long batchDelay) {
+        this.batchDelay = batchDelay;
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+import java.util.List;
+
+/**
+ * A {@link RequestBuilder} which can put several objects in one body.  Pipes
+ * use it for saveAll when they have a bulk endpoint.
+ */
+public interface BulkRequestBuilder<T> extends RequestBuilder<T> {
+
+    /**
+     * @param data the objects to form a body out of
+     * @return a body holding every object, in order
+     */
+    byte[] getBulkBody(List<T> data);
+
+}
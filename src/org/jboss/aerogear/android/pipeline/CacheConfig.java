@@ -0,0 +1,139 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+import org.jboss.aerogear.android.datamanager.Store;
+
+/**
+ * Configures a caching Pipe: the Store it reads from and writes to first, and
+ * how the writes it queues are sent on to the server.
+ */
+public class CacheConfig {
+
+    private Store store;
+    private long flushDelay = 1000;
+    private int maxBatchSize = 50;
+    private int maxRetries = 5;
+    private long retryDelay = 1000;
+
+    public CacheConfig(Store store) {
+        this.store = store;
+    }
+
+    /**
+     * Store holds the local copy of the Pipe's data.  Reads are answered from
+     * it and saves and removes are applied to it before they reach the
+     * server.
+     *
+     * @return the current store
+     */
+    public Store getStore() {
+        return store;
+    }
+
+    /**
+     * Store holds the local copy of the Pipe's data.  Reads are answered from
+     * it and saves and removes are applied to it before they reach the
+     * server.
+     *
+     * @param store a new store
+     */
+    public void setStore(Store store) {
+        this.store = store;
+    }
+
+    /**
+     * FlushDelay is how many milliseconds a queued write waits so that later
+     * writes can join its batch (default: 1000)
+     *
+     * @return the current delay
+     */
+    public long getFlushDelay() {
+        return flushDelay;
+    }
+
+    /**
+     * FlushDelay is how many milliseconds a queued write waits so that later
+     * writes can join its batch (default: 1000)
+     *
+     * @param flushDelay a new delay
+     */
+    public void setFlushDelay(long flushDelay) {
+        this.flushDelay = flushDelay;
+    }
+
+    /**
+     * MaxBatchSize is the most writes sent to the server in one flush
+     * (default: 50)
+     *
+     * @return the current batch size
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * MaxBatchSize is the most writes sent to the server in one flush
+     * (default: 50)
+     *
+     * @param maxBatchSize a new batch size
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * MaxRetries is how many times a failed write is tried again before it is
+     * dropped (default: 5)
+     *
+     * @return the current number of retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * MaxRetries is how many times a failed write is tried again before it is
+     * dropped (default: 5)
+     *
+     * @param maxRetries a new number of retries
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * RetryDelay is how many milliseconds the first retry of a failed write
+     * waits, each further retry waits twice as long (default: 1000)
+     *
+     * @return the current delay
+     */
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    /**
+     * RetryDelay is how many milliseconds the first retry of a failed write
+     * waits, each further retry waits twice as long (default: 1000)
+     *
+     * @param retryDelay a new delay
+     */
+    public void setRetryDelay(long retryDelay) {
+        this.retryDelay = retryDelay;
+    }
+
+}
@@ -0,0 +1,50 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Receives the items of an incremental read in batches, as they are decoded.
+ * 
+ * Every method is called on the thread reading the response.  The next batch
+ * is not decoded until onItems returns, so a slow consumer slows the read 
+ * down instead of letting decoded items pile up in memory.
+ */
+public interface ItemCallback<T> extends Serializable {
+
+    /**
+     * Called with each batch of items, in the order of the response.
+     *
+     * @param items the next batch, never empty
+     */
+    void onItems(List<T> items);
+
+    /**
+     * Called once after the last batch.
+     */
+    void onComplete();
+
+    /**
+     * Called instead of onComplete if the read or onItems fails.  Batches
+     * already delivered are not taken back.
+     *
+     * @param e the failure
+     */
+    void onFailure(Exception e);
+}
@@ -44,6 +44,11 @@ public interface LoaderPipe<T> extends Pipe<T> {
      */
     public static final String ITEM = "org.jboss.aerogear.android.impl.pipeline.LoaderPipe.ITEM";
 
+    /**
+     * Bundle key for the items to be saved together
+     */
+    public static final String ITEMS = "org.jboss.aerogear.android.impl.pipeline.LoaderPipe.ITEMS";
+
     /**
      * Bundle key for the id of the item to save
      */
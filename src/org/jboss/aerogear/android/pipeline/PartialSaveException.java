@@ -0,0 +1,44 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thrown by saveAll when some of the items were saved before a request 
+ * failed.  The saved items are the first items given to saveAll, in order,
+ * as returned by the server.  The cause is the failure of the request.
+ */
+public class PartialSaveException extends RuntimeException {
+
+    private final List<?> saved;
+
+    public PartialSaveException(List<?> saved, int total, Throwable cause) {
+        super("Saved " + saved.size() + " of " + total + " items", cause);
+        this.saved = new ArrayList<Object>(saved);
+    }
+
+    /**
+     * @return the items saved before the failure, in the order they were 
+     * given to saveAll
+     */
+    public List<?> getSaved() {
+        return new ArrayList<Object>(saved);
+    }
+
+}
@@ -17,6 +17,7 @@
 package org.jboss.aerogear.android.pipeline;
 
 import java.net.URL;
+import java.util.Collection;
 import java.util.List;
 
 import org.jboss.aerogear.android.Callback;
@@ -61,6 +62,21 @@ public interface Pipe<T> {
      */
     void read(ReadFilter filter, Callback<List<T>> callback);
 
+    /**
+     * Reads all the data from the underlying server connection and hands the 
+     * items to callback in batches as they are decoded, instead of all at 
+     * once when the whole response has been parsed.
+     * 
+     * The callback is called on the thread reading the response, which waits
+     * for each batch to be accepted before decoding more items.
+     * 
+     * @param filter a {@link ReadFilter} for performing pagination and querying.
+     * @param batchConfig how items are grouped into batches, null for the
+     * defaults
+     * @param callback the callback to receive the items
+     */
+    void read(ReadFilter filter, BatchConfig batchConfig, ItemCallback<T> callback);
+
     /**
      * Reads all the data from the underlying server connection.
      *
@@ -80,6 +96,17 @@ public interface Pipe<T> {
      */
     void save(T item, Callback<T> callback);
 
+    /**
+     * Saves or updates several objects on the server.  With a bulk endpoint
+     * they are sent as one request per batch, otherwise one by one.  If a 
+     * request fails after others saved items, the callback is given a 
+     * {@link PartialSaveException} holding the saved items.
+     *
+     * @param items    the items to save or update
+     * @param callback The callback for consuming the saved items, in the order of items.
+     */
+    void saveAll(Collection<T> items, Callback<List<T>> callback);
+
     /**
      * Removes an object from the underlying server connection. The given key argument is used as the objects ID.
      *
@@ -16,6 +16,7 @@
  */
 package org.jboss.aerogear.android.pipeline;
 
+import java.util.Iterator;
 import java.util.List;
 
 import org.jboss.aerogear.android.ReadFilter;
@@ -46,7 +47,27 @@ public interface PipeHandler<T> {
 
     HeaderAndBody onRawReadWithFilter(ReadFilter filter, Pipe<T> requestingPipe);
 
+    /**
+     * This method is called by an incremental read.  It loads the data and 
+     * returns an iterator which decodes the items as it is advanced.  Paging 
+     * is not applied to the items.
+     * 
+     * @return the items read
+     */
+    Iterator<T> onReadItems(ReadFilter filter, Pipe<T> requestingPipe);
+
     HeaderAndBody onRawSave(String id, byte[] item);
 
+    /**
+     * This method is called by saveAll.  It saves the items, in as few 
+     * requests as the service allows.
+     * 
+     * @param items the items to save
+     * @return the saved items, in the order of items
+     * @throws PartialSaveException if a request fails after others saved 
+     * items
+     */
+    List<T> onSaveAll(List<T> items);
+
     void onRemove(String id);
 }
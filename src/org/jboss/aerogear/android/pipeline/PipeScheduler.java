@@ -0,0 +1,48 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+import java.net.URL;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the work of Pipes off the calling thread.
+ * 
+ * A Pipe whose task is rejected fails the callback of the call at once, on
+ * the calling thread, with the RejectedExecutionException.
+ */
+public interface PipeScheduler {
+
+    /**
+     * How urgently a task is wanted.  Interactive tasks, such as reads a 
+     * user waits on, run before queued background ones.
+     */
+    enum Priority {
+
+        INTERACTIVE, BACKGROUND
+    }
+
+    /**
+     * Runs a task, sooner or later.
+     *
+     * @param url the URL the task talks to, null if it talks to no server
+     * @param priority the priority of the task
+     * @param task the task
+     * @throws RejectedExecutionException if the task can not be queued
+     */
+    void execute(URL url, Priority priority, Runnable task) throws RejectedExecutionException;
+}
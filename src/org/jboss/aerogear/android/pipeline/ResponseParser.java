@@ -46,6 +46,17 @@ public interface ResponseParser<T> {
 
     List<T> handleResponse(HeaderAndBody response, Class<T> responseType);
 
+    /**
+     * UnMarshall the response to a save, which holds the saved object.  The
+     * body is read as it was sent, so binary formats are not decoded as 
+     * text.
+     * 
+     * @param response the data from the server
+     * @param responseType the type to marshal to
+     * @return the saved object, null if the response holds none
+     */
+    T handleSaveResponse(HeaderAndBody response, Class<T> responseType);
+
     /**
      * The marshalling config sets options for reading and processing data
      * 
@@ -0,0 +1,218 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jboss.aerogear.android.http.HttpException;
+
+/**
+ * Configures how a Pipe retries requests which fail for reasons which may 
+ * pass: an unavailable server or a dropped connection.  A PipeConfig has a 
+ * RetryConfig with the defaults below unless it is set to null.
+ * 
+ * A request is tried up to maxAttempts times.  Before each retry the Pipe 
+ * waits a random delay between 0 and initialDelay * multiplier ^ (retries so
+ * far), capped at maxDelay, so clients which failed together do not come back
+ * together.  A Retry-After header of the failed response is waited for at 
+ * least; when it asks for more than maxDelay the request is not retried.
+ * 
+ * Reads, saves of items with an id and removes are retried; other saves and
+ * saveAll only when retryNonIdempotent is set, as the server may have acted
+ * on the failed request.
+ */
+public class RetryConfig {
+
+    private int maxAttempts = 3;
+    private long initialDelay = 1000;
+    private long maxDelay = 30000;
+    private double multiplier = 2;
+    private boolean retryNonIdempotent = false;
+    private Set<Integer> retryableStatusCodes = new HashSet<Integer>(Arrays.asList(408, 429, 500, 502, 503, 504));
+    private List<Class<? extends Exception>> retryableExceptions = new ArrayList<Class<? extends Exception>>();
+
+    public RetryConfig() {
+        retryableExceptions.add(IOException.class);
+    }
+
+    /**
+     * MaxAttempts is the most times a request is tried, 1 to never retry 
+     * (default: 3)
+     *
+     * @return the current maxAttempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * MaxAttempts is the most times a request is tried, 1 to never retry 
+     * (default: 3)
+     *
+     * @param maxAttempts a new maxAttempts, at least 1
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * InitialDelay is the longest wait in milliseconds before the first retry
+     * (default: 1000)
+     *
+     * @return the current initialDelay
+     */
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    /**
+     * InitialDelay is the longest wait in milliseconds before the first retry
+     * (default: 1000)
+     *
+     * @param initialDelay a new initialDelay
+     */
+    public void setInitialDelay(long initialDelay) {
+        this.initialDelay = initialDelay;
+    }
+
+    /**
+     * MaxDelay caps the wait in milliseconds before any retry (default: 30000)
+     *
+     * @return the current maxDelay
+     */
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * MaxDelay caps the wait in milliseconds before any retry (default: 30000)
+     *
+     * @param maxDelay a new maxDelay
+     */
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Multiplier is how much the longest wait grows with each retry 
+     * (default: 2)
+     *
+     * @return the current multiplier
+     */
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Multiplier is how much the longest wait grows with each retry 
+     * (default: 2)
+     *
+     * @param multiplier a new multiplier, at least 1
+     */
+    public void setMultiplier(double multiplier) {
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("multiplier must be at least 1");
+        }
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * RetryNonIdempotent has POSTs retried as well (default: false)
+     *
+     * @return true if POSTs are retried
+     */
+    public boolean isRetryNonIdempotent() {
+        return retryNonIdempotent;
+    }
+
+    /**
+     * RetryNonIdempotent has POSTs retried as well (default: false)
+     *
+     * @param retryNonIdempotent true to retry POSTs
+     */
+    public void setRetryNonIdempotent(boolean retryNonIdempotent) {
+        this.retryNonIdempotent = retryNonIdempotent;
+    }
+
+    /**
+     * RetryableStatusCodes are the HTTP statuses of the responses which are 
+     * retried (default: 408, 429, 500, 502, 503 and 504)
+     *
+     * @return the current retryableStatusCodes
+     */
+    public Set<Integer> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    /**
+     * RetryableStatusCodes are the HTTP statuses of the responses which are 
+     * retried (default: 408, 429, 500, 502, 503 and 504)
+     *
+     * @param retryableStatusCodes new retryableStatusCodes
+     */
+    public void setRetryableStatusCodes(Set<Integer> retryableStatusCodes) {
+        this.retryableStatusCodes = retryableStatusCodes;
+    }
+
+    /**
+     * RetryableExceptions are the exceptions which are retried when a request
+     * fails with one of them, or with an exception they caused.  
+     * (default: IOException)
+     *
+     * @return the current retryableExceptions
+     */
+    public List<Class<? extends Exception>> getRetryableExceptions() {
+        return retryableExceptions;
+    }
+
+    /**
+     * RetryableExceptions are the exceptions which are retried when a request
+     * fails with one of them, or with an exception they caused.  
+     * (default: IOException)
+     *
+     * @param retryableExceptions new retryableExceptions
+     */
+    public void setRetryableExceptions(List<Class<? extends Exception>> retryableExceptions) {
+        this.retryableExceptions = retryableExceptions;
+    }
+
+    /**
+     * @param failure the reason a request failed
+     * @return true if the request may succeed when tried again
+     */
+    public boolean isRetryable(Exception failure) {
+        if (failure instanceof HttpException) {
+            return retryableStatusCodes.contains(((HttpException) failure).getStatusCode());
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            for (Class<? extends Exception> retryable : retryableExceptions) {
+                if (retryable.isInstance(cause)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
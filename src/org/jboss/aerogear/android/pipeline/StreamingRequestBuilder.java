@@ -0,0 +1,33 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+import org.jboss.aerogear.android.http.RequestBody;
+
+/**
+ * A {@link RequestBuilder} which can write a body to the connection as it is
+ * sent.  Pipes use it for saves instead of building the body with getBody.
+ */
+public interface StreamingRequestBuilder<T> extends RequestBuilder<T> {
+
+    /**
+     * @param data an object to form a body out of.
+     * @return a body which writes data when the request is sent
+     */
+    RequestBody getStreamingBody(T data);
+
+}
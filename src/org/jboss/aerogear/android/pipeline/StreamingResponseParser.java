@@ -0,0 +1,51 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+import java.io.InputStream;
+import java.util.Iterator;
+
+import org.jboss.aerogear.android.http.HeaderAndBody;
+
+/**
+ * A {@link ResponseParser} which can decode the items of a response one at a
+ * time.  Pipes use it for incremental reads; the items of other parsers are
+ * all decoded by handleResponse before the first one is delivered.
+ */
+public interface StreamingResponseParser<T> extends ResponseParser<T> {
+
+    /**
+     * @param response the data from the server
+     * @param responseType the type to marshal to
+     * @return an iterator which decodes the next item of the response each 
+     * time it is advanced
+     */
+    Iterator<T> iterateResponse(HeaderAndBody response, Class<T> responseType);
+
+    /**
+     * Decodes the items of a body while it is still arriving.  The body is
+     * closed once its last item is decoded or decoding fails; an iterator 
+     * which is also {@link java.io.Closeable} closes it when closed early.
+     *
+     * @param body the body of the response
+     * @param responseType the type to marshal to
+     * @return an iterator which decodes the next item of the body each time
+     * it is advanced
+     */
+    Iterator<T> iterateResponse(InputStream body, Class<T> responseType);
+
+}
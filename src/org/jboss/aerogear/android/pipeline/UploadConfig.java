@@ -0,0 +1,113 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+import org.jboss.aerogear.android.datamanager.Store;
+
+/**
+ * Configures resumable uploads: saves are sent in chunks and the progress of
+ * each upload is kept in a Store, so an upload which fails, or whose process
+ * dies, carries on from the last chunk the server acknowledged when the item
+ * is saved again.
+ * 
+ * Each chunk is sent like the whole body would be, with an Upload-Id header
+ * naming the upload and a Content-Range header placing the chunk in the body.
+ * The server answers every chunk with a 200, 201 or 204; the answer to the 
+ * last chunk is the result of the save.
+ * 
+ * Only bodies of a {@link StreamingRequestBuilder} are sent in chunks.  An
+ * upload is resumed when an item of the same {@link UploadIdentity} is saved
+ * to the same URL with a body of the same length.  Bodies of unknown length
+ * are never resumed, and neither is anything without an UploadIdentity.  A
+ * multipart request builder must be given a fixed boundary, so the same item
+ * is always sent as the same bytes.
+ */
+public class UploadConfig {
+
+    private Store<UploadProgress> store;
+    private int chunkSize = 1024 * 1024;
+    private UploadIdentity identity;
+
+    public UploadConfig(Store<UploadProgress> store) {
+        this.store = store;
+    }
+
+    /**
+     * Store holds the progress of unfinished uploads.  It should outlive the
+     * process, a SQL Store for instance, for uploads to resume after a 
+     * restart.
+     *
+     * @return the current store
+     */
+    public Store<UploadProgress> getStore() {
+        return store;
+    }
+
+    /**
+     * Store holds the progress of unfinished uploads.  It should outlive the
+     * process, a SQL Store for instance, for uploads to resume after a 
+     * restart.
+     *
+     * @param store a new store
+     */
+    public void setStore(Store<UploadProgress> store) {
+        this.store = store;
+    }
+
+    /**
+     * ChunkSize is the most bytes sent in one request (default: 1 MB)
+     *
+     * @return the current chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * ChunkSize is the most bytes sent in one request (default: 1 MB)
+     *
+     * @param chunkSize a new chunk size, at least 1
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Identity names the content of the items uploaded, which decides 
+     * whether a save resumes an earlier upload (default: none, nothing is 
+     * resumed)
+     *
+     * @return the current identity
+     */
+    public UploadIdentity getIdentity() {
+        return identity;
+    }
+
+    /**
+     * Identity names the content of the items uploaded, which decides 
+     * whether a save resumes an earlier upload (default: none, nothing is 
+     * resumed)
+     *
+     * @param identity a new identity
+     */
+    public void setIdentity(UploadIdentity identity) {
+        this.identity = identity;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+/**
+ * Names what an item uploads, so saving an item with the same content again
+ * resumes its unfinished upload.  Items with different content must have 
+ * different identities: a hash of the content or the version of a file 
+ * will do, the id of the item will not.
+ */
+public interface UploadIdentity<T> {
+
+    /**
+     * @param item an item being saved
+     * @return the identity of its content, or null to upload it from the 
+     * start
+     */
+    String identityOf(T item);
+
+}
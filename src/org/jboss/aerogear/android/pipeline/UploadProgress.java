@@ -0,0 +1,86 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.pipeline;
+
+import org.jboss.aerogear.android.RecordId;
+
+/**
+ * The progress of a resumable upload, as kept in the Store of an 
+ * {@link UploadConfig}.
+ */
+public class UploadProgress {
+
+    @RecordId
+    private String key;
+    private String uploadId;
+    private long offset;
+    private long length;
+
+    public UploadProgress() {
+    }
+
+    public UploadProgress(String key, String uploadId, long length) {
+        this.key = key;
+        this.uploadId = uploadId;
+        this.length = length;
+    }
+
+    /**
+     * The URL, content identity and length of the upload, which find it 
+     * again when it is resumed.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    /**
+     * The value of the Upload-Id header sent with each chunk.
+     */
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    /**
+     * The number of bytes the server has acknowledged.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * The length of the body, or -1 if it was not known.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public void setLength(long length) {
+        this.length = length;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.serialization;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Turns objects into bytes and back.  A serializer is used by pipes, through 
+ * {@link org.jboss.aerogear.android.impl.pipeline.PipeConfig#setSerializer(Serializer)},
+ * and by encrypted stores, through 
+ * {@link org.jboss.aerogear.android.impl.datamanager.StoreConfig#setSerializer(Serializer)}.
+ * 
+ * Implementations must be safe for concurrent use.
+ */
+public interface Serializer {
+
+    /**
+     * @return the Content-Type of the bytes, sent to and expected from servers
+     */
+    String getContentType();
+
+    /**
+     * @param item the object to serialize
+     * @return the bytes of item
+     */
+    byte[] serialize(Object item);
+
+    /**
+     * @param data bytes produced by {@link #serialize(Object)}
+     * @param type the class of the object
+     * @return the object
+     */
+    <T> T deserialize(byte[] data, Class<T> type);
+
+    /**
+     * @param items the objects to serialize
+     * @return the bytes of the collection of items
+     */
+    byte[] serializeAll(Collection<?> items);
+
+    /**
+     * @param data bytes produced by {@link #serializeAll(Collection)}
+     * @param type the class of the objects
+     * @return the objects, in order
+     */
+    <T> List<T> deserializeAll(byte[] data, Class<T> type);
+
+}
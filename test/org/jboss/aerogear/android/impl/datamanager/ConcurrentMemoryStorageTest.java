@@ -0,0 +1,114 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.datamanager;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.jboss.aerogear.android.ReadFilter;
+import org.jboss.aerogear.android.datamanager.Store;
+import org.jboss.aerogear.android.impl.helper.Data;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.jboss.aerogear.android.impl.datamanager.StoreTypes.CONCURRENT_MEMORY;
+import static org.junit.Assert.*;
+
+public class ConcurrentMemoryStorageTest {
+
+    private ConcurrentMemoryStorage<Data> store;
+    private StubIdGenerator stubIdGenerator;
+
+    @Before
+    public void setup() {
+        stubIdGenerator = new StubIdGenerator();
+        store = new ConcurrentMemoryStorage<Data>(stubIdGenerator);
+    }
+
+    @Test
+    public void testStoreType() {
+        assertEquals("verifying the type", CONCURRENT_MEMORY, store.getType());
+    }
+
+    @Test
+    public void testCreateFromFactory() {
+        StoreConfig config = new StoreConfig(Data.class);
+        config.setType(CONCURRENT_MEMORY);
+        Store created = new DefaultStoreFactory().createStore(config);
+        assertEquals("verifying the type", CONCURRENT_MEMORY, created.getType());
+    }
+
+    @Test
+    public void testReadAllSnapshot() {
+        store.save(new Data("foo", "desc of foo"));
+        store.save(new Data("bar", "desc of bar"));
+
+        Collection<Data> first = store.readAll();
+        assertEquals("datas should 2 data", 2, first.size());
+        assertSame("an unchanged store should share its snapshot", first, store.readAll());
+
+        store.remove(1);
+        assertEquals("the old snapshot should not change", 2, first.size());
+        assertEquals("datas should 1 data", 1, store.readAll().size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadAllIsUnmodifiable() {
+        store.save(new Data("foo", "desc of foo"));
+        store.readAll().clear();
+    }
+
+    @Test
+    public void testReadWithFilterWhere() throws JSONException {
+        store.save(new Data("foo", "desc of foo"));
+        store.save(new Data("bar", "desc of bar"));
+
+        ReadFilter filter = new ReadFilter();
+        filter.setWhere(new JSONObject("{\"name\":\"bar\"}"));
+
+        Collection<Data> datas = store.readWithFilter(filter);
+        assertEquals("datas should 1 data", 1, datas.size());
+        assertEquals("bar", datas.iterator().next().getName());
+    }
+
+    @Test
+    public void testConcurrentSaves() throws InterruptedException {
+        final int threads = 4;
+        final int itemsPerThread = 250;
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int thread = 0; thread < threads; thread++) {
+            final int first = thread * itemsPerThread;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int id = first; id < first + itemsPerThread; id++) {
+                        store.save(new Data(id, "name", "description"));
+                        store.readAll();
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(threads * itemsPerThread, store.readAll().size());
+    }
+
+}
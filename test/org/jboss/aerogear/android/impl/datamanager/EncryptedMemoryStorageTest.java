@@ -17,17 +17,25 @@
 package org.jboss.aerogear.android.impl.datamanager;
 
 import org.jboss.aerogear.android.ReadFilter;
+import org.jboss.aerogear.android.datamanager.EvictionConfig;
+import org.jboss.aerogear.android.datamanager.EvictionListener;
+import org.jboss.aerogear.android.datamanager.ItemSizer;
 import org.jboss.aerogear.android.datamanager.StoreType;
 import org.jboss.aerogear.android.impl.helper.Data;
 import org.jboss.aerogear.android.impl.helper.DataWithNoIdConfigured;
 import org.jboss.aerogear.android.impl.helper.DataWithNoPropertyId;
 import org.jboss.aerogear.android.impl.reflection.PropertyNotFoundException;
 import org.jboss.aerogear.android.impl.reflection.RecordIdNotFoundException;
+import org.jboss.aerogear.android.impl.serialization.BinarySerializer;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Collection;
 
 import static org.jboss.aerogear.android.impl.datamanager.StoreTypes.ENCRYPTED_MEMORY;
@@ -52,6 +60,58 @@ public class EncryptedMemoryStorageTest {
         assertEquals("verifying the type", ENCRYPTED_MEMORY, store.getType());
     }
 
+    @Test
+    public void testBinarySerializer() {
+        EncryptedMemoryStore<Data> binaryStore = new EncryptedMemoryStore<Data>(stubIdGenerator, "Lorem Ipsum", Data.class, null, new BinarySerializer());
+
+        binaryStore.save(new Data("foo", "desc of foo"));
+
+        Data read = binaryStore.read(1);
+        assertEquals("foo", read.getName());
+        assertEquals("desc of foo", read.getDescription());
+    }
+
+    @Test
+    public void testBoundedStoreEvictsDecryptedItems() {
+        final List<Data> evicted = new ArrayList<Data>();
+        EvictionConfig evictionConfig = new EvictionConfig();
+        evictionConfig.setMaxEntries(1);
+        evictionConfig.setEvictionListener(new EvictionListener<Data>() {
+            @Override
+            public void onEvicted(Serializable id, Data item) {
+                evicted.add(item);
+            }
+        });
+        EncryptedMemoryStore<Data> boundedStore = new EncryptedMemoryStore<Data>(stubIdGenerator, "Lorem Ipsum", Data.class, evictionConfig);
+
+        boundedStore.save(new Data("foo", "desc of foo"));
+        boundedStore.save(new Data("bar", "desc of bar"));
+
+        assertEquals("store should have 1 data", 1, boundedStore.readAll().size());
+        assertEquals("foo", evicted.get(0).getName());
+    }
+
+    @Test
+    public void testBoundedStoreUsesItemSizer() {
+        EvictionConfig evictionConfig = new EvictionConfig();
+        evictionConfig.setMaxBytes(25);
+        evictionConfig.setItemSizer(new ItemSizer<Data>() {
+            @Override
+            public long sizeOf(Data item) {
+                return item.getDescription().length();
+            }
+        });
+        EncryptedMemoryStore<Data> boundedStore = new EncryptedMemoryStore<Data>(stubIdGenerator, "Lorem Ipsum", Data.class, evictionConfig);
+
+        boundedStore.save(new Data("foo", "desc of foo"));
+        boundedStore.save(new Data("bar", "desc of bar"));
+        assertEquals("store should have 2 data", 2, boundedStore.readAll().size());
+
+        boundedStore.save(new Data("baz", "desc of baz"));
+        assertEquals("store should have 2 data", 2, boundedStore.readAll().size());
+        assertNull("foo should be evicted", boundedStore.read(1));
+    }
+
     @Test
     public void testReadAll() {
         store.save(new Data("foo", "desc of foo"));
@@ -27,17 +27,16 @@ import org.jboss.aerogear.android.impl.helper.DataWithNoPropertyId;
 import org.jboss.aerogear.android.impl.reflection.PropertyNotFoundException;
 import org.jboss.aerogear.android.impl.reflection.RecordIdNotFoundException;
 import org.junit.Before;
-import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
 import java.util.Collection;
 
 import static org.jboss.aerogear.android.impl.datamanager.StoreTypes.ENCRYPTED_SQL;
 import static org.junit.Assert.*;
 
 @RunWith(RobolectricTestRunner.class)
-@Ignore
 public class EncryptedSQLStoreTest {
 
     private EncryptedSQLStore<Data> store;
@@ -58,6 +57,18 @@ public class EncryptedSQLStoreTest {
         assertEquals("verifying the type", ENCRYPTED_SQL, store.getType());
     }
 
+    @Test
+    public void testSaveAllAndRemoveAll() {
+        store.saveAll(Arrays.asList(new Data("foo", "desc of foo"), new Data("bar", "desc of bar"), new Data("baz", "desc of baz")));
+        assertEquals("store should have 3 data", 3, store.readAll().size());
+        assertEquals("foo", store.read(1).getName());
+
+        store.removeAll(Arrays.asList(1, 3));
+        assertNull("foo should be null", store.read(1));
+        assertEquals("bar", store.read(2).getName());
+        assertNull("baz should be null", store.read(3));
+    }
+
     @Test
     public void testReadAll() {
         store.save(new Data("foo", "desc of foo"));
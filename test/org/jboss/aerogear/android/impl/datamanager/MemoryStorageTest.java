@@ -18,8 +18,16 @@ package org.jboss.aerogear.android.impl.datamanager;
 
 import org.jboss.aerogear.android.impl.datamanager.MemoryStorage;
 import org.jboss.aerogear.android.impl.datamanager.DefaultStoreFactory;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import org.jboss.aerogear.android.ReadFilter;
+import org.jboss.aerogear.android.datamanager.EvictionConfig;
+import org.jboss.aerogear.android.datamanager.EvictionListener;
+import org.jboss.aerogear.android.datamanager.ItemSizer;
+import org.jboss.aerogear.android.datamanager.ItemTimeToLive;
 import org.jboss.aerogear.android.datamanager.StoreType;
 import static org.jboss.aerogear.android.impl.datamanager.StoreTypes.MEMORY;
 import org.jboss.aerogear.android.impl.helper.Data;
@@ -57,6 +65,18 @@ public class MemoryStorageTest {
         factory.createStore(config);
     }
 
+    @Test
+    public void testSaveAllAndRemoveAll() {
+        store.saveAll(Arrays.asList(new Data("foo", "desc of foo"), new Data("bar", "desc of bar"), new Data("baz", "desc of baz")));
+        assertEquals("store should have 3 data", 3, store.readAll().size());
+        assertEquals("foo", store.read(1).getName());
+
+        store.removeAll(Arrays.asList(1, 3));
+        assertNull("foo should be null", store.read(1));
+        assertEquals("bar", store.read(2).getName());
+        assertNull("baz should be null", store.read(3));
+    }
+
     @Test
     public void testReadAll() {
         store.save(new Data("foo", "desc of foo"));
@@ -111,6 +131,131 @@ public class MemoryStorageTest {
 
     }
 
+    @Test
+    public void testReadWithFilterWhereIndexed() throws JSONException {
+        MemoryStorage<Data> indexedStore = new MemoryStorage<Data>(stubIdGenerator, Arrays.asList("name"));
+        indexedStore.save(new Data("foo", "desc of foo"));
+        indexedStore.save(new Data("bar", "desc of bar"));
+        indexedStore.save(new Data("bar", "other desc of bar"));
+
+        ReadFilter filter = new ReadFilter();
+        filter.setWhere(new JSONObject("{\"name\":\"bar\", \"description\":\"desc of bar\"}"));
+
+        Collection<Data> datas = indexedStore.readWithFilter(filter);
+        assertEquals("datas should 1 data", 1, datas.size());
+        assertEquals("desc of bar", datas.iterator().next().getDescription());
+
+        Data bar = indexedStore.read(2);
+        bar.setName("baz");
+        indexedStore.save(bar);
+        indexedStore.remove(3);
+
+        filter.setWhere(new JSONObject("{\"name\":\"bar\"}"));
+        assertEquals("datas should be empty", 0, indexedStore.readWithFilter(filter).size());
+
+        filter.setWhere(new JSONObject("{\"name\":\"baz\"}"));
+        datas = indexedStore.readWithFilter(filter);
+        assertEquals("datas should 1 data", 1, datas.size());
+        assertEquals(Integer.valueOf(2), datas.iterator().next().getId());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        final List<Serializable> evicted = new ArrayList<Serializable>();
+        EvictionConfig evictionConfig = new EvictionConfig();
+        evictionConfig.setMaxEntries(2);
+        evictionConfig.setEvictionListener(new EvictionListener<Data>() {
+            @Override
+            public void onEvicted(Serializable id, Data item) {
+                evicted.add(id);
+            }
+        });
+        MemoryStorage<Data> boundedStore = new MemoryStorage<Data>(stubIdGenerator, new ArrayList<String>(), evictionConfig);
+
+        boundedStore.save(new Data("foo", "desc of foo"));
+        boundedStore.save(new Data("bar", "desc of bar"));
+        boundedStore.read(1);
+        boundedStore.save(new Data("baz", "desc of baz"));
+
+        assertEquals("store should have 2 data", 2, boundedStore.readAll().size());
+        assertNull("bar should be evicted", boundedStore.read(2));
+        assertEquals(Arrays.<Serializable>asList(2), evicted);
+    }
+
+    @Test
+    public void testEvictLeastFrequentlyUsed() {
+        EvictionConfig evictionConfig = new EvictionConfig();
+        evictionConfig.setMaxEntries(2);
+        evictionConfig.setPolicy(EvictionConfig.Policies.LFU);
+        MemoryStorage<Data> boundedStore = new MemoryStorage<Data>(stubIdGenerator, new ArrayList<String>(), evictionConfig);
+
+        boundedStore.save(new Data("foo", "desc of foo"));
+        boundedStore.save(new Data("bar", "desc of bar"));
+        boundedStore.read(2);
+        boundedStore.read(2);
+        boundedStore.read(1);
+        boundedStore.save(new Data("baz", "desc of baz"));
+
+        assertNull("foo should be evicted", boundedStore.read(1));
+        assertNotNull("bar should be kept", boundedStore.read(2));
+        assertNotNull("baz should be kept", boundedStore.read(3));
+    }
+
+    @Test
+    public void testEvictBySize() {
+        EvictionConfig evictionConfig = new EvictionConfig();
+        evictionConfig.setMaxBytes(25);
+        evictionConfig.setItemSizer(new ItemSizer<Data>() {
+            @Override
+            public long sizeOf(Data item) {
+                return item.getDescription().length();
+            }
+        });
+        MemoryStorage<Data> boundedStore = new MemoryStorage<Data>(stubIdGenerator, new ArrayList<String>(), evictionConfig);
+
+        boundedStore.save(new Data("foo", "desc of foo"));
+        boundedStore.save(new Data("bar", "desc of bar"));
+        assertEquals("store should have 2 data", 2, boundedStore.readAll().size());
+
+        boundedStore.save(new Data("baz", "desc of baz"));
+        assertEquals("store should have 2 data", 2, boundedStore.readAll().size());
+        assertNull("foo should be evicted", boundedStore.read(1));
+    }
+
+    @Test
+    public void testExpireAfterTimeToLive() throws InterruptedException {
+        EvictionConfig evictionConfig = new EvictionConfig();
+        evictionConfig.setTimeToLive(50);
+        MemoryStorage<Data> boundedStore = new MemoryStorage<Data>(stubIdGenerator, new ArrayList<String>(), evictionConfig);
+
+        boundedStore.save(new Data("foo", "desc of foo"));
+        assertNotNull("foo should not be expired yet", boundedStore.read(1));
+
+        Thread.sleep(100);
+        assertNull("foo should be expired", boundedStore.read(1));
+        assertTrue(boundedStore.isEmpty());
+    }
+
+    @Test
+    public void testExpireAfterItemTimeToLive() throws InterruptedException {
+        EvictionConfig evictionConfig = new EvictionConfig();
+        evictionConfig.setTimeToLive(50);
+        evictionConfig.setItemTimeToLive(new ItemTimeToLive<Data>() {
+            @Override
+            public long timeToLiveOf(Data item) {
+                return "foo".equals(item.getName()) ? 50 : 0;
+            }
+        });
+        MemoryStorage<Data> boundedStore = new MemoryStorage<Data>(stubIdGenerator, new ArrayList<String>(), evictionConfig);
+
+        boundedStore.save(new Data("foo", "desc of foo"));
+        boundedStore.save(new Data("bar", "desc of bar"));
+
+        Thread.sleep(100);
+        assertNull("foo should be expired", boundedStore.read(1));
+        assertNotNull("bar should be kept", boundedStore.read(2));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testReadWithFilterThrowsExceptionWithNestingJSON() throws JSONException {
 
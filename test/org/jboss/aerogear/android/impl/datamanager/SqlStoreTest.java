@@ -31,7 +31,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import com.google.gson.GsonBuilder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -141,6 +145,28 @@ public class SqlStoreTest {
 
     }
 
+    @Test
+    public void testFilterWithLimitAndOffset() throws InterruptedException, JSONException {
+        loadBulkData();
+
+        ReadFilter filter = new ReadFilter();
+        JSONObject where = new JSONObject();
+        where.put("name", "name2");
+        filter.setWhere(where);
+        filter.setLimit(2);
+        filter.setOffset(1);
+        List<Data> result = store.readWithFilter(filter);
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(4l, (long) result.get(0).getId());
+        Assert.assertEquals(6l, (long) result.get(1).getId());
+
+        filter = new ReadFilter();
+        filter.setLimit(3);
+        result = store.readWithFilter(filter);
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals(1l, (long) result.get(0).getId());
+    }
+
     @Test
     public void testNestedSaveAndFilter() throws InterruptedException, JSONException {
         ReadFilter filter;
@@ -223,6 +249,133 @@ public class SqlStoreTest {
 
     }
 
+    @Test
+    public void testDocumentLayoutSaveReadAndRemove() throws InterruptedException {
+        SQLStore<Data> documentStore = documentStore("name");
+        open(documentStore);
+
+        Data data = new Data(10, "name", "description", true);
+        documentStore.save(data);
+        documentStore.save(new Data(11, "name2", "description"));
+        Assert.assertEquals(data, documentStore.read(10));
+        Assert.assertEquals(2, documentStore.readAll().size());
+
+        data.setDescription("changed");
+        documentStore.save(data);
+        Assert.assertEquals("changed", documentStore.read(10).getDescription());
+        Assert.assertEquals(2, documentStore.readAll().size());
+
+        documentStore.remove(10);
+        Assert.assertNull(documentStore.read(10));
+        Assert.assertFalse(documentStore.isEmpty());
+        documentStore.reset();
+        Assert.assertTrue(documentStore.isEmpty());
+    }
+
+    @Test
+    public void testDocumentLayoutFilter() throws InterruptedException, JSONException {
+        SQLStore<Data> documentStore = documentStore("name");
+        open(documentStore);
+        documentStore.save(new Data(1, "name", "description"));
+        documentStore.save(new Data(2, "name", "description"));
+        documentStore.save(new Data(3, "name2", "description"));
+        documentStore.save(new Data(4, "name2", "description"));
+        documentStore.save(new Data(5, "name", "description2"));
+        documentStore.save(new Data(6, "name2", "description2"));
+
+        Assert.assertEquals(6, documentStore.readWithFilter(null).size());
+
+        ReadFilter filter = new ReadFilter();
+        JSONObject where = new JSONObject();
+        where.put("name", "name2");
+        filter.setWhere(where);
+        Assert.assertEquals(3, documentStore.readWithFilter(filter).size());
+
+        filter = new ReadFilter();
+        where = new JSONObject();
+        where.put("name", "name2");
+        where.put("description", "description");
+        filter.setWhere(where);
+        Assert.assertEquals(2, documentStore.readWithFilter(filter).size());
+
+        filter.setOffset(1);
+        List<Data> result = documentStore.readWithFilter(filter);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(4l, (long) result.get(0).getId());
+
+        filter = new ReadFilter();
+        where = new JSONObject();
+        where.put("name", "name");
+        filter.setWhere(where);
+        filter.setLimit(2);
+        result = documentStore.readWithFilter(filter);
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(1l, (long) result.get(0).getId());
+        Assert.assertEquals(2l, (long) result.get(1).getId());
+    }
+
+    @Test
+    public void testUpgradeMovesPropertiesIntoDocuments() throws InterruptedException {
+        SQLStore<Data> documentStore = documentStore("name");
+        saveData(1, "name", "description");
+        saveData(2, "name2", "description", true);
+
+        SQLiteDatabase database = store.getWritableDatabase();
+        documentStore.onUpgrade(database, SQLStoreLayouts.PROPERTY.getDatabaseVersion(), SQLStoreLayouts.DOCUMENT.getDatabaseVersion());
+
+        Cursor cursor = database.rawQuery("select ID, IDX_name from Data_document order by ID", null);
+        try {
+            Assert.assertEquals(2, cursor.getCount());
+            cursor.moveToFirst();
+            Assert.assertEquals("1", cursor.getString(0));
+            Assert.assertEquals("name", cursor.getString(1));
+            cursor.moveToNext();
+            Assert.assertEquals("2", cursor.getString(0));
+            Assert.assertEquals("name2", cursor.getString(1));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void testSaveAfterReopen() throws InterruptedException {
+        saveData(1, "name", "description");
+        store.remove(1);
+        Assert.assertTrue(store.isEmpty());
+
+        store.close();
+        open(store);
+
+        saveData(2, "name2", "description");
+        Assert.assertFalse(store.isEmpty());
+        Assert.assertEquals("name2", store.read(2).getName());
+    }
+
+    @Test
+    public void testSaveAllAndRemoveAllInBatches() throws InterruptedException {
+        SQLStore<Data> batchStore = new SQLStore<Data>(Data.class, context, new GsonBuilder(), new StubIdGenerator(), "Data",
+                SQLStoreLayouts.PROPERTY, new ArrayList<String>(), 2);
+        open(batchStore);
+
+        List<Data> data = new ArrayList<Data>();
+        for (int i = 1; i <= 5; i++) {
+            data.add(new Data(i, "name" + i, "description"));
+        }
+        batchStore.saveAll(data);
+        Assert.assertEquals(5, batchStore.readAll().size());
+        Assert.assertEquals("name5", batchStore.read(5).getName());
+
+        batchStore.removeAll(Arrays.asList(1, 2, 3));
+        Assert.assertEquals(2, batchStore.readAll().size());
+        Assert.assertNull(batchStore.read(1));
+        Assert.assertEquals("name4", batchStore.read(4).getName());
+    }
+
+    private SQLStore<Data> documentStore(String... indexedProperties) {
+        return new SQLStore<Data>(Data.class, context, new GsonBuilder(), new StubIdGenerator(), "Data",
+                SQLStoreLayouts.DOCUMENT, Arrays.asList(indexedProperties));
+    }
+
     private void saveData(Integer id, String name, String desc) throws InterruptedException {
         open(store);
         store.save(new Data(id, name, desc));
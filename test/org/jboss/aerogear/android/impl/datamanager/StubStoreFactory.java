@@ -53,6 +53,10 @@ public class StubStoreFactory implements StoreFactory {
             public void save(Object item) {
             }
 
+            @Override
+            public void saveAll(Collection items) {
+            }
+
             @Override
             public void reset() {
             }
@@ -66,6 +70,10 @@ public class StubStoreFactory implements StoreFactory {
             public void remove(Serializable id) {
             }
 
+            @Override
+            public void removeAll(Collection ids) {
+            }
+
             @Override
             public List readWithFilter(ReadFilter filter) {
                 return new ArrayList();
@@ -18,15 +18,23 @@ package org.jboss.aerogear.android.impl.helper;
 
 import java.util.Objects;
 import org.jboss.aerogear.android.RecordId;
+import org.jboss.aerogear.android.serialization.FieldNumber;
 
 public class Data implements Comparable<Data> {
 
     @RecordId
+    @FieldNumber(1)
     private Integer id;
+    @FieldNumber(2)
     private String name;
+    @FieldNumber(3)
     private String description;
+    @FieldNumber(4)
     private boolean enable;
 
+    public Data() {
+    }
+
     public Data(String name, String description) {
         this.name = name;
         this.description = description;
@@ -20,8 +20,11 @@ import org.jboss.aerogear.android.impl.http.HttpRestProvider;
 import com.xtremelabs.robolectric.RobolectricTestRunner;
 import org.jboss.aerogear.android.Provider;
 import org.jboss.aerogear.android.authentication.impl.AuthenticatorTest;
+import org.jboss.aerogear.android.http.CachedResponse;
+import org.jboss.aerogear.android.http.CompressionConfig;
 import org.jboss.aerogear.android.http.HeaderAndBody;
 import org.jboss.aerogear.android.http.HttpException;
+import org.jboss.aerogear.android.http.RequestBody;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.invocation.InvocationOnMock;
@@ -29,15 +32,21 @@ import org.mockito.stubbing.Answer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import org.apache.http.HttpStatus;
 
 import static org.jboss.aerogear.android.impl.helper.UnitTestUtils.setPrivateField;
@@ -114,6 +123,264 @@ public class HttpRestProviderTest {
 
     }
 
+    @Test
+    public void testGetCachesResponseWithValidators() throws Exception {
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        MemoryResponseCache cache = new MemoryResponseCache();
+        HttpRestProvider provider = new HttpRestProvider(SIMPLE_URL, 0, cache);
+        setPrivateField(provider, "connectionPreparer",
+                new HttpUrlConnectionProvider(connection));
+
+        Map<String, List<String>> responseHeaders = new HashMap<String, List<String>>(RESPONSE_HEADERS);
+        responseHeaders.put(null, Arrays.asList("HTTP/1.1 200 OK"));
+
+        doReturn(HttpStatus.SC_OK).when(connection).getResponseCode();
+        when(connection.getInputStream()).thenReturn(
+                new ByteArrayInputStream(RESPONSE_DATA));
+        when(connection.getHeaderFields()).thenReturn(responseHeaders);
+        when(connection.getHeaderField("ETag")).thenReturn("\"v1\"");
+
+        provider.get();
+
+        assertNull("the URL should not be the key", cache.get(SIMPLE_URL.toString()));
+        CachedResponse cached = cache.get(provider.cacheKey());
+        assertNotNull(cached);
+        assertEquals("\"v1\"", cached.getETag());
+        assertArrayEquals(RESPONSE_DATA, cached.getBody());
+        assertFalse("the status line should not be kept", cached.getHeaders().containsKey(null));
+        verify(connection, never()).setRequestProperty(eq("If-None-Match"), anyString());
+    }
+
+    @Test
+    public void testGetReturnsCachedResponseWhenNotModified() throws Exception {
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        MemoryResponseCache cache = new MemoryResponseCache();
+        HttpRestProvider provider = new HttpRestProvider(SIMPLE_URL, 0, cache);
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put(HEADER_KEY1_NAME, HEADER_VALUE);
+        cache.put(new CachedResponse(provider.cacheKey(), "\"v1\"", "Mon, 01 Jul 2013 00:00:00 GMT", headers, RESPONSE_DATA));
+
+        setPrivateField(provider, "connectionPreparer",
+                new HttpUrlConnectionProvider(connection));
+
+        doReturn(HttpStatus.SC_NOT_MODIFIED).when(connection).getResponseCode();
+
+        HeaderAndBody result = provider.get();
+
+        verify(connection).setRequestProperty("If-None-Match", "\"v1\"");
+        verify(connection).setRequestProperty("If-Modified-Since", "Mon, 01 Jul 2013 00:00:00 GMT");
+        verify(connection, never()).getInputStream();
+        assertArrayEquals(RESPONSE_DATA, result.getBody());
+        assertEquals(HEADER_VALUE, result.getHeader(HEADER_KEY1_NAME));
+    }
+
+    @Test
+    public void testCacheKeyDependsOnHeaders() throws Exception {
+        HttpRestProvider provider = new HttpRestProvider(SIMPLE_URL, 0, new MemoryResponseCache());
+        HttpRestProvider otherUser = new HttpRestProvider(SIMPLE_URL, 0, new MemoryResponseCache());
+        provider.setDefaultHeader("Authorization", "Basic dXNlcjE6c2VjcmV0");
+        otherUser.setDefaultHeader("Authorization", "Basic dXNlcjI6c2VjcmV0");
+
+        assertFalse(provider.cacheKey().equals(otherUser.cacheKey()));
+        assertFalse(provider.cacheKey().contains("dXNlcjE6c2VjcmV0"));
+    }
+
+    @Test(expected = HttpException.class)
+    public void testNotModifiedWithoutCachedResponseFails() throws Exception {
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        HttpRestProvider provider = new HttpRestProvider(SIMPLE_URL, 0, new MemoryResponseCache());
+        setPrivateField(provider, "connectionPreparer",
+                new HttpUrlConnectionProvider(connection));
+
+        doReturn(HttpStatus.SC_NOT_MODIFIED).when(connection).getResponseCode();
+        when(connection.getErrorStream()).thenReturn(
+                new ByteArrayInputStream(EMPTY_DATA));
+        when(connection.getHeaderFields()).thenReturn(RESPONSE_HEADERS);
+
+        provider.get();
+    }
+
+    @Test
+    public void testGetDisconnectsByDefault() throws Exception {
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        HttpRestProvider provider = new HttpRestProvider(SIMPLE_URL);
+        setPrivateField(provider, "connectionPreparer",
+                new HttpUrlConnectionProvider(connection));
+
+        doReturn(HttpStatus.SC_OK).when(connection).getResponseCode();
+        when(connection.getInputStream()).thenReturn(
+                new ByteArrayInputStream(RESPONSE_DATA));
+        when(connection.getHeaderFields()).thenReturn(RESPONSE_HEADERS);
+
+        provider.get();
+        verify(connection).disconnect();
+    }
+
+    @Test
+    public void testGetStreamDisconnectsOnceClosed() throws Exception {
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        HttpRestProvider provider = new HttpRestProvider(SIMPLE_URL);
+        setPrivateField(provider, "connectionPreparer",
+                new HttpUrlConnectionProvider(connection));
+
+        doReturn(HttpStatus.SC_OK).when(connection).getResponseCode();
+        when(connection.getInputStream()).thenReturn(
+                new ByteArrayInputStream(RESPONSE_DATA));
+
+        InputStream body = provider.getStream();
+        assertEquals(RESPONSE_DATA[0], body.read());
+        verify(connection, never()).disconnect();
+
+        body.close();
+        verify(connection).disconnect();
+    }
+
+    @Test
+    public void testGetKeepsConnectionAliveWithConnectionPool() throws Exception {
+        String maxConnections = System.getProperty("http.maxConnections");
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        InputStream response = spy(new ByteArrayInputStream(RESPONSE_DATA));
+        HttpRestProvider provider = new HttpRestProvider(SIMPLE_URL, 0, null, 5);
+        setPrivateField(provider, "connectionPreparer",
+                new HttpUrlConnectionProvider(connection));
+
+        doReturn(HttpStatus.SC_OK).when(connection).getResponseCode();
+        when(connection.getInputStream()).thenReturn(response);
+        when(connection.getHeaderFields()).thenReturn(RESPONSE_HEADERS);
+
+        assertArrayEquals(RESPONSE_DATA, provider.get().getBody());
+        verify(connection, never()).disconnect();
+        verify(response).close();
+        assertEquals("the pool of the process should be left alone", maxConnections, System.getProperty("http.maxConnections"));
+    }
+
+    @Test
+    public void testGetReadsWholeBodyWhateverTheContentLength() throws Exception {
+        byte[] longBody = new byte[20000];
+        for (int i = 0; i < longBody.length; i++) {
+            longBody[i] = (byte) i;
+        }
+
+        for (int contentLength : new int[] {-1, 0, 10, longBody.length, longBody.length * 2}) {
+            HttpURLConnection connection = mock(HttpURLConnection.class);
+            HttpRestProvider provider = new HttpRestProvider(SIMPLE_URL);
+            setPrivateField(provider, "connectionPreparer",
+                    new HttpUrlConnectionProvider(connection));
+
+            doReturn(HttpStatus.SC_OK).when(connection).getResponseCode();
+            doReturn(contentLength).when(connection).getContentLength();
+            when(connection.getInputStream()).thenReturn(
+                    new ByteArrayInputStream(longBody));
+            when(connection.getHeaderFields()).thenReturn(RESPONSE_HEADERS);
+
+            HeaderAndBody result = provider.get();
+            assertEquals(longBody.length, result.getBodyLength());
+            assertEquals(longBody.length, result.getBodyBuffer().remaining());
+            assertArrayEquals(longBody, result.getBody());
+        }
+    }
+
+    @Test
+    public void testPostStreamsBody() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        HttpRestProvider provider = new HttpRestProvider(SIMPLE_URL);
+        setPrivateField(provider, "connectionPreparer",
+                new HttpUrlConnectionProvider(connection));
+
+        doReturn(HttpStatus.SC_OK).when(connection).getResponseCode();
+        when(connection.getInputStream()).thenReturn(
+                new ByteArrayInputStream(RESPONSE_DATA));
+        when(connection.getOutputStream()).thenReturn(outputStream);
+        when(connection.getHeaderFields()).thenReturn(RESPONSE_HEADERS);
+
+        provider.post(new RequestBody() {
+            @Override
+            public long getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(REQUEST_DATA.getBytes());
+            }
+
+            @Override
+            public boolean isReplayable() {
+                return true;
+            }
+        });
+        verify(connection).setChunkedStreamingMode(0);
+        assertEquals(REQUEST_DATA, outputStream.toString());
+
+        provider.post(REQUEST_DATA);
+        verify(connection).setFixedLengthStreamingMode(REQUEST_DATA.length());
+    }
+
+    @Test
+    public void testGetDecodesGzippedResponse() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+        gzip.write(RESPONSE_DATA);
+        gzip.close();
+
+        Map<String, List<String>> headers = new HashMap<String, List<String>>(RESPONSE_HEADERS);
+        headers.put("Content-Encoding", Arrays.asList("gzip"));
+
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        HttpRestProvider provider = new HttpRestProvider(SIMPLE_URL, 0, null, 0, new CompressionConfig());
+        setPrivateField(provider, "connectionPreparer",
+                new HttpUrlConnectionProvider(connection));
+
+        doReturn(HttpStatus.SC_OK).when(connection).getResponseCode();
+        doReturn(compressed.size()).when(connection).getContentLength();
+        doReturn("gzip").when(connection).getHeaderField("Content-Encoding");
+        when(connection.getInputStream()).thenReturn(
+                new ByteArrayInputStream(compressed.toByteArray()));
+        when(connection.getHeaderFields()).thenReturn(headers);
+
+        HeaderAndBody result = provider.get();
+        verify(connection).setRequestProperty("Accept-Encoding", "gzip");
+        assertArrayEquals(RESPONSE_DATA, result.getBody());
+        assertNull(result.getHeader("Content-Encoding"));
+        assertEquals(HEADER_VALUE, result.getHeader(HEADER_KEY2_NAME));
+    }
+
+    @Test
+    public void testPostCompressesBodiesOverThreshold() throws Exception {
+        CompressionConfig compressionConfig = new CompressionConfig();
+        compressionConfig.setCompressRequests(true);
+        compressionConfig.setRequestThreshold(REQUEST_DATA.length());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        HttpRestProvider provider = new HttpRestProvider(SIMPLE_URL, 0, null, 0, compressionConfig);
+        setPrivateField(provider, "connectionPreparer",
+                new HttpUrlConnectionProvider(connection));
+
+        doReturn(HttpStatus.SC_OK).when(connection).getResponseCode();
+        when(connection.getInputStream()).thenReturn(
+                new ByteArrayInputStream(RESPONSE_DATA));
+        when(connection.getOutputStream()).thenReturn(outputStream);
+        when(connection.getHeaderFields()).thenReturn(RESPONSE_HEADERS);
+
+        provider.post(REQUEST_DATA);
+        verify(connection).setRequestProperty("Content-Encoding", "gzip");
+        verify(connection).setChunkedStreamingMode(0);
+        GZIPInputStream decoded = new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+        byte[] body = new byte[REQUEST_DATA.length() + 1];
+        int read = 0;
+        for (int n; (n = decoded.read(body, read, body.length - read)) > 0;) {
+            read += n;
+        }
+        assertEquals(REQUEST_DATA, new String(body, 0, read));
+
+        outputStream.reset();
+        provider.post(REQUEST_DATA.substring(1));
+        verify(connection).setFixedLengthStreamingMode(REQUEST_DATA.length() - 1);
+        assertEquals(REQUEST_DATA.substring(1), outputStream.toString());
+    }
+
     @Test
     public void testPost() throws Exception {
 
@@ -16,10 +16,13 @@
  */
 package org.jboss.aerogear.android.impl.http;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.URL;
 import org.jboss.aerogear.android.http.HeaderAndBody;
 import org.jboss.aerogear.android.http.HttpException;
 import org.jboss.aerogear.android.http.HttpProvider;
+import org.jboss.aerogear.android.http.RequestBody;
 
 public class HttpStubProvider implements HttpProvider {
 
@@ -70,4 +73,24 @@ public class HttpStubProvider implements HttpProvider {
         return response;
     }
 
+    @Override
+    public HeaderAndBody post(RequestBody data) throws HttpException {
+        return post(toBytes(data));
+    }
+
+    @Override
+    public HeaderAndBody put(String id, RequestBody data) throws HttpException {
+        return put(id, toBytes(data));
+    }
+
+    private static byte[] toBytes(RequestBody data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            data.writeTo(out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+
 }
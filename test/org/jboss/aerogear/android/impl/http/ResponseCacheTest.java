@@ -0,0 +1,131 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.http;
+
+import android.database.Cursor;
+
+import com.xtremelabs.robolectric.Robolectric;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.android.Callback;
+import org.jboss.aerogear.android.http.CachedResponse;
+import org.jboss.aerogear.android.http.ResponseCache;
+import org.jboss.aerogear.android.impl.datamanager.DefaultIdGenerator;
+import org.jboss.aerogear.android.impl.datamanager.MemoryStorage;
+import org.jboss.aerogear.android.impl.datamanager.SQLStore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class ResponseCacheTest {
+
+    private static final String URL1 = "http://localhost/cars";
+    private static final String URL2 = "http://localhost/cars?color=red";
+
+    @Test
+    public void testMemoryResponseCacheDropsLeastRecentlyUsed() {
+        MemoryResponseCache cache = new MemoryResponseCache(1);
+        cache.put(response(URL1));
+        cache.put(response(URL2));
+
+        assertNull(cache.get(URL1));
+        assertNotNull(cache.get(URL2));
+    }
+
+    @Test
+    public void testDiskResponseCache() throws Exception {
+        File directory = File.createTempFile("responses", "");
+        directory.delete();
+
+        ResponseCache cache = new DiskResponseCache(directory);
+        assertRoundTrip(cache);
+
+        cache.put(response(URL1));
+        assertEquals("\"v1\"", new DiskResponseCache(directory).get(URL1).getETag());
+    }
+
+    @Test
+    public void testStoreResponseCache() {
+        assertRoundTrip(new StoreResponseCache(new MemoryStorage<CachedResponse>(new DefaultIdGenerator())));
+    }
+
+    @Test
+    public void testSqlStoreResponseCacheKeepsBodyInOneRow() throws Exception {
+        SQLStore<CachedResponse> store = new SQLStore<CachedResponse>(CachedResponse.class,
+                Robolectric.application.getApplicationContext());
+        final CountDownLatch opened = new CountDownLatch(1);
+        store.open(new Callback<SQLStore<CachedResponse>>() {
+            @Override
+            public void onSuccess(SQLStore<CachedResponse> data) {
+                opened.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(opened.await(5, TimeUnit.SECONDS));
+
+        ResponseCache cache = new StoreResponseCache(store);
+        assertRoundTrip(cache);
+
+        byte[] body = new byte[10000];
+        Arrays.fill(body, (byte) 7);
+        cache.put(new CachedResponse(URL1, "\"v2\"", null, new HashMap<String, String>(), body));
+        assertArrayEquals(body, cache.get(URL1).getBody());
+
+        Cursor rows = store.getReadableDatabase().rawQuery("select count(*) from CachedResponse_property", null);
+        try {
+            rows.moveToFirst();
+            assertTrue(rows.getInt(0) < 10);
+        } finally {
+            rows.close();
+        }
+    }
+
+    private void assertRoundTrip(ResponseCache cache) {
+        assertNull(cache.get(URL1));
+
+        cache.put(response(URL1));
+        CachedResponse cached = cache.get(URL1);
+        assertEquals(URL1, cached.getKey());
+        assertEquals("\"v1\"", cached.getETag());
+        assertNull(cached.getLastModified());
+        assertEquals("application/json", cached.getHeaders().get("Content-Type"));
+        assertArrayEquals("[]".getBytes(), cached.getBody());
+        assertNull(cache.get(URL2));
+
+        cache.remove(URL1);
+        assertNull(cache.get(URL1));
+    }
+
+    private CachedResponse response(String url) {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/json");
+        return new CachedResponse(url, "\"v1\"", null, headers, "[]".getBytes());
+    }
+}
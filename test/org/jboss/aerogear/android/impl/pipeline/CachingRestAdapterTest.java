@@ -0,0 +1,455 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import com.google.gson.Gson;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jboss.aerogear.android.Callback;
+import org.jboss.aerogear.android.ReadFilter;
+import org.jboss.aerogear.android.http.HeaderAndBody;
+import org.jboss.aerogear.android.impl.datamanager.MemoryStorage;
+import org.jboss.aerogear.android.impl.datamanager.StubIdGenerator;
+import org.jboss.aerogear.android.impl.helper.Data;
+import org.jboss.aerogear.android.pipeline.BatchConfig;
+import org.jboss.aerogear.android.pipeline.CacheConfig;
+import org.jboss.aerogear.android.pipeline.ItemCallback;
+import org.jboss.aerogear.android.pipeline.Pipe;
+import org.jboss.aerogear.android.pipeline.PipeHandler;
+import org.jboss.aerogear.android.pipeline.PipeScheduler;
+import org.jboss.aerogear.android.pipeline.paging.PageConfig;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class CachingRestAdapterTest {
+
+    private static final String TWO_DATA = "[{\"id\":1,\"name\":\"foo\"},{\"id\":2,\"name\":\"bar\"}]";
+    private MemoryStorage<Data> store;
+    private StubHandler handler;
+    private CountingScheduler scheduler;
+    private CacheConfig cacheConfig;
+    private CachingRestAdapter<Data> pipe;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new MemoryStorage<Data>(new StubIdGenerator());
+        handler = new StubHandler();
+        scheduler = new CountingScheduler();
+
+        cacheConfig = new CacheConfig(store);
+        cacheConfig.setFlushDelay(60000);
+        cacheConfig.setRetryDelay(60000);
+
+        PipeConfig config = new PipeConfig(new URL("http://server.com/context/"), Data.class);
+        config.setType(PipeTypes.CACHED_REST);
+        config.setCacheConfig(cacheConfig);
+        config.setHandler(handler);
+        config.setScheduler(scheduler);
+
+        pipe = (CachingRestAdapter<Data>) new DefaultPipeFactory().createPipe(Data.class, config);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateWithoutStoreFails() throws Exception {
+        PipeConfig config = new PipeConfig(new URL("http://server.com/context/"), Data.class);
+        config.setType(PipeTypes.CACHED_REST);
+        new DefaultPipeFactory().createPipe(Data.class, config);
+    }
+
+    @Test
+    public void testReadThroughStoresResult() throws Exception {
+        handler.respond(TWO_DATA, "\"a\"");
+
+        List<Data> result = read(pipe);
+
+        assertEquals(2, result.size());
+        assertEquals(1, handler.reads);
+        assertEquals("foo", store.read(1).getName());
+    }
+
+    @Test
+    public void testReadServesStoreAndRevalidates() throws Exception {
+        store.save(new Data(1, "cached", null));
+        store.save(new Data(3, "gone", null));
+        handler.respond(TWO_DATA, "\"a\"");
+
+        List<Data> result = read(pipe);
+        assertEquals(2, result.size());
+
+        scheduler.awaitFinished(1);
+        assertEquals(1, handler.reads);
+        assertNull(store.read(3));
+        assertEquals("foo", store.read(1).getName());
+        assertEquals("bar", store.read(2).getName());
+
+        store.save(new Data(1, "changed locally", null));
+        read(pipe);
+        scheduler.awaitFinished(1);
+        assertEquals(2, handler.reads);
+        assertEquals("an unchanged response should not be stored again", "changed locally", store.read(1).getName());
+    }
+
+    @Test
+    public void testPagedReadKeepsOtherPages() throws Exception {
+        PipeConfig config = new PipeConfig(new URL("http://server.com/context/"), Data.class);
+        config.setType(PipeTypes.CACHED_REST);
+        config.setCacheConfig(cacheConfig);
+        config.setHandler(handler);
+        config.setScheduler(scheduler);
+        config.setPageConfig(new PageConfig());
+        CachingRestAdapter<Data> pagedPipe = (CachingRestAdapter<Data>) new DefaultPipeFactory().createPipe(Data.class, config);
+
+        store.save(new Data(3, "second page", null));
+        handler.respond(TWO_DATA, "\"a\"");
+
+        read(pagedPipe);
+        scheduler.awaitFinished(1);
+
+        assertEquals("foo", store.read(1).getName());
+        assertEquals("an item of another page should be kept", "second page", store.read(3).getName());
+    }
+
+    @Test
+    public void testIncrementalReadStoresEachBatch() throws Exception {
+        store.save(new Data(3, "gone", null));
+        handler.respond("[{\"id\":1,\"name\":\"foo\"},{\"id\":2,\"name\":\"bar\"},{\"id\":4,\"name\":\"baz\"}]", null);
+        BatchConfig batchConfig = new BatchConfig();
+        batchConfig.setBatchSize(2);
+
+        final List<List<Data>> batches = new ArrayList<List<Data>>();
+        final List<Integer> storedWhenDelivered = new ArrayList<Integer>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        pipe.read(null, batchConfig, new ItemCallback<Data>() {
+            @Override
+            public void onItems(List<Data> items) {
+                batches.add(items);
+                storedWhenDelivered.add(store.readAll().size());
+            }
+
+            @Override
+            public void onComplete() {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+            }
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals("baz", batches.get(1).get(0).getName());
+        assertEquals(Integer.valueOf(3), storedWhenDelivered.get(0));
+        assertNull(store.read(3));
+        assertEquals("baz", store.read(4).getName());
+    }
+
+    @Test
+    public void testWritesAreQueuedAndCoalesced() throws Exception {
+        save(pipe, new Data(1, "first", null));
+        save(pipe, new Data(1, "second", null));
+        remove(pipe, "2");
+
+        assertEquals("second", store.read(1).getName());
+        assertTrue(handler.saved.isEmpty());
+
+        pipe.flush();
+
+        assertEquals(1, handler.saved.size());
+        assertTrue(new String(handler.saved.get("1")).contains("second"));
+        assertEquals(1, handler.removed.size());
+        assertEquals("2", handler.removed.get(0));
+    }
+
+    @Test
+    public void testFailedWritesAreRetried() throws Exception {
+        handler.failures = 1;
+        save(pipe, new Data(1, "first", null));
+
+        pipe.flush();
+        assertTrue(handler.saved.isEmpty());
+
+        pipe.flush();
+        assertEquals(1, handler.saved.size());
+    }
+
+    @Test
+    public void testFlushesDoNotOvertakeEachOther() throws Exception {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch fail = new CountDownLatch(1);
+        final List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+        StubHandler failingHandler = new StubHandler() {
+            @Override
+            public HeaderAndBody onRawSave(String id, byte[] item) {
+                sent.add(new String(item));
+                if (sent.size() == 1) {
+                    sending.countDown();
+                    try {
+                        fail.await(2, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new RuntimeException("Server unavailable");
+                }
+                return new HeaderAndBody(item, new HashMap<String, Object>());
+            }
+        };
+        PipeConfig config = new PipeConfig(new URL("http://server.com/context/"), Data.class);
+        config.setType(PipeTypes.CACHED_REST);
+        config.setCacheConfig(cacheConfig);
+        config.setHandler(failingHandler);
+        config.setScheduler(scheduler);
+        final CachingRestAdapter<Data> failingPipe = (CachingRestAdapter<Data>) new DefaultPipeFactory().createPipe(Data.class, config);
+        Runnable flush = new Runnable() {
+            @Override
+            public void run() {
+                failingPipe.flush();
+            }
+        };
+
+        save(failingPipe, new Data(1, "v1", null));
+        Thread first = new Thread(flush);
+        first.start();
+        assertTrue(sending.await(2, TimeUnit.SECONDS));
+
+        save(failingPipe, new Data(1, "v2", null));
+        Thread second = new Thread(flush);
+        second.start();
+        second.join(200);
+        fail.countDown();
+        first.join(2000);
+        second.join(2000);
+
+        failingPipe.flush();
+        assertTrue(sent.get(sent.size() - 1).contains("v2"));
+    }
+
+    @Test
+    public void testSaveAllUsesBulkEndpoint() throws Exception {
+        PipeConfig config = new PipeConfig(new URL("http://server.com/context/"), Data.class);
+        config.setType(PipeTypes.CACHED_REST);
+        config.setCacheConfig(cacheConfig);
+        config.setHandler(handler);
+        config.setBulkEndpoint("bulk");
+        CachingRestAdapter<Data> bulkPipe = (CachingRestAdapter<Data>) new DefaultPipeFactory().createPipe(Data.class, config);
+
+        final AtomicReference<List<Data>> result = new AtomicReference<List<Data>>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        bulkPipe.saveAll(Arrays.asList(new Data(1, "first", null), new Data("new", null), new Data(2, "second", null)),
+                new Callback<List<Data>>() {
+                    @Override
+                    public void onSuccess(List<Data> data) {
+                        result.set(data);
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        latch.countDown();
+                    }
+                });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+
+        assertEquals(3, result.get().size());
+        assertEquals(Integer.valueOf(101), result.get().get(1).getId());
+        assertEquals("second", result.get().get(2).getName());
+        assertEquals("new", store.read(101).getName());
+        assertEquals("first", store.read(1).getName());
+        assertEquals("items without an id are saved at once", 1, handler.bulkSaves);
+
+        bulkPipe.flush();
+        assertEquals("queued saves are sent together", 2, handler.bulkSaves);
+        assertEquals(3, handler.saved.size());
+    }
+
+    private List<Data> read(Pipe<Data> pipe) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<List<Data>> result = new AtomicReference<List<Data>>();
+        pipe.read(new ReadFilter(), new Callback<List<Data>>() {
+            @Override
+            public void onSuccess(List<Data> data) {
+                result.set(data);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertNotNull(result.get());
+        return result.get();
+    }
+
+    private void save(Pipe<Data> pipe, Data data) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        pipe.save(data, new Callback<Data>() {
+            @Override
+            public void onSuccess(Data data) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+            }
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+    }
+
+    private void remove(Pipe<Data> pipe, String id) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        pipe.remove(id, new Callback<Void>() {
+            @Override
+            public void onSuccess(Void data) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+            }
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Runs each task on a thread of its own and counts the finished ones, so
+     * a test can wait for work which outlives its callback.
+     */
+    private static class CountingScheduler implements PipeScheduler {
+
+        private final Semaphore finished = new Semaphore(0);
+
+        @Override
+        public void execute(URL url, Priority priority, final Runnable task) throws RejectedExecutionException {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        finished.release();
+                    }
+                }
+            }).start();
+        }
+
+        void awaitFinished(int tasks) throws InterruptedException {
+            assertTrue(finished.tryAcquire(tasks, 2, TimeUnit.SECONDS));
+        }
+    }
+
+    private static class StubHandler implements PipeHandler<Data> {
+
+        private volatile byte[] body = "[]".getBytes();
+        private volatile String etag;
+        private volatile int reads = 0;
+        private volatile int failures = 0;
+        private int bulkSaves = 0;
+        private int lastId = 100;
+        private final Map<String, byte[]> saved = new HashMap<String, byte[]>();
+        private final List<String> removed = new ArrayList<String>();
+
+        void respond(String body, String etag) {
+            this.body = body.getBytes();
+            this.etag = etag;
+        }
+
+        @Override
+        public synchronized HeaderAndBody onRawReadWithFilter(ReadFilter filter, Pipe<Data> requestingPipe) {
+            reads++;
+            HeaderAndBody response = new HeaderAndBody(body, new HashMap<String, Object>());
+            response.setHeader("ETag", etag);
+            return response;
+        }
+
+        @Override
+        public HeaderAndBody onRawRead(Pipe<Data> requestingPipe) {
+            return onRawReadWithFilter(new ReadFilter(), requestingPipe);
+        }
+
+        @Override
+        public synchronized HeaderAndBody onRawSave(String id, byte[] item) {
+            if (failures > 0) {
+                failures--;
+                throw new RuntimeException("Server unavailable");
+            }
+            saved.put(id, item);
+            return new HeaderAndBody(item, new HashMap<String, Object>());
+        }
+
+        @Override
+        public synchronized List<Data> onSaveAll(List<Data> items) {
+            if (failures > 0) {
+                failures--;
+                throw new RuntimeException("Server unavailable");
+            }
+            bulkSaves++;
+            List<Data> result = new ArrayList<Data>(items.size());
+            for (Data item : items) {
+                if (item.getId() == null) {
+                    item = new Data(++lastId, item.getName(), item.getDescription());
+                }
+                saved.put(String.valueOf(item.getId()), new Gson().toJson(item).getBytes());
+                result.add(item);
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized void onRemove(String id) {
+            removed.add(id);
+        }
+
+        @Override
+        public Iterator<Data> onReadItems(ReadFilter filter, Pipe<Data> requestingPipe) {
+            return new GsonResponseParser<Data>().iterateResponse(onRawReadWithFilter(filter, requestingPipe), Data.class);
+        }
+
+        @Override
+        public List<Data> onRead(Pipe<Data> requestingPipe) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Data> onReadWithFilter(ReadFilter filter, Pipe<Data> requestingPipe) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Data onSave(Data item) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
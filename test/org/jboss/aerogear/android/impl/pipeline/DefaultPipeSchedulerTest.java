@@ -0,0 +1,177 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.aerogear.android.pipeline.PipeScheduler.Priority;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DefaultPipeSchedulerTest {
+
+    private static final URL FIRST_HOST;
+    private static final URL SECOND_HOST;
+
+    static {
+        try {
+            FIRST_HOST = new URL("http://first.com/data");
+            SECOND_HOST = new URL("http://second.com/data");
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testTasksOfOneHostAreLimited() throws Exception {
+        DefaultPipeScheduler scheduler = new DefaultPipeScheduler(4, 2, 16);
+        CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger mostRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(5);
+        CountDownLatch started = new CountDownLatch(2);
+
+        for (int i = 0; i < 4; i++) {
+            scheduler.execute(FIRST_HOST, Priority.BACKGROUND, new Blocking(started, release, done, running, mostRunning));
+        }
+        CountDownLatch otherHost = new CountDownLatch(1);
+        scheduler.execute(SECOND_HOST, Priority.BACKGROUND, new Counting(otherHost, done));
+
+        assertTrue("another host is not held up", otherHost.await(2, TimeUnit.SECONDS));
+        assertEquals(2, scheduler.getQueuedCount());
+        assertTrue("two tasks of the host run", started.await(2, TimeUnit.SECONDS));
+
+        release.countDown();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(2, mostRunning.get());
+    }
+
+    @Test
+    public void testInteractiveTasksRunFirst() throws Exception {
+        DefaultPipeScheduler scheduler = new DefaultPipeScheduler(1, 1, 16);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        scheduler.execute(FIRST_HOST, Priority.BACKGROUND, new Blocking(new CountDownLatch(1), release, done, new AtomicInteger(), new AtomicInteger()));
+        scheduler.execute(FIRST_HOST, Priority.BACKGROUND, new Recording(order, "save", done));
+        scheduler.execute(FIRST_HOST, Priority.INTERACTIVE, new Recording(order, "read 1", done));
+        scheduler.execute(FIRST_HOST, Priority.INTERACTIVE, new Recording(order, "read 2", done));
+
+        release.countDown();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(3, order.size());
+        assertEquals("read 1", order.get(0));
+        assertEquals("read 2", order.get(1));
+        assertEquals("save", order.get(2));
+    }
+
+    @Test
+    public void testTasksOverTheQueueLimitAreRejected() throws Exception {
+        DefaultPipeScheduler scheduler = new DefaultPipeScheduler(1, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+
+        scheduler.execute(FIRST_HOST, Priority.BACKGROUND, new Blocking(new CountDownLatch(1), release, done, new AtomicInteger(), new AtomicInteger()));
+        scheduler.execute(FIRST_HOST, Priority.BACKGROUND, new Counting(new CountDownLatch(1), done));
+        try {
+            scheduler.execute(FIRST_HOST, Priority.INTERACTIVE, new Counting(new CountDownLatch(1), done));
+            fail("the queue is full");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        release.countDown();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+    }
+
+    private static class Counting implements Runnable {
+
+        private final CountDownLatch started;
+        private final CountDownLatch done;
+
+        Counting(CountDownLatch started, CountDownLatch done) {
+            this.started = started;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            done.countDown();
+        }
+    }
+
+    private static class Recording implements Runnable {
+
+        private final List<String> order;
+        private final String name;
+        private final CountDownLatch done;
+
+        Recording(List<String> order, String name, CountDownLatch done) {
+            this.order = order;
+            this.name = name;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            order.add(name);
+            done.countDown();
+        }
+    }
+
+    private static class Blocking implements Runnable {
+
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+        private final CountDownLatch done;
+        private final AtomicInteger running;
+        private final AtomicInteger mostRunning;
+
+        Blocking(CountDownLatch started, CountDownLatch release, CountDownLatch done, AtomicInteger running, AtomicInteger mostRunning) {
+            this.started = started;
+            this.release = release;
+            this.done = done;
+            this.running = running;
+            this.mostRunning = mostRunning;
+        }
+
+        @Override
+        public void run() {
+            int now = running.incrementAndGet();
+            synchronized (mostRunning) {
+                mostRunning.set(Math.max(mostRunning.get(), now));
+            }
+            started.countDown();
+            try {
+                release.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import com.google.gson.JsonParseException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jboss.aerogear.android.http.HeaderAndBody;
+import org.jboss.aerogear.android.impl.helper.Data;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GsonResponseParserTest {
+
+    @Test
+    public void testParseArray() {
+        List<Data> result = parse("", "[{\"id\":1,\"name\":\"one\"},{\"id\":2,\"name\":\"two\"}]");
+
+        assertEquals(2, result.size());
+        assertEquals(Integer.valueOf(1), result.get(0).getId());
+        assertEquals("two", result.get(1).getName());
+    }
+
+    @Test
+    public void testParseObject() {
+        List<Data> result = parse("", "{\"id\":1,\"name\":\"one\"}");
+
+        assertEquals(1, result.size());
+        assertEquals("one", result.get(0).getName());
+    }
+
+    @Test
+    public void testParseSkipsToDataRoot() {
+        String response = "{\"meta\":{\"skipped\":[1,2,{\"data\":[]}]},"
+                + "\"result\":{\"count\":1,\"data\":[{\"id\":1,\"name\":\"one\"}]}}";
+        List<Data> result = parse("result.data", response);
+
+        assertEquals(1, result.size());
+        assertEquals("one", result.get(0).getName());
+    }
+
+    @Test
+    public void testParseWithMissingDataRootReturnsDeepestElementFound() {
+        List<Data> result = parse("result.data", "{\"result\":{\"id\":1,\"name\":\"one\"}}");
+
+        assertEquals(1, result.size());
+        assertEquals("one", result.get(0).getName());
+    }
+
+    @Test
+    public void testSaveResponseIsReadFromBytes() {
+        GsonResponseParser<Data> parser = new GsonResponseParser<Data>();
+        parser.getMarshallingConfig().setDataRoot("data");
+        parser.getMarshallingConfig().setEncoding(Charset.forName("UTF-16"));
+        byte[] body = "{\"id\":1,\"name\":\"\u00fcber\"}".getBytes(Charset.forName("UTF-16"));
+
+        Data saved = parser.handleSaveResponse(new HeaderAndBody(body, new HashMap<String, Object>()), Data.class);
+
+        assertEquals("\u00fcber", saved.getName());
+        assertNull(parser.handleSaveResponse(new HeaderAndBody(new byte[0], new HashMap<String, Object>()), Data.class));
+    }
+
+    @Test
+    public void testIterateResponseDecodesItemsAsItAdvances() {
+        GsonResponseParser<Data> parser = new GsonResponseParser<Data>();
+        parser.getMarshallingConfig().setDataRoot("data");
+        String response = "{\"data\":[{\"id\":1,\"name\":\"one\"},{\"id\":2,\"name\":\"two\"}";
+        Iterator<Data> items = parser.iterateResponse(new HeaderAndBody(response.getBytes(), new HashMap<String, Object>()), Data.class);
+
+        assertTrue(items.hasNext());
+        assertEquals("one", items.next().getName());
+        assertEquals("two", items.next().getName());
+        try {
+            items.hasNext();
+            fail("the truncated response should only fail once its end is reached");
+        } catch (JsonParseException expected) {
+        }
+    }
+
+    private List<Data> parse(String dataRoot, String response) {
+        GsonResponseParser<Data> parser = new GsonResponseParser<Data>();
+        parser.getMarshallingConfig().setDataRoot(dataRoot);
+        return parser.handleResponse(new HeaderAndBody(response.getBytes(), new HashMap<String, Object>()), Data.class);
+    }
+}
@@ -16,10 +16,17 @@
  */
 package org.jboss.aerogear.android.impl.pipeline;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import com.xtremelabs.robolectric.RobolectricTestRunner;
 import org.junit.Test;
+import org.junit.runner.RunWith;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -37,12 +44,14 @@ import org.jboss.aerogear.android.RecordId;
 import org.jboss.aerogear.android.http.HeaderAndBody;
 import org.jboss.aerogear.android.http.HttpException;
 import org.jboss.aerogear.android.http.HttpProvider;
+import org.jboss.aerogear.android.http.RequestBody;
 import org.jboss.aerogear.android.impl.helper.UnitTestUtils;
 import org.jboss.aerogear.android.impl.http.HttpStubProvider;
 import org.jboss.aerogear.android.pipeline.Pipe;
 import org.junit.Assert;
 import org.junit.Before;
 
+@RunWith(RobolectricTestRunner.class)
 public class MultipartRequestBuilderTest {
 
     private static final String STRING_DATA = "This is a String";
@@ -166,6 +175,28 @@ public class MultipartRequestBuilderTest {
 
     }
 
+    @Test
+    public void testStreamingBodyLength() throws IOException {
+        MultiPartData data = new MultiPartData();
+        MultipartRequestBuilder<MultiPartData> dataBuilder = new MultipartRequestBuilder<MultiPartData>();
+        assertEquals("a stream part has no known length", -1, dataBuilder.getStreamingBody(data).getContentLength());
+
+        File file = File.createTempFile("multipart", ".bin");
+        file.deleteOnExit();
+        FileOutputStream fileOut = new FileOutputStream(file);
+        fileOut.write(new byte[20000]);
+        fileOut.close();
+        data.setInputStream(null);
+        data.setFile(file);
+
+        RequestBody body = dataBuilder.getStreamingBody(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        assertTrue(out.size() > 20000);
+        assertEquals(out.size(), body.getContentLength());
+        assertEquals(out.size(), dataBuilder.getBody(data).length);
+    }
+
     @Test
     public void testBuilderUsage() throws MalformedURLException {
         URL baseUrl = new URL("http://example.com");
@@ -182,6 +213,7 @@ public class MultipartRequestBuilderTest {
 
         private byte[] byteArray = { 'a', 'b', 'c', 'd', 'e', 'f' };
         private InputStream inputStream = new ByteArrayInputStream(byteArray);
+        private File file;
 
         @RecordId
         private String string = STRING_DATA;
@@ -209,5 +241,13 @@ public class MultipartRequestBuilderTest {
         public void setString(String string) {
             this.string = string;
         }
+
+        public File getFile() {
+            return file;
+        }
+
+        public void setFile(File file) {
+            this.file = file;
+        }
     }
 }
@@ -26,6 +26,7 @@ import com.google.gson.JsonParseException;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 import com.xtremelabs.robolectric.RobolectricTestRunner;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
@@ -34,13 +35,18 @@ import org.jboss.aerogear.android.*;
 import org.jboss.aerogear.android.authentication.AuthenticationModule;
 import org.jboss.aerogear.android.authentication.AuthorizationFields;
 import org.jboss.aerogear.android.http.HeaderAndBody;
+import org.jboss.aerogear.android.http.HttpException;
 import org.jboss.aerogear.android.http.HttpProvider;
+import org.jboss.aerogear.android.http.RequestBody;
 import org.jboss.aerogear.android.impl.core.HttpProviderFactory;
 import org.jboss.aerogear.android.impl.helper.Data;
 import org.jboss.aerogear.android.impl.helper.UnitTestUtils;
 import org.jboss.aerogear.android.impl.http.HttpStubProvider;
 import org.jboss.aerogear.android.impl.pipeline.paging.WrappingPagedList;
 import org.jboss.aerogear.android.pipeline.Pipe;
+import org.jboss.aerogear.android.pipeline.PipeScheduler;
+import org.jboss.aerogear.android.pipeline.RetryConfig;
+import org.jboss.aerogear.android.pipeline.TypeAndStream;
 import org.jboss.aerogear.android.pipeline.paging.PageConfig;
 import org.jboss.aerogear.android.pipeline.paging.PagedList;
 import org.json.JSONObject;
@@ -52,15 +58,19 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -108,6 +118,191 @@ public class RestAdapterTest {
         assertEquals("verifying the given URL", "http://server.com/context/", restPipe.getUrl().toString());
     }
 
+    @Test
+    public void testRejectedCallFailsCallback() throws Exception {
+        PipeConfig config = new PipeConfig(url, Data.class);
+        config.setScheduler(new PipeScheduler() {
+            @Override
+            public void execute(URL url, Priority priority, Runnable task) {
+                throw new RejectedExecutionException("full");
+            }
+        });
+        Pipe<Data> restPipe = new RestAdapter<Data>(Data.class, url, config);
+
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        restPipe.read(new Callback<List<Data>>() {
+            @Override
+            public void onSuccess(List<Data> data) {
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                failure.set(e);
+            }
+        });
+
+        assertTrue(failure.get() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void testOnlyIdempotentCallsAreRetriedByDefault() throws Exception {
+        PipeConfig config = new PipeConfig(url, Data.class);
+        assertFalse(config.getRetryConfig().isRetryNonIdempotent());
+        RestAdapter<Data> adapter = new RestAdapter<Data>(Data.class, url, config);
+
+        HttpProvider mockProvider = mock(HttpProvider.class);
+        when(mockProvider.post(any(byte[].class))).thenThrow(new HttpException(new byte[0], 503));
+        when(mockProvider.get())
+                .thenThrow(new HttpException(new byte[0], 503))
+                .thenReturn(new HeaderAndBody("[]".getBytes(), new HashMap<String, Object>()));
+        setHttpProvider(adapter, mockProvider);
+
+        AwaitedCallback<Data> created = new AwaitedCallback<Data>();
+        adapter.save(new Data("new", null), created);
+        assertTrue(created.await() instanceof HttpException);
+        verify(mockProvider, times(1)).post(any(byte[].class));
+
+        AwaitedCallback<List<Data>> read = new AwaitedCallback<List<Data>>();
+        adapter.read(read);
+        assertNull(read.await());
+        verify(mockProvider, times(2)).get();
+    }
+
+    @Test
+    public void testReadIsRetriedOnServiceUnavailable() throws Exception {
+        RestAdapter<Data> adapter = new RestAdapter<Data>(Data.class, url, retryingConfig());
+
+        HttpProvider mockProvider = mock(HttpProvider.class);
+        when(mockProvider.get())
+                .thenThrow(new HttpException(new byte[0], 503))
+                .thenThrow(new RuntimeException(new SocketTimeoutException()))
+                .thenReturn(new HeaderAndBody("[]".getBytes(), new HashMap<String, Object>()));
+        setHttpProvider(adapter, mockProvider);
+
+        AwaitedCallback<List<Data>> callback = new AwaitedCallback<List<Data>>();
+        adapter.read(callback);
+
+        assertNull(callback.await());
+        verify(mockProvider, times(3)).get();
+    }
+
+    @Test
+    public void testPostIsNotRetried() throws Exception {
+        RestAdapter<Data> adapter = new RestAdapter<Data>(Data.class, url, retryingConfig());
+        HttpProvider mockProvider = mock(HttpProvider.class);
+        when(mockProvider.post(any(byte[].class))).thenThrow(new HttpException(new byte[0], 503));
+        when(mockProvider.put(anyString(), any(byte[].class))).thenThrow(new HttpException(new byte[0], 503));
+        setHttpProvider(adapter, mockProvider);
+
+        AwaitedCallback<Data> created = new AwaitedCallback<Data>();
+        adapter.save(new Data("new", null), created);
+        assertTrue(created.await() instanceof HttpException);
+        verify(mockProvider, times(1)).post(any(byte[].class));
+
+        AwaitedCallback<Data> updated = new AwaitedCallback<Data>();
+        adapter.save(new Data(1, "old", null), updated);
+        assertTrue(updated.await() instanceof HttpException);
+        verify(mockProvider, times(3)).put(anyString(), any(byte[].class));
+    }
+
+    @Test
+    public void testStreamedSaveIsNotRetried() throws Exception {
+        PipeConfig config = new PipeConfig(url, Upload.class);
+        config.setRetryConfig(retryingConfig().getRetryConfig());
+        config.setRequestBuilder(new MultipartRequestBuilder<Upload>());
+        RestAdapter<Upload> adapter = new RestAdapter<Upload>(Upload.class, url, config);
+
+        final List<String> bodies = new ArrayList<String>();
+        HttpProvider stub = new HttpStubProvider(url) {
+            @Override
+            public HeaderAndBody put(String id, RequestBody data) throws HttpException {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try {
+                    data.writeTo(out);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                bodies.add(out.toString());
+                if (bodies.size() == 1) {
+                    throw new HttpException(new byte[0], 503);
+                }
+                return new HeaderAndBody(new byte[0], new HashMap<String, Object>());
+            }
+        };
+        setHttpProvider(adapter, stub);
+
+        Upload upload = new Upload();
+        upload.setId("1");
+        upload.setFile(new TypeAndStream("text/plain", "file.txt", new ByteArrayInputStream("file content".getBytes())));
+        AwaitedCallback<Upload> callback = new AwaitedCallback<Upload>();
+        adapter.save(upload, callback);
+
+        assertTrue(callback.await() instanceof HttpException);
+        assertEquals(1, bodies.size());
+        assertTrue(bodies.get(0).contains("file content"));
+    }
+
+    @Test
+    public void testRetryDoesNotHoldTheScheduler() throws Exception {
+        DefaultPipeScheduler scheduler = new DefaultPipeScheduler(1, 1, 16);
+        PipeConfig config = retryingConfig();
+        config.setScheduler(scheduler);
+        RestAdapter<Data> waiting = new RestAdapter<Data>(Data.class, url, config);
+        RestAdapter<Data> other = new RestAdapter<Data>(Data.class, url, config);
+
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Retry-After", "1");
+        HttpProvider waitingProvider = mock(HttpProvider.class);
+        when(waitingProvider.get())
+                .thenThrow(new HttpException(new byte[0], 503, headers))
+                .thenReturn(new HeaderAndBody("[]".getBytes(), new HashMap<String, Object>()));
+        setHttpProvider(waiting, waitingProvider);
+        HttpProvider otherProvider = mock(HttpProvider.class);
+        when(otherProvider.get()).thenReturn(new HeaderAndBody("[]".getBytes(), new HashMap<String, Object>()));
+        setHttpProvider(other, otherProvider);
+
+        AwaitedCallback<List<Data>> retried = new AwaitedCallback<List<Data>>();
+        waiting.read(retried);
+        verify(waitingProvider, timeout(500)).get();
+        AwaitedCallback<List<Data>> meanwhile = new AwaitedCallback<List<Data>>();
+        other.read(meanwhile);
+
+        assertTrue("the other read runs while the retry waits", meanwhile.done.await(500, TimeUnit.MILLISECONDS));
+        assertEquals(1, retried.done.getCount());
+        assertNull(retried.await());
+    }
+
+    @Test
+    public void testSaveAllRetriesOnlyUnsavedItems() throws Exception {
+        PipeConfig config = retryingConfig();
+        config.getRetryConfig().setRetryNonIdempotent(true);
+        config.setBulkEndpoint("bulk");
+        config.setMaxBulkSize(2);
+        RestAdapter<Data> adapter = new RestAdapter<Data>(Data.class, url, config);
+
+        final List<String> bodies = new ArrayList<String>();
+        HttpProvider stub = new HttpStubProvider(url) {
+            @Override
+            public HeaderAndBody post(byte[] data) throws RuntimeException {
+                bodies.add(new String(data));
+                if (bodies.size() == 2) {
+                    throw new HttpException(new byte[0], 503);
+                }
+                return new HeaderAndBody(new byte[0], new HashMap<String, Object>());
+            }
+        };
+        setHttpProvider(adapter, stub);
+
+        AwaitedCallback<List<Data>> callback = new AwaitedCallback<List<Data>>();
+        adapter.saveAll(Arrays.asList(new Data("a", null), new Data("bb", null), new Data("ccc", null)), callback);
+
+        assertNull(callback.await());
+        assertEquals(3, callback.result.size());
+        assertEquals(3, bodies.size());
+        assertEquals(bodies.get(1), bodies.get(2));
+        assertFalse(bodies.get(2).contains("bb"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testPipeFactoryPipeConfigEncoding() {
         PipeConfig config = new PipeConfig(url, Data.class);
@@ -595,6 +790,29 @@ public class RestAdapterTest {
         return resultRef.get();
     }
 
+    public final static class Upload {
+
+        @RecordId
+        private String id;
+        private TypeAndStream file;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public TypeAndStream getFile() {
+            return file;
+        }
+
+        public void setFile(TypeAndStream file) {
+            this.file = file;
+        }
+    }
+
     public final static class ListClassId {
 
         List<Point> points = new ArrayList<Point>(10);
@@ -690,4 +908,49 @@ public class RestAdapterTest {
             return true;
         }
     }
+
+    private PipeConfig retryingConfig() {
+        PipeConfig config = new PipeConfig(url, Data.class);
+        RetryConfig retryConfig = new RetryConfig();
+        retryConfig.setInitialDelay(1);
+        config.setRetryConfig(retryConfig);
+        return config;
+    }
+
+    private void setHttpProvider(RestAdapter<?> adapter, final HttpProvider httpProvider) throws Exception {
+        Object restRunner = UnitTestUtils.getPrivateField(adapter, "restRunner");
+        UnitTestUtils.setPrivateField(restRunner, "httpProviderFactory", new Provider<HttpProvider>() {
+            @Override
+            public HttpProvider get(Object... in) {
+                return httpProvider;
+            }
+        });
+    }
+
+    private static class AwaitedCallback<V> implements Callback<V> {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile V result;
+        private volatile Exception failure;
+
+        @Override
+        public void onSuccess(V data) {
+            result = data;
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            failure = e;
+            done.countDown();
+        }
+
+        /**
+         * @return the failure of the call, null if it succeeded
+         */
+        Exception await() throws InterruptedException {
+            assertTrue("the callback is called", done.await(5, TimeUnit.SECONDS));
+            return failure;
+        }
+    }
 }
@@ -16,19 +16,47 @@
  */
 package org.jboss.aerogear.android.impl.pipeline;
 
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import com.xtremelabs.robolectric.RobolectricTestRunner;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.jboss.aerogear.android.Provider;
+import org.jboss.aerogear.android.ReadFilter;
 import org.jboss.aerogear.android.authentication.AuthenticationModule;
+import org.jboss.aerogear.android.http.HeaderAndBody;
 import org.jboss.aerogear.android.http.HttpException;
 import org.jboss.aerogear.android.http.HttpProvider;
+import org.jboss.aerogear.android.http.StreamingHttpProvider;
 import org.jboss.aerogear.android.impl.core.HttpProviderFactory;
 import org.jboss.aerogear.android.impl.helper.Data;
 import org.jboss.aerogear.android.impl.helper.UnitTestUtils;
+import org.jboss.aerogear.android.impl.http.HttpStubProvider;
+import org.jboss.aerogear.android.impl.serialization.BinarySerializer;
+import org.jboss.aerogear.android.pipeline.BatchConfig;
+import org.jboss.aerogear.android.pipeline.ItemCallback;
+import org.jboss.aerogear.android.pipeline.PartialSaveException;
+import org.jboss.aerogear.android.pipeline.RetryConfig;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 @RunWith(RobolectricTestRunner.class)
@@ -79,6 +107,242 @@ public class RestRunnerTest {
         verify(mockProvider, times(2)).get();
     }
 
+    @Test
+    public void testConcurrentReadsShareOneRequest() throws Exception {
+        final RestRunner<Data> runner = new RestRunner<Data>(Data.class, SIMPLE_URL);
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        UnitTestUtils.setPrivateField(runner, "httpProviderFactory", new Provider<HttpProvider>() {
+            @Override
+            public HttpProvider get(Object... in) {
+                return new HttpStubProvider((URL) in[0]) {
+                    @Override
+                    public HeaderAndBody get() throws HttpException {
+                        requests.incrementAndGet();
+                        try {
+                            release.await(2, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                        return new HeaderAndBody("[{\"id\":1,\"name\":\"foo\"}]".getBytes(), new HashMap<String, Object>());
+                    }
+                };
+            }
+        });
+        final CountDownLatch joined = new CountDownLatch(2);
+        UnitTestUtils.setPrivateField(runner, "rawReads", new InFlightCalls<HeaderAndBody>() {
+            @Override
+            void joined(String key) {
+                joined.countDown();
+            }
+        });
+
+        final List<List<Data>> results = Collections.synchronizedList(new ArrayList<List<Data>>());
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int i = 0; i < 3; i++) {
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    results.add(runner.onReadWithFilter(new ReadFilter(), null));
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        assertTrue("the other reads wait for the first", joined.await(2, TimeUnit.SECONDS));
+        release.countDown();
+        for (Thread reader : readers) {
+            reader.join(2000);
+        }
+
+        assertEquals(1, requests.get());
+        assertEquals(3, results.size());
+        for (List<Data> result : results) {
+            assertEquals("foo", result.get(0).getName());
+        }
+        assertNotSame("each read gets its own items", results.get(0).get(0), results.get(1).get(0));
+
+        runner.onReadWithFilter(new ReadFilter(), null);
+        assertEquals("finished reads are not reused", 2, requests.get());
+    }
+
+    @Test
+    public void testReadItemsDeliversBatchesWhileBodyArrives() throws Exception {
+        final RestRunner<Data> runner = new RestRunner<Data>(Data.class, SIMPLE_URL);
+        PipedOutputStream server = new PipedOutputStream();
+        final AtomicBoolean closed = new AtomicBoolean();
+        final InputStream body = new FilterInputStream(new PipedInputStream(server)) {
+            @Override
+            public void close() throws IOException {
+                closed.set(true);
+                super.close();
+            }
+        };
+        UnitTestUtils.setPrivateField(runner, "httpProviderFactory", new Provider<HttpProvider>() {
+            @Override
+            public HttpProvider get(Object... in) {
+                return new StreamingStubProvider((URL) in[0], body);
+            }
+        });
+
+        final BatchConfig batchConfig = new BatchConfig();
+        batchConfig.setBatchSize(2);
+        final List<Data> items = Collections.synchronizedList(new ArrayList<Data>());
+        final CountDownLatch firstBatch = new CountDownLatch(1);
+        final CountDownLatch complete = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ItemBatches.read(runner, new ReadFilter(), null, batchConfig, new ItemCallback<Data>() {
+                    @Override
+                    public void onItems(List<Data> batch) {
+                        items.addAll(batch);
+                        firstBatch.countDown();
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        complete.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                    }
+                });
+            }
+        }).start();
+
+        server.write("[{\"id\":1,\"name\":\"one\"},{\"id\":2,\"name\":\"two\"}".getBytes());
+        server.flush();
+        assertTrue("the first batch should be delivered before the body ends", firstBatch.await(2, TimeUnit.SECONDS));
+        assertEquals(2, items.size());
+
+        server.write(",{\"id\":3,\"name\":\"three\"}]".getBytes());
+        server.close();
+        assertTrue(complete.await(2, TimeUnit.SECONDS));
+        assertEquals(3, items.size());
+        assertEquals("three", items.get(2).getName());
+        assertTrue("the body should be closed", closed.get());
+    }
+
+    @Test
+    public void testSaveAllPostsBatchesToBulkEndpoint() throws Exception {
+        PipeConfig config = new PipeConfig(SIMPLE_URL, Data.class);
+        config.setBulkEndpoint("bulk");
+        config.setMaxBulkSize(2);
+        RestRunner<Data> runner = new RestRunner<Data>(Data.class, SIMPLE_URL, config);
+
+        final List<String> urls = new ArrayList<String>();
+        final List<String> bodies = new ArrayList<String>();
+        UnitTestUtils.setPrivateField(runner, "httpProviderFactory", new Provider<HttpProvider>() {
+            @Override
+            public HttpProvider get(Object... in) {
+                final URL url = (URL) in[0];
+                return new HttpStubProvider(url) {
+                    @Override
+                    public HeaderAndBody post(byte[] data) throws RuntimeException {
+                        urls.add(url.toString());
+                        bodies.add(new String(data));
+                        List<Data> items = new Gson().fromJson(new String(data), new TypeToken<List<Data>>() {
+                        }.getType());
+                        for (Data item : items) {
+                            item.setId(item.getName().length());
+                        }
+                        return new HeaderAndBody(new Gson().toJson(items).getBytes(), new HashMap<String, Object>());
+                    }
+                };
+            }
+        });
+
+        List<Data> saved = runner.onSaveAll(Arrays.asList(new Data("a", null), new Data("bb", null), new Data("ccc", null)));
+
+        assertEquals(2, urls.size());
+        assertEquals("http://example.com/bulk", urls.get(0));
+        assertTrue(bodies.get(0).startsWith("["));
+        assertEquals(3, saved.size());
+        assertEquals(Integer.valueOf(1), saved.get(0).getId());
+        assertEquals(Integer.valueOf(3), saved.get(2).getId());
+    }
+
+    @Test
+    public void testSaveAllReportsBatchesSavedBeforeAFailure() throws Exception {
+        PipeConfig config = new PipeConfig(SIMPLE_URL, Data.class);
+        config.setBulkEndpoint("bulk");
+        config.setMaxBulkSize(2);
+        RestRunner<Data> runner = new RestRunner<Data>(Data.class, SIMPLE_URL, config);
+
+        final AtomicInteger posts = new AtomicInteger();
+        UnitTestUtils.setPrivateField(runner, "httpProviderFactory", new Provider<HttpProvider>() {
+            @Override
+            public HttpProvider get(Object... in) {
+                return new HttpStubProvider((URL) in[0]) {
+                    @Override
+                    public HeaderAndBody post(byte[] data) throws RuntimeException {
+                        if (posts.incrementAndGet() > 1) {
+                            throw new HttpException(new byte[0], 400);
+                        }
+                        return new HeaderAndBody(new byte[0], new HashMap<String, Object>());
+                    }
+                };
+            }
+        });
+
+        try {
+            runner.onSaveAll(Arrays.asList(new Data("a", null), new Data("bb", null), new Data("ccc", null)));
+            fail("the second batch fails");
+        } catch (PartialSaveException e) {
+            assertEquals(2, e.getSaved().size());
+            assertEquals("bb", ((Data) e.getSaved().get(1)).getName());
+            assertTrue(e.getCause() instanceof HttpException);
+        }
+    }
+
+    @Test
+    public void testSaveWithBinarySerializer() throws Exception {
+        final BinarySerializer serializer = new BinarySerializer();
+        PipeConfig config = new PipeConfig(SIMPLE_URL, Data.class);
+        config.setSerializer(serializer);
+        RestRunner<Data> runner = new RestRunner<Data>(Data.class, SIMPLE_URL, config);
+
+        UnitTestUtils.setPrivateField(runner, "httpProviderFactory", new Provider<HttpProvider>() {
+            @Override
+            public HttpProvider get(Object... in) {
+                return new HttpStubProvider((URL) in[0]) {
+                    @Override
+                    public HeaderAndBody post(byte[] data) throws RuntimeException {
+                        Data item = serializer.deserialize(data, Data.class);
+                        item.setId(7);
+                        return new HeaderAndBody(serializer.serializeAll(Arrays.asList(item)), new HashMap<String, Object>());
+                    }
+                };
+            }
+        });
+
+        Data saved = runner.onSave(new Data("F50", "The best car in the world"));
+
+        assertEquals(BinarySerializer.CONTENT_TYPE, config.getRequestBuilder().getContentType());
+        assertEquals(Integer.valueOf(7), saved.getId());
+        assertEquals("F50", saved.getName());
+    }
+
+    @Test
+    public void testRetryAfterIsHonoured() {
+        RetryConfig retryConfig = new RetryConfig();
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Retry-After", "5");
+        HttpException failure = new HttpException(new byte[0], 503, headers);
+
+        assertEquals(5000, Retries.delayBeforeRetry(retryConfig, true, 1, failure));
+
+        headers.put("Retry-After", "120");
+        failure = new HttpException(new byte[0], 503, headers);
+        assertEquals("waits longer than maxDelay are not retried", -1, Retries.delayBeforeRetry(retryConfig, true, 1, failure));
+
+        assertEquals(-1, Retries.delayBeforeRetry(retryConfig, true, 1, new HttpException(new byte[0], 404)));
+        assertEquals(-1, Retries.delayBeforeRetry(retryConfig, true, 3, new HttpException(new byte[0], 503)));
+        assertTrue(Retries.delayBeforeRetry(retryConfig, true, 2, new HttpException(new byte[0], 503)) <= 2000);
+    }
+
     private AuthenticationModule createMockModule() {
         AuthenticationModule module = mock(AuthenticationModule.class);
         when(module.isLoggedIn()).thenReturn(true);
@@ -86,6 +350,21 @@ public class RestRunnerTest {
         return module;
     }
 
+    private static class StreamingStubProvider extends HttpStubProvider implements StreamingHttpProvider {
+
+        private final InputStream body;
+
+        StreamingStubProvider(URL url, InputStream body) {
+            super(url);
+            this.body = body;
+        }
+
+        @Override
+        public InputStream getStream() throws HttpException {
+            return body;
+        }
+    }
+
     private HttpProvider createMockProvider(int statusCode) {
         HttpProvider provider = mock(HttpProvider.class);
         when(provider.get()).thenThrow(new HttpException(new byte[0], statusCode));
@@ -0,0 +1,328 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.pipeline;
+
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jboss.aerogear.android.Provider;
+import org.jboss.aerogear.android.RecordId;
+import org.jboss.aerogear.android.http.HeaderAndBody;
+import org.jboss.aerogear.android.http.HttpException;
+import org.jboss.aerogear.android.http.HttpProvider;
+import org.jboss.aerogear.android.http.RequestBody;
+import org.jboss.aerogear.android.impl.datamanager.MemoryStorage;
+import org.jboss.aerogear.android.impl.datamanager.StubIdGenerator;
+import org.jboss.aerogear.android.impl.helper.UnitTestUtils;
+import org.jboss.aerogear.android.impl.http.HttpStubProvider;
+import org.jboss.aerogear.android.pipeline.UploadConfig;
+import org.jboss.aerogear.android.pipeline.UploadIdentity;
+import org.jboss.aerogear.android.pipeline.UploadProgress;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class ResumableUploadTest {
+
+    private static final String BOUNDARY = "resumable-upload-test";
+    private URL url;
+    private MemoryStorage<UploadProgress> progressStore;
+    private StubServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        url = new URL("http://server.com/context/files");
+        progressStore = new MemoryStorage<UploadProgress>(new StubIdGenerator());
+        server = new StubServer();
+    }
+
+    @Test
+    public void testUploadIsSentInChunks() throws Exception {
+        Upload upload = new Upload("1", 5000);
+
+        newRunner().onSave(upload);
+
+        byte[] expected = new MultipartRequestBuilder<Upload>(BOUNDARY).getBody(upload);
+        assertArrayEquals(expected, server.body());
+        assertEquals((expected.length + 999) / 1000, server.requests);
+        assertTrue(server.ranges.get(0).matches("bytes 0-999/" + expected.length));
+        assertTrue(progressStore.isEmpty());
+    }
+
+    @Test
+    public void testUploadResumesFromLastAcknowledgedChunk() throws Exception {
+        Upload upload = new Upload("1", 5000);
+        server.failAtRequest = 3;
+
+        try {
+            newRunner().onSave(upload);
+            fail("the third chunk should have failed");
+        } catch (HttpException expected) {
+        }
+        assertEquals(2000, progressStore.readAll().iterator().next().getOffset());
+
+        // a new runner, as after a restart, carries on with the same upload
+        server.failAtRequest = -1;
+        newRunner().onSave(upload);
+
+        byte[] expected = new MultipartRequestBuilder<Upload>(BOUNDARY).getBody(upload);
+        assertArrayEquals(expected, server.body());
+        assertTrue(server.ranges.get(2).startsWith("bytes 2000-2999/"));
+        assertEquals(1, server.uploadIds.size());
+        assertTrue(progressStore.isEmpty());
+    }
+
+    @Test
+    public void testPostResumesFromLastAcknowledgedChunk() throws Exception {
+        Upload upload = new Upload(null, 5000);
+        server.failAtRequest = 3;
+
+        try {
+            newRunner().onSave(upload);
+            fail("the third chunk should have failed");
+        } catch (HttpException expected) {
+        }
+
+        server.failAtRequest = -1;
+        newRunner().onSave(upload);
+
+        byte[] expected = new MultipartRequestBuilder<Upload>(BOUNDARY).getBody(upload);
+        assertArrayEquals(expected, server.body());
+        assertEquals(1, server.uploadIds.size());
+        for (String posted : server.urls) {
+            assertEquals(url.toString(), posted);
+        }
+        assertTrue(progressStore.isEmpty());
+    }
+
+    @Test
+    public void testOtherContentOfSameLengthStartsNewUpload() throws Exception {
+        Upload first = new Upload(null, 5000);
+        server.failAtRequest = 3;
+        try {
+            newRunner().onSave(first);
+            fail("the third chunk should have failed");
+        } catch (HttpException expected) {
+        }
+
+        server.failAtRequest = -1;
+        Upload second = new Upload(null, 5000);
+        second.getContent()[0] = 42;
+        newRunner().onSave(second);
+
+        assertEquals(2, server.uploadIds.size());
+        assertArrayEquals(new MultipartRequestBuilder<Upload>(BOUNDARY).getBody(second), server.body());
+    }
+
+    @Test
+    public void testBodyOfUnknownLengthIsNotResumed() throws Exception {
+        UploadConfig uploadConfig = new UploadConfig(progressStore);
+        uploadConfig.setChunkSize(1000);
+        final HttpProvider connection = server.connection(url);
+        ResumableUpload.ChunkSender sender = new ResumableUpload.ChunkSender() {
+            @Override
+            public HeaderAndBody send(String uploadId, String contentRange, RequestBody chunk) {
+                connection.setDefaultHeader("Upload-Id", uploadId);
+                connection.setDefaultHeader("Content-Range", contentRange);
+                return connection.post(chunk);
+            }
+        };
+        RequestBody body = new RequestBody() {
+            @Override
+            public long getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(new byte[5000]);
+            }
+
+            @Override
+            public boolean isReplayable() {
+                return true;
+            }
+        };
+        server.failAtRequest = 3;
+
+        try {
+            new ResumableUpload(uploadConfig).upload(url.toString(), "content", body, sender);
+            fail("the third chunk should have failed");
+        } catch (HttpException expected) {
+        }
+        assertTrue(progressStore.isEmpty());
+
+        server.failAtRequest = -1;
+        new ResumableUpload(uploadConfig).upload(url.toString(), "content", body, sender);
+        assertEquals(2, server.uploadIds.size());
+        assertEquals(5000, server.body().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRandomBoundaryIsRejected() throws Exception {
+        PipeConfig config = new PipeConfig(url, Upload.class);
+        config.setRequestBuilder(new MultipartRequestBuilder<Upload>());
+        config.setUploadConfig(new UploadConfig(progressStore));
+
+        new RestRunner<Upload>(Upload.class, url, config);
+    }
+
+    private RestRunner<Upload> newRunner() throws Exception {
+        UploadConfig uploadConfig = new UploadConfig(progressStore);
+        uploadConfig.setChunkSize(1000);
+        uploadConfig.setIdentity(new UploadIdentity<Upload>() {
+            @Override
+            public String identityOf(Upload item) {
+                return String.valueOf(Arrays.hashCode(item.getContent()));
+            }
+        });
+
+        PipeConfig config = new PipeConfig(url, Upload.class);
+        config.setRequestBuilder(new MultipartRequestBuilder<Upload>(BOUNDARY));
+        config.setUploadConfig(uploadConfig);
+
+        RestRunner<Upload> runner = new RestRunner<Upload>(Upload.class, url, config);
+        UnitTestUtils.setPrivateField(runner, "httpProviderFactory", new Provider<HttpProvider>() {
+            @Override
+            public HttpProvider get(Object... in) {
+                return server.connection((URL) in[0]);
+            }
+        });
+        return runner;
+    }
+
+    /**
+     * Plays the server side: keeps the chunks of each upload in place.
+     */
+    private static class StubServer {
+
+        private static final Pattern RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
+        private final Map<String, byte[]> uploads = new HashMap<String, byte[]>();
+        private final List<String> ranges = new ArrayList<String>();
+        private final List<String> uploadIds = new ArrayList<String>();
+        private final List<String> urls = new ArrayList<String>();
+        private int requests = 0;
+        private int failAtRequest = -1;
+
+        HttpProvider connection(final URL url) {
+            final Map<String, String> headers = new HashMap<String, String>();
+            return new HttpStubProvider(url) {
+
+                @Override
+                public void setDefaultHeader(String headerName, String headerValue) {
+                    headers.put(headerName, headerValue);
+                }
+
+                @Override
+                public HeaderAndBody put(String id, RequestBody data) throws HttpException {
+                    return receive(headers, data);
+                }
+
+                @Override
+                public HeaderAndBody post(RequestBody data) throws HttpException {
+                    urls.add(url.toString());
+                    return receive(headers, data);
+                }
+            };
+        }
+
+        synchronized HeaderAndBody receive(Map<String, String> headers, RequestBody data) {
+            requests++;
+            if (requests == failAtRequest) {
+                throw new HttpException(new byte[0], 503);
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                data.writeTo(out);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            String uploadId = headers.get("Upload-Id");
+            String range = headers.get("Content-Range");
+            Matcher matcher = RANGE.matcher(range);
+            assertTrue(range, matcher.matches());
+            int start = Integer.parseInt(matcher.group(1));
+            assertEquals(Integer.parseInt(matcher.group(2)) - start + 1, out.size());
+
+            byte[] received = uploads.get(uploadId);
+            if (received == null) {
+                uploadIds.add(uploadId);
+                received = new byte[0];
+            }
+            assertEquals("chunks must arrive in order", received.length, start);
+            byte[] joined = new byte[start + out.size()];
+            System.arraycopy(received, 0, joined, 0, received.length);
+            System.arraycopy(out.toByteArray(), 0, joined, start, out.size());
+            uploads.put(uploadId, joined);
+            ranges.add(range);
+
+            return new HeaderAndBody("{\"id\":\"1\"}".getBytes(), new HashMap<String, Object>());
+        }
+
+        synchronized byte[] body() {
+            return uploads.get(uploadIds.get(uploadIds.size() - 1));
+        }
+    }
+
+    public static class Upload {
+
+        @RecordId
+        private String id;
+        private byte[] content;
+
+        public Upload(String id, int size) {
+            this.id = id;
+            this.content = new byte[size];
+            for (int i = 0; i < size; i++) {
+                content[i] = (byte) i;
+            }
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public void setContent(byte[] content) {
+            this.content = content;
+        }
+    }
+}
@@ -19,8 +19,11 @@ package org.jboss.aerogear.android.impl.pipeline;
 import com.google.gson.Gson;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collection;
 import org.jboss.aerogear.android.Callback;
 import org.jboss.aerogear.android.ReadFilter;
+import org.jboss.aerogear.android.pipeline.BatchConfig;
+import org.jboss.aerogear.android.pipeline.ItemCallback;
 import org.jboss.aerogear.android.pipeline.Pipe;
 import org.jboss.aerogear.android.pipeline.PipeFactory;
 import org.jboss.aerogear.android.pipeline.PipeHandler;
@@ -65,10 +68,18 @@ public class StubPipeFactory implements PipeFactory {
             public void readWithFilter(ReadFilter filer, Callback callback) {
             }
 
+            @Override
+            public void read(ReadFilter filter, BatchConfig batchConfig, ItemCallback callback) {
+            }
+
             @Override
             public void save(Object item, Callback callback) {
             }
 
+            @Override
+            public void saveAll(Collection items, Callback callback) {
+            }
+
             @Override
             public void remove(String id, Callback callback) {
             }
@@ -19,14 +19,23 @@ package org.jboss.aerogear.android.impl.reflection;
 import org.jboss.aerogear.android.impl.helper.Data;
 import org.jboss.aerogear.android.impl.helper.DataWithNoPropertyId;
 import org.jboss.aerogear.android.impl.helper.ExtendsData;
+import org.junit.After;
 import org.junit.Test;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
 
 public class PropertyTest {
 
+    @After
+    public void restoreAccessorStrategy() {
+        Property.setAccessorStrategy(AccessorStrategies.METHODS);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testUseNullClass() throws Exception {
         new Property(null, "id");
@@ -99,6 +108,20 @@ public class PropertyTest {
         assertFalse(data.isEnable());
     }
 
+    @Test
+    public void testPropertiesAreShared() throws Exception {
+        Property property = Property.of(Data.class, "name");
+
+        assertSame(property, Property.of(Data.class, "name"));
+        assertNotSame(property, Property.of(ExtendsData.class, "name"));
+        assertEquals("F50", property.getValue(new Data(1, "F50", null)));
+    }
+
+    @Test(expected = FieldNotFoundException.class)
+    public void testSharedFieldNotFoundException() throws Exception {
+        Property.of(DataWithNoPropertyId.class, "monkey");
+    }
+
     @Test
     public void testMessageException() {
         String expectedMessage = "Cannot find get/set to field id (Integer) on Data";
@@ -113,4 +136,88 @@ public class PropertyTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testFieldsStrategyNeedsNoAccessorMethods() throws Exception {
+        Property.setAccessorStrategy(AccessorStrategies.FIELDS);
+        DataWithNoPropertyId data = new DataWithNoPropertyId();
+
+        Property property = Property.of(DataWithNoPropertyId.class, "id");
+        property.setValue(data, 1);
+
+        assertEquals(1, property.getValue(data));
+    }
+
+    @Test
+    public void testMethodsOrFieldsStrategyPrefersAccessorMethods() throws Exception {
+        Property.setAccessorStrategy(AccessorStrategies.METHODS_OR_FIELDS);
+        CountedData data = new CountedData();
+
+        Property.of(CountedData.class, "name").setValue(data, "F50");
+        Property.of(DataWithNoPropertyId.class, "id").setValue(new DataWithNoPropertyId(), 1);
+
+        assertEquals("F50", data.name);
+        assertEquals(1, data.calls);
+    }
+
+    @Test
+    public void testRegisteredAccessorIsUsed() throws Exception {
+        final boolean[] used = new boolean[1];
+        ClassMetadata.of(RegisteredData.class).registerAccessor("name", new PropertyAccessor() {
+            @Override
+            public Object getValue(Object instance) {
+                used[0] = true;
+                return ((RegisteredData) instance).name;
+            }
+
+            @Override
+            public void setValue(Object instance, Object value) {
+                ((RegisteredData) instance).name = (String) value;
+            }
+        });
+        RegisteredData data = new RegisteredData();
+        data.name = "F50";
+
+        assertEquals("F50", Property.of(RegisteredData.class, "name").getValue(data));
+        assertEquals("F50", new Property(RegisteredData.class, "name").getValue(data));
+        assertTrue(used[0]);
+        assertEquals(0, data.calls);
+
+        Property.setAccessorStrategy(AccessorStrategies.FIELDS);
+        used[0] = false;
+        Property.of(RegisteredData.class, "name").getValue(data);
+        assertTrue(used[0]);
+    }
+
+    public static class CountedData {
+
+        private String name;
+        private int calls;
+
+        public String getName() {
+            calls++;
+            return name;
+        }
+
+        public void setName(String name) {
+            calls++;
+            this.name = name;
+        }
+    }
+
+    public static class RegisteredData {
+
+        private String name;
+        private int calls;
+
+        public String getName() {
+            calls++;
+            return name;
+        }
+
+        public void setName(String name) {
+            calls++;
+            this.name = name;
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ import org.jboss.aerogear.android.impl.helper.DataWithNoIdConfigured;
 import org.junit.Test;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
 
 public class ScanTest {
 
@@ -42,6 +43,24 @@ public class ScanTest {
         assertEquals("id", recordIdfieldName);
     }
 
+    @Test
+    public void testRecordIdPropertyInSuperClass() throws Exception {
+        MyData data = new MyData();
+        data.setId(5);
+
+        assertSame(Scan.recordIdPropertyIn(MyData.class), Scan.recordIdPropertyIn(MyData.class));
+        assertEquals("5", Scan.findIdValueIn(data));
+    }
+
+    @Test(expected = RecordIdNotFoundException.class)
+    public void testRecordIdNotFoundExceptionIsRepeated() throws Exception {
+        try {
+            Scan.recordIdPropertyIn(DataWithNoIdConfigured.class);
+        } catch (RecordIdNotFoundException first) {
+        }
+        Scan.recordIdPropertyIn(DataWithNoIdConfigured.class);
+    }
+
     public static class SuperData {
 
         @RecordId
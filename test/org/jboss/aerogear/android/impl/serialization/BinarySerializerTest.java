@@ -0,0 +1,363 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.serialization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jboss.aerogear.android.impl.helper.Data;
+import org.jboss.aerogear.android.serialization.FieldNumber;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinarySerializerTest {
+
+    private final BinarySerializer serializer = new BinarySerializer();
+
+    @Test
+    public void testRoundTrip() {
+        Data data = new Data(-7, "F50", "The best car in the world", true);
+
+        Data read = serializer.deserialize(serializer.serialize(data), Data.class);
+
+        assertEquals(data, read);
+        assertEquals(Integer.valueOf(-7), read.getId());
+        assertTrue(read.isEnable());
+    }
+
+    @Test
+    public void testNullFieldsAreLeftOut() {
+        Data read = serializer.deserialize(serializer.serialize(new Data(null, null)), Data.class);
+
+        assertNull(read.getId());
+        assertNull(read.getName());
+    }
+
+    @Test
+    public void testSmallerThanJson() {
+        Data data = new Data(1, "F50", "The best car in the world", true);
+
+        assertTrue(serializer.serialize(data).length < new GsonSerializer().serialize(data).length / 2);
+    }
+
+    @Test
+    public void testSupportedTypes() {
+        Everything everything = new Everything();
+        everything.count = Long.MIN_VALUE;
+        everything.ratio = 0.5f;
+        everything.total = -1.25;
+        everything.letter = 'é';
+        everything.small = -3;
+        everything.tiny = Byte.MAX_VALUE;
+        everything.bytes = new byte[] { 0, -1, 127 };
+        everything.kind = Kind.BUS;
+        everything.created = new Date(1234567890123L);
+        everything.text = "日本";
+        everything.child = new Everything();
+        everything.child.text = "child";
+        everything.names = Arrays.asList("a", "b");
+        everything.numbers = new TreeSet<Integer>(Arrays.asList(300, -2));
+        everything.children = new ArrayList<Everything>();
+        everything.children.add(new Everything());
+
+        Everything read = serializer.deserialize(serializer.serialize(everything), Everything.class);
+
+        assertEquals(Long.MIN_VALUE, read.count);
+        assertEquals(0.5f, read.ratio, 0);
+        assertEquals(-1.25, read.total, 0);
+        assertEquals('é', read.letter);
+        assertEquals(Short.valueOf((short) -3), read.small);
+        assertEquals(Byte.MAX_VALUE, read.tiny);
+        assertArrayEquals(new byte[] { 0, -1, 127 }, read.bytes);
+        assertEquals(Kind.BUS, read.kind);
+        assertEquals(new Date(1234567890123L), read.created);
+        assertEquals("日本", read.text);
+        assertEquals("child", read.child.text);
+        assertEquals(Arrays.asList("a", "b"), read.names);
+        assertEquals(new TreeSet<Integer>(Arrays.asList(-2, 300)), read.numbers);
+        assertEquals(1, read.children.size());
+        assertTrue(read.children.get(0).names.isEmpty());
+    }
+
+    @Test
+    public void testCollectionRoundTrip() {
+        List<Data> items = Arrays.asList(new Data(1, "foo", "desc of foo"), new Data(2, "bar", null));
+
+        List<Data> read = serializer.deserializeAll(serializer.serializeAll(items), Data.class);
+
+        assertEquals(items, read);
+        assertTrue(serializer.deserializeAll(new byte[0], Data.class).isEmpty());
+    }
+
+    @Test
+    public void testUnknownFieldsAreSkipped() {
+        Data data = new Data(1, "foo", "desc of foo", true);
+        byte[] bytes = serializer.serialize(data);
+        byte[] withUnknownField = Arrays.copyOf(bytes, bytes.length + 3);
+        withUnknownField[bytes.length] = (10 << 3) | 2;
+        withUnknownField[bytes.length + 1] = 1;
+        withUnknownField[bytes.length + 2] = 42;
+
+        assertEquals(data, serializer.deserialize(withUnknownField, Data.class));
+    }
+
+    @Test
+    public void testTruncatedDataIsRejected() {
+        byte[] bytes = serializer.serialize(new Data(1, "foo", "desc of foo"));
+
+        try {
+            // enable, the last field, is two bytes; cut into description before it
+            serializer.deserialize(Arrays.copyOf(bytes, bytes.length - 4), Data.class);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testOversizedCollectionIsRejected() {
+        byte[] maxSize = { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 };
+        byte[] negativeSize = { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01 };
+        byte[] names = { (12 << 3) | 2, 5, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 };
+
+        for (byte[] bytes : Arrays.asList(maxSize, negativeSize)) {
+            try {
+                serializer.deserializeAll(bytes, Data.class);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        try {
+            serializer.deserialize(names, Everything.class);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testFieldsAreReadByNumber() {
+        CarV1 car = new CarV1();
+        car.name = "F50";
+        car.seats = 2;
+
+        CarV2 read = serializer.deserialize(serializer.serialize(car), CarV2.class);
+
+        assertEquals("F50", read.model);
+        assertEquals(2, read.seats);
+        assertNull(read.color);
+    }
+
+    @Test
+    public void testEnumsAreReadByName() {
+        Vehicle vehicle = new Vehicle();
+        vehicle.kind = Kind.BUS;
+
+        VehicleV2 read = serializer.deserialize(serializer.serialize(vehicle), VehicleV2.class);
+
+        assertEquals(KindV2.BUS, read.kind);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEnumConstantIsRejected() {
+        VehicleV2 vehicle = new VehicleV2();
+        vehicle.kind = KindV2.TRAIN;
+
+        serializer.deserialize(serializer.serialize(vehicle), Vehicle.class);
+    }
+
+    @Test
+    public void testNestedObjectsAreWrittenAsTheirDeclaredType() {
+        Garage garage = new Garage();
+        CarV3 car = new CarV3();
+        car.engine = "V12";
+        garage.car = car;
+        garage.car.name = "F50";
+        garage.car.seats = 2;
+
+        Garage read = serializer.deserialize(serializer.serialize(garage), Garage.class);
+
+        assertEquals(CarV1.class, read.car.getClass());
+        assertEquals("F50", read.car.name);
+        assertEquals(2, read.car.seats);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testClassWithoutNoArgConstructorIsRejected() {
+        serializer.serialize(new NoArgConstructorless("F50"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnnumberedFieldIsRejected() {
+        serializer.serialize(new Unnumbered());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSharedFieldNumberIsRejected() {
+        serializer.serialize(new SharedNumber());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFieldType() {
+        serializer.serialize(new WithMap());
+    }
+
+    public enum Kind {
+
+        CAR, BUS
+
+    }
+
+    /**
+     * Kind with a constant added before the others
+     */
+    public enum KindV2 {
+
+        TRAIN, CAR, BUS
+
+    }
+
+    public static class Vehicle {
+
+        @FieldNumber(1)
+        private Kind kind;
+
+    }
+
+    public static class VehicleV2 {
+
+        @FieldNumber(1)
+        private KindV2 kind;
+
+    }
+
+    public static class Everything {
+
+        @FieldNumber(1)
+        private long count;
+        @FieldNumber(2)
+        private float ratio;
+        @FieldNumber(3)
+        private Double total;
+        @FieldNumber(4)
+        private char letter;
+        @FieldNumber(5)
+        private Short small;
+        @FieldNumber(6)
+        private byte tiny;
+        @FieldNumber(7)
+        private byte[] bytes;
+        @FieldNumber(8)
+        private Kind kind;
+        @FieldNumber(9)
+        private Date created;
+        @FieldNumber(10)
+        private String text;
+        @FieldNumber(11)
+        private Everything child;
+        @FieldNumber(12)
+        private List<String> names = new ArrayList<String>();
+        @FieldNumber(13)
+        private Set<Integer> numbers;
+        @FieldNumber(14)
+        private ArrayList<Everything> children;
+        private transient String ignored = "ignored";
+
+    }
+
+    public static class WithMap {
+
+        @FieldNumber(1)
+        private Map<String, String> values = new HashMap<String, String>();
+
+    }
+
+    public static class CarV1 {
+
+        @FieldNumber(1)
+        private String name;
+        @FieldNumber(2)
+        private int seats;
+
+    }
+
+    /**
+     * CarV1 with name renamed to model and a new field, which sorts first
+     */
+    public static class CarV2 {
+
+        @FieldNumber(3)
+        private String color;
+        @FieldNumber(1)
+        private String model;
+        @FieldNumber(2)
+        private int seats;
+
+    }
+
+    public static class Unnumbered {
+
+        @FieldNumber(1)
+        private String name;
+        private String description;
+
+    }
+
+    public static class SharedNumber {
+
+        @FieldNumber(1)
+        private String name;
+        @FieldNumber(1)
+        private String description;
+
+    }
+
+    public static class CarV3 extends CarV1 {
+
+        @FieldNumber(3)
+        private String engine;
+
+    }
+
+    public static class Garage {
+
+        @FieldNumber(1)
+        private CarV1 car;
+
+    }
+
+    public static class NoArgConstructorless {
+
+        @FieldNumber(1)
+        private final String name;
+
+        public NoArgConstructorless(String name) {
+            this.name = name;
+        }
+
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.unifiedpush;
+
+import java.util.Arrays;
+
+import org.jboss.aerogear.android.impl.util.GsonRegistry;
+import org.jboss.aerogear.android.unifiedpush.PushConfig;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import static org.junit.Assert.*;
+
+public class PushConfigAdapterTest {
+
+    @Test
+    public void testRegistrarSendsConfigThroughAdapter() {
+        Gson gson = GsonRegistry.get(AeroGearGCMPushRegistrar.PUSH_CONFIG_GSON);
+        assertTrue(gson.getAdapter(PushConfig.class) instanceof PushConfigAdapter);
+
+        PushConfig config = new PushConfig("sender");
+        config.setDeviceToken("token");
+        config.setSecret("secret");
+        config.setOsVersion("4.4");
+        config.setCategories(Arrays.asList("news", "sport"));
+
+        assertEquals("{\"deviceToken\":\"token\",\"deviceType\":\"ANDROID\",\"operatingSystem\":\"android\","
+                + "\"osVersion\":\"4.4\",\"categories\":[\"news\",\"sport\"]}", gson.toJson(config));
+    }
+
+    @Test
+    public void testReadsWhatItWrites() {
+        Gson gson = GsonRegistry.get(AeroGearGCMPushRegistrar.PUSH_CONFIG_GSON);
+        PushConfig config = new PushConfig("sender");
+        config.setDeviceToken("token");
+        config.setAlias("me");
+        config.setOsVersion("4.4");
+
+        PushConfig read = gson.fromJson(gson.toJson(config), PushConfig.class);
+
+        assertEquals("token", read.getDeviceToken());
+        assertEquals("me", read.getAlias());
+        assertEquals("4.4", read.getOsVersion());
+        assertNull(read.getCategories());
+        assertNull(read.getSecret());
+    }
+}
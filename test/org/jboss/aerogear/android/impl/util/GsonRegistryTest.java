@@ -0,0 +1,50 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.util;
+
+import org.jboss.aerogear.android.impl.pipeline.GsonRequestBuilder;
+import org.jboss.aerogear.android.impl.pipeline.GsonResponseParser;
+import org.junit.Test;
+
+import com.google.gson.GsonBuilder;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class GsonRegistryTest {
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDefaultGsonIsShared() {
+        assertSame(GsonRegistry.getDefault(), new GsonRequestBuilder<Object>().getGson());
+        assertSame(GsonRegistry.getDefault(), new GsonResponseParser<Object>().getGson());
+    }
+
+    @Test
+    public void testGsonIsBuiltOncePerBuilder() {
+        GsonBuilder builder = new GsonBuilder().serializeNulls();
+
+        assertSame(GsonRegistry.get(builder), GsonRegistry.get(builder));
+        assertNotSame(GsonRegistry.get(builder), GsonRegistry.get(new GsonBuilder().serializeNulls()));
+        assertNotSame(GsonRegistry.getDefault(), GsonRegistry.get(new GsonBuilder()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullBuilder() {
+        GsonRegistry.get(null);
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.android.impl.util;
+
+import java.io.IOException;
+
+import org.jboss.aerogear.android.impl.pipeline.GsonRequestBuilder;
+import org.jboss.aerogear.android.impl.pipeline.GsonResponseParser;
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class TypeAdapterRegistryTest {
+
+    private TypeAdapterFactory registered;
+
+    @After
+    public void unregister() {
+        if (registered != null) {
+            TypeAdapterRegistry.unregister(registered);
+        }
+    }
+
+    @Test
+    public void testRegisteredAdapterIsUsedByPipes() throws Exception {
+        registered = TypeAdapterRegistry.register(Car.class, new CarAdapter());
+
+        GsonRequestBuilder<Car> requestBuilder = new GsonRequestBuilder<Car>();
+        assertEquals("\"F50\"", new String(requestBuilder.getBody(new Car("F50")), "UTF-8"));
+
+        GsonResponseParser<Car> responseParser = new GsonResponseParser<Car>();
+        assertEquals("Boxster", responseParser.handleResponse("\"Boxster\"", Car.class).name);
+    }
+
+    @Test
+    public void testRegisteredAdapterIsAddedToCopyOfBuilder() throws Exception {
+        GsonBuilder builder = new GsonBuilder().serializeNulls().setFieldNamingPolicy(FieldNamingPolicy.UPPER_CAMEL_CASE);
+        registered = TypeAdapterRegistry.register(Car.class, new CarAdapter());
+
+        Gson gson = TypeAdapterRegistry.create(builder);
+
+        assertEquals("\"F50\"", gson.toJson(new Car("F50")));
+        assertEquals("null", gson.toJson(null, Car.class));
+        assertEquals("the configuration of the builder is kept", "{\"Name\":null}", gson.toJson(new Owner(null)));
+        assertEquals("the builder is not changed", "{\"Name\":\"F50\"}", builder.create().toJson(new Car("F50")));
+    }
+
+    @Test
+    public void testUnregisteredAdapterIsNotUsed() throws Exception {
+        TypeAdapterRegistry.unregister(TypeAdapterRegistry.register(Car.class, new CarAdapter()));
+
+        assertEquals("{\"name\":\"F50\"}", TypeAdapterRegistry.newGson().toJson(new Car("F50")));
+    }
+
+    public static class Car {
+
+        private final String name;
+
+        public Car(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Owner {
+
+        private final String name;
+
+        public Owner(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class CarAdapter extends TypeAdapter<Car> {
+
+        @Override
+        public void write(JsonWriter out, Car value) throws IOException {
+            out.value(value.name);
+        }
+
+        @Override
+        public Car read(JsonReader in) throws IOException {
+            return new Car(in.nextString());
+        }
+    }
+}